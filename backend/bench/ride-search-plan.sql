@@ -0,0 +1,53 @@
+-- Ride search plan benchmark at 1M rides (PostgreSQL, psql).
+--   createdb ride_bench && psql -d ride_bench -f bench/ride-search-plan.sql
+-- Runs the same predicate Hibernate generates for RideRepository.searchRides twice: first with only
+-- the B-tree indexes declared on Ride (expect "Seq Scan on rides"), then after
+-- src/main/resources/db/search-indexes.sql (expect "Bitmap Heap Scan" over "BitmapOr" of the
+-- idx_ride_*_trgm indexes). Compare the "Execution Time" lines of the two EXPLAIN outputs.
+\timing on
+
+DROP TABLE IF EXISTS rides;
+CREATE TABLE rides (
+    id bigserial PRIMARY KEY,
+    from_location varchar(255),
+    to_location varchar(255),
+    route varchar(255),
+    date varchar(255),
+    status varchar(255)
+);
+
+WITH places(i, name) AS (
+    SELECT ordinality, name FROM unnest(ARRAY[
+        'Hyderabad', 'Vijayawada', 'Chennai', 'Bengaluru', 'Visakhapatnam', 'Tirupati', 'Nellore',
+        'Guntur', 'Warangal', 'Kurnool', 'Anantapur', 'Vellore', 'Mysuru', 'Hosur', 'Ongole', 'Suryapet',
+        'Rajahmundry', 'Kakinada', 'Nizamabad', 'Karimnagar']) WITH ORDINALITY AS t(name, ordinality)
+)
+INSERT INTO rides (from_location, to_location, route, date, status)
+SELECT f.name || ' Sector ' || (g % 500),
+       t.name || ' Sector ' || ((g * 7) % 500),
+       f.name || ' -> ' || m.name || ' -> ' || t.name,
+       '2026-' || lpad(((g % 12) + 1)::text, 2, '0') || '-' || lpad(((g % 28) + 1)::text, 2, '0'),
+       'OPEN'
+FROM generate_series(1, 1000000) AS g
+JOIN places f ON f.i = (g % 20) + 1
+JOIN places t ON t.i = ((g / 20) % 20) + 1
+JOIN places m ON m.i = ((g / 400) % 20) + 1;
+
+CREATE INDEX idx_ride_date ON rides (date);
+CREATE INDEX idx_ride_from ON rides (from_location);
+CREATE INDEX idx_ride_to ON rides (to_location);
+ANALYZE rides;
+
+PREPARE search(text, text) AS
+SELECT * FROM rides r WHERE
+    (LOWER(r.from_location) LIKE LOWER('%' || $1 || '%') OR LOWER(r.route) LIKE LOWER('%' || $1 || '%')) AND
+    (LOWER(r.to_location) LIKE LOWER('%' || $2 || '%') OR LOWER(r.route) LIKE LOWER('%' || $2 || '%'));
+
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('Sector 42', 'Kurnool');
+
+-- search-indexes.sql also covers vehicles
+CREATE TABLE IF NOT EXISTS vehicles (from_location varchar(255), to_location varchar(255), route varchar(255));
+\i src/main/resources/db/search-indexes.sql
+ANALYZE rides;
+
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE search('Sector 42', 'Kurnool');
@@ -0,0 +1,121 @@
+package com.example.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Connection pool metrics: how long callers wait for a JDBC connection and how long they keep it.
+ *
+ * Attached to the Hikari data source as its metrics tracker before the pool starts. Wait and hold times go into
+ * power-of-two histograms, so percentiles are reported as bucket upper bounds.
+ */
+@Component
+public class ConnectionPoolMetrics implements BeanPostProcessor, MetricsTrackerFactory {
+
+    private final Histogram waitMicros = new Histogram();
+    private final Histogram holdMillis = new Histogram();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource && dataSource.getMetricsTrackerFactory() == null
+                && dataSource.getMetricRegistry() == null)
+            dataSource.setMetricsTrackerFactory(this);
+        return bean;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        this.poolStats = stats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                waitMicros.record(elapsedAcquiredNanos / 1000);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                holdMillis.record(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.incrementAndGet();
+            }
+        };
+    }
+
+    // Threads currently queued for a connection; background jobs back off while this is above zero
+    public int waitingThreads() {
+        PoolStats pool = poolStats;
+        return pool == null ? 0 : pool.getPendingThreads();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PoolStats pool = poolStats;
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("max", pool.getMaxConnections());
+            stats.put("waitingThreads", pool.getPendingThreads());
+        }
+        stats.put("timeouts", timeouts.get());
+        stats.put("wait", waitMicros.snapshot("Us"));
+        stats.put("hold", holdMillis.snapshot("Ms"));
+        return stats;
+    }
+
+    static final class Histogram {
+        // Bucket i holds values in [2^(i-1), 2^i), bucket 0 holds 0
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            max.accumulateAndGet(v, Math::max);
+        }
+
+        // Upper bound of the bucket holding the given fraction of recorded values
+        long percentile(double fraction) {
+            long n = count.get();
+            if (n == 0)
+                return 0;
+            long rank = (long) Math.ceil(fraction * n);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return i == 0 ? 0 : Math.min((1L << i) - 1, max.get());
+            }
+            return max.get();
+        }
+
+        Map<String, Object> snapshot(String unit) {
+            long n = count.get();
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("count", n);
+            s.put("avg" + unit, n == 0 ? 0.0 : (double) sum.get() / n);
+            s.put("p50" + unit, percentile(0.50));
+            s.put("p99" + unit, percentile(0.99));
+            s.put("max" + unit, max.get());
+            return s;
+        }
+    }
+}
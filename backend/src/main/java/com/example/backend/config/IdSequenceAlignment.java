@@ -0,0 +1,90 @@
+package com.example.backend.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Moves the pooled id sequences of the batched entities (Notification, Booking, Payment), which used IDENTITY
+ * before, past the ids already in their tables. Runs against the DataSource before the EntityManagerFactory is
+ * built, so no insert can take an id from a sequence that is still behind, and fails startup if it cannot.
+ *
+ * A table that does not exist yet has no ids to step over and is left to Hibernate. Otherwise its sequence is
+ * created if missing (Hibernate's schema update then keeps it) and advanced only while it is behind MAX(id), so
+ * later startups leave it alone. PostgreSQL only, like SearchIndexMigration.
+ */
+@Component
+public class IdSequenceAlignment {
+
+    private static final Logger logger = Logger.getLogger(IdSequenceAlignment.class.getName());
+
+    // The step matches allocationSize on the entities
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("notifications", "notifications_seq");
+        SEQUENCES.put("bookings", "bookings_seq");
+        SEQUENCES.put("payments", "payments_seq");
+    }
+
+    private final DataSource dataSource;
+
+    public IdSequenceAlignment(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void align() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                logger.info("Skipping id sequence alignment on " + product);
+                return;
+            }
+            for (Map.Entry<String, String> e : SEQUENCES.entrySet())
+                align(connection, e.getKey(), e.getValue());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not align the id sequences with their tables", e);
+        }
+    }
+
+    private static void align(Connection connection, String table, String sequence) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet exists = statement.executeQuery("SELECT to_regclass('" + table + "') IS NOT NULL")) {
+                exists.next();
+                if (!exists.getBoolean(1))
+                    return;
+            }
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " START WITH 1 INCREMENT BY "
+                    + ALLOCATION_SIZE);
+            try (ResultSet moved = statement.executeQuery("SELECT setval('" + sequence + "', MAX(id) + "
+                    + ALLOCATION_SIZE + ") FROM " + table + " HAVING MAX(id) >= (SELECT last_value FROM "
+                    + sequence + ")")) {
+                if (moved.next())
+                    logger.info("Moved " + sequence + " to " + moved.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * Makes the EntityManagerFactory wait for the alignment above.
+     */
+    @Component
+    static class JpaDependency extends EntityManagerFactoryDependsOnPostProcessor {
+
+        JpaDependency() {
+            super(IdSequenceAlignment.class);
+        }
+    }
+}
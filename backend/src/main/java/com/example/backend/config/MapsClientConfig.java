@@ -0,0 +1,45 @@
+package com.example.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * HTTP client and worker pool for outbound map lookups (Google, Nominatim, OSRM).
+ */
+@Configuration
+public class MapsClientConfig {
+
+    // java.net.http.HttpClient keeps connections alive and reuses them across requests
+    @Bean
+    public RestTemplate mapsRestTemplate(@Value("${maps.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${maps.http.read-timeout-ms:3000}") long readTimeoutMs) {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+
+    // Lookups run here instead of on Tomcat workers; a full queue makes the caller run the task itself
+    @Bean
+    public ThreadPoolTaskExecutor mapsExecutor(@Value("${maps.executor.pool-size:16}") int poolSize,
+            @Value("${maps.executor.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("maps-");
+        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
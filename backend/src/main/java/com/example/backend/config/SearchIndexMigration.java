@@ -0,0 +1,60 @@
+package com.example.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Creates the PostgreSQL-specific ride indexes that Hibernate's schema update cannot express: pg_trgm GIN indexes
+ * for substring search, PostGIS GiST indexes for nearby search and the partial index behind open-ride listings.
+ * Runs once the application is ready, after Hibernate has created or updated the tables, and only against
+ * PostgreSQL; other databases use the in-memory RideSearchIndex and RideGeoIndex instead. Each script in
+ * rides.db.index-scripts is applied on its own, so a server without PostGIS still gets the others.
+ */
+@Component
+public class SearchIndexMigration {
+
+    private static final Logger logger = Logger.getLogger(SearchIndexMigration.class.getName());
+
+    private final DataSource dataSource;
+    private final ResourceLoader resourceLoader;
+    private final List<String> scripts;
+
+    public SearchIndexMigration(DataSource dataSource, ResourceLoader resourceLoader,
+            @Value("${rides.db.index-scripts:}") List<String> scripts) {
+        this.dataSource = dataSource;
+        this.resourceLoader = resourceLoader;
+        this.scripts = scripts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        for (String script : scripts) {
+            if (!script.isBlank())
+                apply(script.trim());
+        }
+    }
+
+    private void apply(String script) {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                logger.info("Skipping " + script + " on " + product);
+                return;
+            }
+            new ResourceDatabasePopulator(resourceLoader.getResource(script)).populate(connection);
+            logger.info("Applied " + script);
+        } catch (Exception e) {
+            // The queries still run without these indexes, as scans; nearby search in postgis mode needs the extension
+            logger.warning("Could not apply " + script + ": " + e.getMessage());
+        }
+    }
+}
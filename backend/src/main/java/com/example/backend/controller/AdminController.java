@@ -25,13 +25,23 @@ public class AdminController {
     private final BookingService bookingService;
     private final RideService rideService;
     private final com.example.backend.service.AdminReportService reportService;
+    private final com.example.backend.service.GoogleMapsService googleMapsService;
+    private final com.example.backend.service.RideSearchCache rideSearchCache;
+    private final com.example.backend.config.ConnectionPoolMetrics poolMetrics;
+    private final com.example.backend.service.StuckBookingRepair stuckBookingRepair;
+    private final com.example.backend.service.NotificationDispatcher notificationDispatcher;
 
-    public AdminController(UserService userService, ReviewService reviewService, BookingService bookingService, RideService rideService, com.example.backend.service.AdminReportService reportService) {
+    public AdminController(UserService userService, ReviewService reviewService, BookingService bookingService, RideService rideService, com.example.backend.service.AdminReportService reportService, com.example.backend.service.GoogleMapsService googleMapsService, com.example.backend.service.RideSearchCache rideSearchCache, com.example.backend.config.ConnectionPoolMetrics poolMetrics, com.example.backend.service.StuckBookingRepair stuckBookingRepair, com.example.backend.service.NotificationDispatcher notificationDispatcher) {
         this.userService = userService;
         this.reviewService = reviewService;
         this.bookingService = bookingService;
         this.rideService = rideService;
         this.reportService = reportService;
+        this.googleMapsService = googleMapsService;
+        this.rideSearchCache = rideSearchCache;
+        this.poolMetrics = poolMetrics;
+        this.stuckBookingRepair = stuckBookingRepair;
+        this.notificationDispatcher = notificationDispatcher;
     }
 
     // --- User Management ---
@@ -213,8 +223,51 @@ public class AdminController {
         if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
             return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
         }
-        int count = bookingService.fixStuckBookings();
-        return ResponseEntity.ok(Map.of("message", "Fixed " + count + " bookings"));
+        // Runs in the background in committed chunks; progress is on GET /maintenance/stuck-bookings
+        Map<String, Object> progress = new LinkedHashMap<>(stuckBookingRepair.start());
+        progress.put("message", "Fixing stuck bookings in the background");
+        return ResponseEntity.accepted().body(progress);
+    }
+
+    @GetMapping("/maintenance/stuck-bookings")
+    public ResponseEntity<?> getStuckBookingRepair(Authentication auth) {
+        if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
+        }
+        return ResponseEntity.ok(stuckBookingRepair.getStats());
+    }
+
+    @GetMapping("/notifications/dispatch-stats")
+    public ResponseEntity<?> getNotificationDispatchStats(Authentication auth) {
+        if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
+        }
+        return ResponseEntity.ok(notificationDispatcher.getStats());
+    }
+
+    @GetMapping("/maps/cache-stats")
+    public ResponseEntity<?> getMapsCacheStats(Authentication auth) {
+        if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
+        }
+        return ResponseEntity.ok(googleMapsService.getCacheStats());
+    }
+
+    @GetMapping("/rides/search-cache-stats")
+    public ResponseEntity<?> getRideSearchCacheStats(Authentication auth) {
+        if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
+        }
+        return ResponseEntity.ok(rideSearchCache.getStats());
+    }
+
+    // How long requests wait for a JDBC connection and how long they hold it
+    @GetMapping("/db/pool-stats")
+    public ResponseEntity<?> getConnectionPoolStats(Authentication auth) {
+        if (auth == null || !auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"))) {
+            return ResponseEntity.status(403).body(Map.of("error", "Admin required"));
+        }
+        return ResponseEntity.ok(poolMetrics.getStats());
     }
 
     // --- Data Monitoring ---
@@ -303,45 +356,8 @@ public class AdminController {
         
         // 2. Booking Status
         Map<String, Long> bookingStatus = new HashMap<>();
-        // Calculate Expired Rides (OPEN + Past Date)
-        long expiredRides = rides.stream()
-            .filter(r -> {
-                String status = r.getStatus() == null ? "" : r.getStatus().trim();
-                // Include rides already marked as EXPIRED
-                if ("EXPIRED".equalsIgnoreCase(status)) return true;
-                
-                // For OPEN rides, check if date is past
-                if ("OPEN".equalsIgnoreCase(status)) {
-                    String dStr = r.getDate();
-                    if (dStr == null || dStr.trim().isEmpty()) return false;
-                    dStr = dStr.trim();
-                    
-                    List<String> patterns = Arrays.asList(
-                        "yyyy-MM-dd", 
-                        "d/M/yyyy", 
-                        "dd-MM-yyyy",
-                        "yyyy/MM/dd",
-                        "MM/dd/yyyy",
-                        "dd/MM/yyyy"
-                    );
-                    
-                    for (String p : patterns) {
-                        try {
-                            LocalDate d;
-                            if (p.equals("yyyy-MM-dd")) {
-                                 d = LocalDate.parse(dStr);
-                            } else {
-                                 d = LocalDate.parse(dStr, DateTimeFormatter.ofPattern(p));
-                            }
-                            return d.isBefore(today);
-                        } catch (Exception e) {
-                            // continue
-                        }
-                    }
-                }
-                return false;
-            })
-            .count();
+        // Expired rides (marked EXPIRED, or OPEN past their departure) are counted in the database
+        long expiredRides = rideService.countExpiredRides();
 
         bookingStatus.put("CONFIRMED", bookings.stream().filter(b -> List.of("ACCEPTED", "PAID", "COMPLETED", "DRIVER_COMPLETED").contains(b.getStatus())).count());
         bookingStatus.put("PENDING", bookings.stream().filter(b -> List.of("PENDING", "CASH_PAYMENT_PENDING", "PAYMENT_PENDING").contains(b.getStatus())).count());
@@ -3,6 +3,7 @@ package com.example.backend.controller;
 import com.example.backend.model.Booking;
 import com.example.backend.model.Ride;
 import com.example.backend.service.BookingService;
+import com.example.backend.service.IdempotencyStore;
 import com.example.backend.service.RideService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -18,19 +19,39 @@ public class BookingController {
     private final RideService rideService;
     private final com.example.backend.service.NotificationService notificationService;
     private final com.example.backend.service.ReviewService reviewService;
+    private final IdempotencyStore idempotencyStore;
 
-    public BookingController(BookingService bookingService, RideService rideService, com.example.backend.service.NotificationService notificationService, com.example.backend.service.ReviewService reviewService) {
+    public BookingController(BookingService bookingService, RideService rideService, com.example.backend.service.NotificationService notificationService, com.example.backend.service.ReviewService reviewService, IdempotencyStore idempotencyStore) {
         this.bookingService = bookingService;
         this.rideService = rideService;
         this.notificationService = notificationService;
         this.reviewService = reviewService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     @PostMapping
-    public ResponseEntity<?> create(@RequestBody Map<String, Object> body, Authentication auth) {
+    public ResponseEntity<?> create(@RequestBody Map<String, Object> body, Authentication auth,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         if (auth == null) {
             return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
         }
+        // A retried booking request replays the first response instead of taking the seats again
+        return idempotencyStore.execute("POST /api/bookings", auth.getName(), idempotencyKey, body,
+                () -> createBooking(body, auth, false));
+    }
+
+    // Same request body as POST /api/bookings, for a ride without enough free seats
+    @PostMapping("/waitlist")
+    public ResponseEntity<?> joinWaitlist(@RequestBody Map<String, Object> body, Authentication auth,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        if (auth == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        return idempotencyStore.execute("POST /api/bookings/waitlist", auth.getName(), idempotencyKey, body,
+                () -> createBooking(body, auth, true));
+    }
+
+    private ResponseEntity<?> createBooking(Map<String, Object> body, Authentication auth, boolean waitlist) {
         try {
             Long rideId = Long.valueOf(body.containsKey("rideId") ? body.get("rideId").toString()
                     : body.get("vehicleId").toString());
@@ -77,6 +98,8 @@ public class BookingController {
                 b.setPaymentMethod(body.get("paymentMethod").toString());
             }
 
+            if (waitlist)
+                return ResponseEntity.ok(bookingService.joinWaitlist(b));
             Booking saved = bookingService.createBooking(b);
             return ResponseEntity.ok(saved);
         } catch (Exception ex) {
@@ -147,9 +170,17 @@ public class BookingController {
         if (!auth.getName().equals(b.getRide().getDriverEmail())) {
             return ResponseEntity.status(403).body(Map.of("error", "Not your booking"));
         }
+        // Waitlisted bookings hold no seats yet; they reach the driver as PENDING once promoted
+        if ("WAITLISTED".equals(b.getStatus())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Booking is still on the waitlist"));
+        }
 
         b.setStatus(newStatus);
-        bookingService.updateBooking(b); // Save
+        try {
+            bookingService.updateBooking(b); // Save
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
         return ResponseEntity.ok(b);
     }
 
@@ -158,6 +189,7 @@ public class BookingController {
         if (b.getPickupLocation() == null || b.getDropoffLocation() == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "pickupLocation and dropoffLocation required"));
         }
+        // The estimate never makes a remote call, so it is answered on the request thread
         return ResponseEntity
                 .ok(bookingService.estimatePrice(b.getPickupLocation(), b.getDropoffLocation(), b.getSeats()));
     }
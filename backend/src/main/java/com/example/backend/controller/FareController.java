@@ -4,6 +4,7 @@ import com.example.backend.service.FareService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/fare")
@@ -16,20 +17,19 @@ public class FareController {
     }
 
     @PostMapping("/calculate")
-    public ResponseEntity<?> calculate(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<?>> calculate(@RequestBody Map<String, String> request) {
         String from = request.get("fromLocation");
         String to = request.get("toLocation");
 
         if (from == null || to == null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "fromLocation and toLocation are required"));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "fromLocation and toLocation are required")));
         }
 
         String via = request.get("viaRoute"); // Optional
 
-        try {
-            return ResponseEntity.ok(fareService.calculateFare(from, to, via));
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
-        }
+        return fareService.calculateFareAsync(from, to, via)
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(e -> ResponseEntity.status(500).body(Map.of("error", String.valueOf(e.getMessage()))));
     }
 }
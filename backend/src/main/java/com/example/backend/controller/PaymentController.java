@@ -1,8 +1,10 @@
 package com.example.backend.controller;
 
+import com.example.backend.service.IdempotencyStore;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,10 +17,13 @@ import java.util.Map;
 public class PaymentController {
 
     private final com.example.backend.service.PaymentService paymentService;
+    private final IdempotencyStore idempotencyStore;
 
     public PaymentController(com.example.backend.service.PaymentService paymentService,
+            IdempotencyStore idempotencyStore,
             @org.springframework.beans.factory.annotation.Value("${stripe.api.key}") String stripeApiKey) {
         this.paymentService = paymentService;
+        this.idempotencyStore = idempotencyStore;
         Stripe.apiKey = stripeApiKey;
         Stripe.setConnectTimeout(10000); // 10s connect timeout
         Stripe.setReadTimeout(10000);    // 10s read timeout
@@ -26,7 +31,15 @@ public class PaymentController {
 
     @PostMapping("/create-payment-intent")
     public ResponseEntity<?> createPaymentIntent(@RequestBody Map<String, Object> data,
-            org.springframework.security.core.Authentication auth) {
+            org.springframework.security.core.Authentication auth,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        String caller = (auth != null) ? auth.getName() : "anonymous";
+        return idempotencyStore.execute("POST /api/payment/create-payment-intent", caller, idempotencyKey, data,
+                () -> createIntent(data, auth, idempotencyKey));
+    }
+
+    private ResponseEntity<?> createIntent(Map<String, Object> data,
+            org.springframework.security.core.Authentication auth, String idempotencyKey) {
         try {
             System.out.println("PaymentController: Request received. Data: " + data);
             Double amountINR = Double.parseDouble(data.getOrDefault("amount", 100).toString());
@@ -48,7 +61,10 @@ public class PaymentController {
                                     .build())
                     .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            // Stripe dedupes on the same key, so an intent created before a failed response is not created twice
+            RequestOptions options = (idempotencyKey == null || idempotencyKey.isBlank()) ? RequestOptions.getDefault()
+                    : RequestOptions.builder().setIdempotencyKey("intent-" + userEmail + "-" + idempotencyKey).build();
+            PaymentIntent paymentIntent = PaymentIntent.create(params, options);
             paymentService.logPaymentIntent(bookingId, userEmail, (double) amountINR, paymentIntent.getId());
 
             Map<String, String> response = new HashMap<>();
@@ -63,28 +79,45 @@ public class PaymentController {
 
 
     @PostMapping("/simulate")
-    public ResponseEntity<?> simulatePayment(@RequestBody Map<String, Object> data, org.springframework.security.core.Authentication auth) {
+    public ResponseEntity<?> simulatePayment(@RequestBody Map<String, Object> data, org.springframework.security.core.Authentication auth,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        String caller = (auth != null) ? auth.getName() : "anonymous";
+        return idempotencyStore.execute("POST /api/payment/simulate", caller, idempotencyKey, data,
+                () -> simulate(data, auth));
+    }
+
+    private ResponseEntity<?> simulate(Map<String, Object> data, org.springframework.security.core.Authentication auth) {
         Long bookingId = data.containsKey("bookingId") ? Long.parseLong(data.get("bookingId").toString()) : null;
         Double amount = Double.parseDouble(data.getOrDefault("amount", 0.0).toString());
         String userEmail = (auth != null) ? auth.getName() : "anonymous";
         
-        com.example.backend.model.Booking b = paymentService.simulatePayment(bookingId, userEmail, amount);
+        com.example.backend.model.Booking b;
+        try {
+            b = paymentService.simulatePayment(bookingId, userEmail, amount);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(409).body(Map.of("success", false, "error", e.getMessage()));
+        }
         return ResponseEntity.ok(Map.of("success", true, "booking", b));
     }
 
     @PostMapping("/confirm")
-    public Map<String, Object> confirmPayment(@RequestBody Map<String, String> data) {
+    public ResponseEntity<?> confirmPayment(@RequestBody Map<String, String> data) {
         String intentId = data.get("paymentIntentId");
         String methodId = data.get("paymentMethodId");
 
-        com.example.backend.model.Payment p = paymentService.confirmPayment(intentId, methodId);
+        com.example.backend.model.Payment p;
+        try {
+            p = paymentService.confirmPayment(intentId, methodId);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(409).body(Map.of("success", false, "error", e.getMessage()));
+        }
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", p != null);
         if (p != null)
             response.put("paymentId", p.getId());
 
-        return response;
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/driver-history")
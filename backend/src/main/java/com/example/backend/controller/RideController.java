@@ -5,6 +5,9 @@ import com.example.backend.service.BookingService;
 import com.example.backend.model.Booking;
 import com.example.backend.model.Ride;
 import com.example.backend.service.FareService;
+import com.example.backend.service.RideCursor;
+import com.example.backend.service.RidePage;
+import com.example.backend.service.RideSearchCache;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -23,31 +26,200 @@ public class RideController {
     private final BookingService bookingService;
     private final com.example.backend.service.NotificationService notificationService;
     private final com.example.backend.service.UserService userService;
+    private final RideSearchCache searchCache;
 
-    public RideController(RideService service, FareService fareService, com.example.backend.service.ReviewService reviewService, BookingService bookingService, com.example.backend.service.NotificationService notificationService, com.example.backend.service.UserService userService) {
+    public RideController(RideService service, FareService fareService, com.example.backend.service.ReviewService reviewService, BookingService bookingService, com.example.backend.service.NotificationService notificationService, com.example.backend.service.UserService userService, RideSearchCache searchCache) {
         this.service = service;
         this.fareService = fareService;
         this.reviewService = reviewService;
         this.bookingService = bookingService;
         this.notificationService = notificationService;
         this.userService = userService;
+        this.searchCache = searchCache;
     }
 
     @GetMapping
     public ResponseEntity<?> list() {
-        List<Ride> rides = service.list().stream()
-                .filter(r -> "OPEN".equals(r.getStatus()) && r.getTickets() > 0)
-                .collect(java.util.stream.Collectors.toList());
-        return ResponseEntity.ok(enrichRides(rides));
+        return ResponseEntity.ok(enrichRides(service.listOpen()));
     }
 
+    /**
+     * Open rides with seats left, newest first, one page at a time. Pass the returned nextCursor to get the
+     * following page; it is null on the last one.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> listPage(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "${rides.page.default-size:20}") int size) {
+        RideCursor position = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            position = RideCursor.decode(cursor);
+            if (position == null)
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        return ResponseEntity.ok(pageBody(service.listOpenPage(position, size)));
+    }
+
+    @GetMapping("/search/page")
+    public ResponseEntity<?> searchPage(@RequestParam(required = false, defaultValue = "") String from,
+            @RequestParam(required = false, defaultValue = "") String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "${rides.page.default-size:20}") int size) {
+        RideCursor position = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            position = RideCursor.decode(cursor);
+            if (position == null)
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        RideSearchCache.Key key = RideSearchCache.key(from, to, null,
+                (position == null ? "" : position.encode()) + "/" + size);
+        Object cached = searchCache.get(key);
+        if (cached != null)
+            return ResponseEntity.ok(cached);
+        long ticket = searchCache.ticket();
+        RidePage page = service.searchOpenPage(key.from(), key.to(), position, size);
+        Map<String, Object> body = pageBody(page);
+        searchCache.put(key, ticket, page.rides(), body);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Open rides with seats left departing between two ISO-8601 instants (after inclusive, before exclusive),
+     * earliest first.
+     */
+    @GetMapping("/departing")
+    public ResponseEntity<?> departing(@RequestParam String after, @RequestParam String before,
+            @RequestParam(required = false, defaultValue = "${rides.page.default-size:20}") int size) {
+        java.time.Instant from;
+        java.time.Instant to;
+        try {
+            from = java.time.Instant.parse(after);
+            to = java.time.Instant.parse(before);
+        } catch (java.time.format.DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "after and before must be ISO-8601 instants"));
+        }
+        if (!from.isBefore(to))
+            return ResponseEntity.badRequest().body(Map.of("error", "after must be earlier than before"));
+        List<Map<String, Object>> body = enrichRides(service.findDepartingBetween(from, to, size));
+        return ResponseEntity.ok(body);
+    }
+
+    private Map<String, Object> pageBody(RidePage page) {
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("rides", enrichRides(page.rides()));
+        body.put("nextCursor", page.nextCursor());
+        return body;
+    }
+
+    /**
+     * Open rides with seats left between from and to, optionally only those departing on an ISO date
+     * (yyyy-MM-dd). Responses are cached per normalized search until a matching ride changes.
+     */
     @GetMapping("/search")
     public ResponseEntity<?> search(@RequestParam(required = false, defaultValue = "") String from,
-            @RequestParam(required = false, defaultValue = "") String to) {
-        List<Ride> rides = service.searchRides(from, to).stream()
-                .filter(r -> "OPEN".equals(r.getStatus()) && r.getTickets() > 0)
+            @RequestParam(required = false, defaultValue = "") String to,
+            @RequestParam(required = false) String date) {
+        java.time.LocalDate day = null;
+        if (date != null && !date.isBlank()) {
+            try {
+                day = java.time.LocalDate.parse(date.trim());
+            } catch (java.time.format.DateTimeParseException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "date must be an ISO date (yyyy-MM-dd)"));
+            }
+        }
+        RideSearchCache.Key key = RideSearchCache.key(from, to, day, null);
+        Object cached = searchCache.get(key);
+        if (cached != null)
+            return ResponseEntity.ok(cached);
+        long ticket = searchCache.ticket();
+        List<Ride> rides = service.searchOpenRides(key.from(), key.to(), day);
+        // A ride with intermediate stops can have seats on some legs only, so it is judged on the legs searched
+        List<Ride> bookable = new java.util.ArrayList<>();
+        List<Integer> segmentSeats = new java.util.ArrayList<>();
+        for (Ride r : rides) {
+            int seats = from.isBlank() || to.isBlank() ? r.getTickets()
+                    : com.example.backend.service.LegSeats.forSegment(r, from, to);
+            if (seats > 0) {
+                bookable.add(r);
+                segmentSeats.add(seats);
+            }
+        }
+        List<Map<String, Object>> body = enrichRides(bookable);
+        for (int i = 0; i < body.size(); i++)
+            body.get(i).put("segmentSeats", segmentSeats.get(i));
+        searchCache.put(key, ticket, rides, body);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * Rides whose start and end lie near the requested pickup and drop. Each point is given either as
+     * coordinates (fromLat/fromLon, toLat/toLon) or as a place name (from, to) that is geocoded.
+     */
+    @GetMapping("/search/nearby")
+    public ResponseEntity<?> searchNearby(@RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Double fromLat, @RequestParam(required = false) Double fromLon,
+            @RequestParam(required = false) Double toLat, @RequestParam(required = false) Double toLon,
+            @RequestParam(required = false, defaultValue = "${rides.nearby.default-radius-km:10}") double fromRadiusKm,
+            @RequestParam(required = false, defaultValue = "${rides.nearby.default-radius-km:10}") double toRadiusKm) {
+        double[] pickup = point(fromLat, fromLon, from);
+        if (pickup == null)
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not locate pickup point"));
+        double[] drop = point(toLat, toLon, to);
+        if (drop == null)
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not locate drop point"));
+        if (fromRadiusKm <= 0 || toRadiusKm <= 0)
+            return ResponseEntity.badRequest().body(Map.of("error", "Radius must be positive"));
+
+        return ResponseEntity.ok(enrichMatches(service.searchNearby(pickup[0], pickup[1], fromRadiusKm,
+                drop[0], drop[1], toRadiusKm)));
+    }
+
+    /**
+     * Rides whose route passes within radiusKm of the pickup and then of the drop, so a passenger can join part
+     * of the way. Points are given as for /search/nearby; results are ordered by detour.
+     */
+    @GetMapping("/search/route")
+    public ResponseEntity<?> searchAlongRoute(@RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Double fromLat, @RequestParam(required = false) Double fromLon,
+            @RequestParam(required = false) Double toLat, @RequestParam(required = false) Double toLon,
+            @RequestParam(required = false, defaultValue = "${rides.corridor.default-radius-km:5}") double radiusKm) {
+        if (!service.isRouteSearchEnabled())
+            return ResponseEntity.status(503).body(Map.of("error", "Partial-route search is disabled"));
+        double[] pickup = point(fromLat, fromLon, from);
+        if (pickup == null)
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not locate pickup point"));
+        double[] drop = point(toLat, toLon, to);
+        if (drop == null)
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not locate drop point"));
+        if (radiusKm <= 0)
+            return ResponseEntity.badRequest().body(Map.of("error", "Radius must be positive"));
+
+        return ResponseEntity.ok(enrichMatches(
+                service.searchAlongRoute(pickup[0], pickup[1], drop[0], drop[1], radiusKm)));
+    }
+
+    private List<Map<String, Object>> enrichMatches(List<com.example.backend.service.NearbyRide> found) {
+        List<com.example.backend.service.NearbyRide> matches = found.stream()
+                .filter(n -> n.ride().getTickets() > 0)
                 .collect(java.util.stream.Collectors.toList());
-        return ResponseEntity.ok(enrichRides(rides));
+        List<Map<String, Object>> body = enrichRides(matches.stream()
+                .map(com.example.backend.service.NearbyRide::ride)
+                .collect(java.util.stream.Collectors.toList()));
+        for (int i = 0; i < body.size(); i++) {
+            body.get(i).put("startDistanceKm", Math.round(matches.get(i).startMeters() / 100.0) / 10.0);
+            body.get(i).put("endDistanceKm", Math.round(matches.get(i).endMeters() / 100.0) / 10.0);
+            body.get(i).put("detourKm", Math.round(matches.get(i).detourMeters() / 100.0) / 10.0);
+        }
+        return body;
+    }
+
+    private double[] point(Double lat, Double lon, String place) {
+        if (lat != null && lon != null)
+            return new double[] { lat, lon };
+        if (place == null || place.isBlank())
+            return null;
+        return service.locate(place);
     }
 
     private List<Map<String, Object>> enrichRides(List<Ride> rides) {
@@ -57,6 +229,7 @@ public class RideController {
             map.put("fromLocation", r.getFromLocation());
             map.put("toLocation", r.getToLocation());
             map.put("date", r.getDate());
+            map.put("departureAt", r.getDepartureAt());
             map.put("price", r.getPrice());
             map.put("tickets", r.getTickets());
             map.put("vehicleType", r.getVehicleType());
@@ -170,6 +343,14 @@ public class RideController {
             return ResponseEntity.status(403).body(Map.of("error", "Permission denied"));
         }
 
+        // Bookings are counted against the legs between the stops they named, so the stops stay put once booked
+        boolean routeChanged = (r.getFromLocation() != null && !r.getFromLocation().equals(db.getFromLocation()))
+                || (r.getToLocation() != null && !r.getToLocation().equals(db.getToLocation()))
+                || (r.getRoute() != null && !r.getRoute().equals(db.getRoute()));
+        if (routeChanged && bookingService.hasActiveBookings(id))
+            return ResponseEntity.status(409)
+                    .body(Map.of("error", "Route cannot be changed while the ride has bookings"));
+
         // Update fields...
         if (r.getFromLocation() != null)
             db.setFromLocation(r.getFromLocation());
@@ -201,6 +382,8 @@ public class RideController {
             db.setImageUrl(r.getImageUrl());
         if (r.getRoute() != null)
             db.setRoute(r.getRoute());
+        if (r.getFromLocation() != null || r.getToLocation() != null || r.getRoute() != null)
+            service.refreshRouteGeometry(db);
 
         Ride saved = service.save(db);
         return ResponseEntity.ok(saved);
@@ -226,18 +409,8 @@ public class RideController {
         ride.setCancellationReason(reason);
         service.save(ride);
 
-        // Cancel all related bookings
-        List<Booking> bookings = bookingService.findByRideId(id);
-        for (Booking b : bookings) {
-            // Cancel active bookings
-            if (!"CANCELLED".equals(b.getStatus()) && !"REJECTED".equals(b.getStatus())) { // Only cancel if not already finished/cancelled?
-                 // Even if ACCEPTED or PENDING
-                 b.setStatus("CANCELLED");
-                 b.setCancellationReason("Driver Cancelled: " + reason);
-                 bookingService.updateBooking(b);
-                 notificationService.createNotification(b.getUserEmail(), "Ride Cancelled by Driver: " + reason, "RIDE_CANCELLED");
-            }
-        }
+        // Cancel all related bookings in one update; passengers are notified in one batch after it commits
+        bookingService.cancelAllForRide(ride, reason);
         return ResponseEntity.ok(ride);
     }
 
@@ -257,30 +430,9 @@ public class RideController {
         ride.setStatus("COMPLETED");
         service.save(ride);
 
-        // Update all related bookings
-        List<Booking> bookings = bookingService.findByRideId(id);
-        for (Booking b : bookings) {
-            // Only update bookings that are in progress (ACCEPTED or PAID)
-            // If they are REJECTED or CANCELLED, ignore.
-            // If they are PENDING, they should probably be REJECTED? Or ignored? User didn't specify. 
-            // Let's assume we proceed with ACCEPTED bookings.
-            if ("ACCEPTED".equals(b.getStatus()) || "PAID".equals(b.getStatus())) {
-                 if ("CASH".equalsIgnoreCase(b.getPaymentMethod())) {
-                     b.setStatus("CASH_PAYMENT_PENDING");
-                     notificationService.createNotification(b.getUserEmail(), "Ride Completed! Please pay cash to Driver.", "RIDE_COMPLETED");
-                 } else {
-                     // For Stripe, if already paid, mark complete, otherwise pending
-                     if ("PAID".equals(b.getPaymentStatus())) {
-                         b.setStatus("COMPLETED");
-                     } else {
-                         b.setStatus("PAYMENT_PENDING");
-                         notificationService.createNotification(b.getUserEmail(), "Ride Completed! Please proceed to payment.", "RIDE_COMPLETED");
-                     }
-                 }
-                 bookingService.updateBooking(b);
-            }
-        }
-        
+        // Move the riding (ACCEPTED or PAID) bookings on to payment in one update
+        bookingService.completeAllForRide(ride);
+
         return ResponseEntity.ok(ride);
     }
 }
@@ -5,10 +5,14 @@ import java.time.Instant;
 import java.util.List;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+    @Index(name = "idx_booking_hold_expires", columnList = "holdExpiresAt"),
+    @Index(name = "idx_booking_status", columnList = "status")
+})
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     private String userEmail;
@@ -23,7 +27,7 @@ public class Booking {
     @CollectionTable(name = "booking_passengers", joinColumns = @JoinColumn(name = "booking_id"))
     private List<Passenger> passengers;
 
-    private String status = "PENDING"; // PENDING, ACCEPTED, REJECTED, DRIVER_COMPLETED, CASH_PAYMENT_PENDING, PAYMENT_PENDING, PAID, COMPLETED, CANCELLED
+    private String status = "PENDING"; // PENDING, ACCEPTED, REJECTED, DRIVER_COMPLETED, CASH_PAYMENT_PENDING, PAYMENT_PENDING, PAID, COMPLETED, CANCELLED, EXPIRED, WAITLISTED
     private String paymentMethod = "STRIPE"; // STRIPE, CASH
     private String paymentStatus = "UNPAID"; // UNPAID, PAID, REFUNDED
     private String cancellationReason;
@@ -165,6 +169,37 @@ public class Booking {
 
     private String transactionId;
 
+    // Set while the booking's seats are only held; cleared once the booking is acted on (see SeatHolds)
+    private Instant holdExpiresAt;
+
+    public Instant getHoldExpiresAt() {
+        return holdExpiresAt;
+    }
+
+    public void setHoldExpiresAt(Instant holdExpiresAt) {
+        this.holdExpiresAt = holdExpiresAt;
+    }
+
+    // Indexes of the pickup and dropoff among the ride's routeStops; null when the booking takes the whole ride
+    private Integer fromStop;
+    private Integer toStop;
+
+    public Integer getFromStop() {
+        return fromStop;
+    }
+
+    public void setFromStop(Integer fromStop) {
+        this.fromStop = fromStop;
+    }
+
+    public Integer getToStop() {
+        return toStop;
+    }
+
+    public void setToStop(Integer toStop) {
+        this.toStop = toStop;
+    }
+
     public String getTransactionId() {
         return transactionId;
     }
@@ -0,0 +1,101 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A request sent with an Idempotency-Key: claimed by IdempotencyStore (IN_PROGRESS) before the request runs, and
+ * filled in with its response (DONE) when it completes.
+ */
+@Entity
+@Table(name = "idempotency_records", indexes = {
+    @Index(name = "idx_idempotency_expires", columnList = "expiresAt")
+})
+public class IdempotencyRecord {
+    // Endpoint, caller and key, joined
+    @Id
+    @Column(length = 600)
+    private String id;
+
+    private String fingerprint;
+    private String state; // IN_PROGRESS while the first request runs, then DONE; null rows predate claims and are done
+    private int status;
+
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    private Instant createdAt = Instant.now();
+    private Instant expiresAt;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String id, String fingerprint, int status, String body, Instant expiresAt) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+        this.status = status;
+        this.body = body;
+        this.expiresAt = expiresAt;
+    }
+
+    // getters/setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public boolean isDone() {
+        return !"IN_PROGRESS".equals(state);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.backend.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Checkpoint of a chunked maintenance job, saved with each chunk so a restart resumes where it stopped.
+ */
+@Entity
+@Table(name = "maintenance_jobs")
+public class MaintenanceJob {
+    @Id
+    private String name;
+
+    private String status; // RUNNING, DONE, FAILED
+    private long afterId;
+    private long processed;
+    private Instant startedAt;
+    private Instant updatedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public MaintenanceJob() {
+    }
+
+    public MaintenanceJob(String name) {
+        this.name = name;
+    }
+
+    // getters/setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(long afterId) {
+        this.afterId = afterId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
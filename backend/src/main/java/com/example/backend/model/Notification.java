@@ -4,10 +4,15 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notification_dispatched", columnList = "dispatchedAt")
+})
 public class Notification {
+    // Ids come from a pooled sequence, one round trip per 50 rows, so inserts can be batched (IDENTITY
+    // would need each row's insert to run alone to read its id back); IdSequenceAlignment aligns the sequence
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_seq")
+    @SequenceGenerator(name = "notifications_seq", sequenceName = "notifications_seq", allocationSize = 50)
     private Long id;
 
     private String recipientEmail;
@@ -16,6 +21,7 @@ public class Notification {
     private String type; // BOOKING_CONFIRMED, RIDE_UPDATE, REMINDER, etc.
 
     private Instant createdAt = Instant.now();
+    private Instant dispatchedAt; // pushed over WebSocket; null while still in the outbox
 
     public Notification() {
     }
@@ -74,4 +80,12 @@ public class Notification {
     public void setCreatedAt(Instant createdAt) {
         this.createdAt = createdAt;
     }
+
+    public Instant getDispatchedAt() {
+        return dispatchedAt;
+    }
+
+    public void setDispatchedAt(Instant dispatchedAt) {
+        this.dispatchedAt = dispatchedAt;
+    }
 }
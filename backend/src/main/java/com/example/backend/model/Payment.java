@@ -7,7 +7,8 @@ import jakarta.persistence.*;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
     private Long id;
 
     private Long bookingId;
@@ -18,7 +19,7 @@ public class Payment {
     private String stripePaymentMethodId;
 
     private Double amount;
-    private String status; // PENDING, CONFIRMED, FAILED
+    private String status; // PENDING, CONFIRMED, FAILED, REFUND_PENDING
 
     public Payment() {
     }
@@ -7,7 +7,8 @@ import java.time.Instant;
 @Table(name = "rides", indexes = {
     @Index(name = "idx_ride_date", columnList = "date"),
     @Index(name = "idx_ride_from", columnList = "fromLocation"),
-    @Index(name = "idx_ride_to", columnList = "toLocation")
+    @Index(name = "idx_ride_to", columnList = "toLocation"),
+    @Index(name = "idx_ride_status_departure", columnList = "status, departureAt")
 })
 public class Ride {
     @Id
@@ -18,12 +19,31 @@ public class Ride {
     private String toLocation;
     private String date; // ISO string
     private String time; // Departure time (e.g., "11:22 AM")
+    private Instant departureAt; // date + time normalized by Departures; null if the date can't be read
     private double price;
-    private int tickets; // available seats
+    private int tickets; // available seats; with legSeats, the most free on any leg
+    // Free seats per leg between consecutive routeStops, comma separated (LegSeats); null for a single leg
+    @Column(length = 1000)
+    private String legSeats;
     private String vehicleType;
     private String imageUrl;
     private String route; // e.g., "Via Highway 1, Rest Stop A"
 
+    // Resolved at post time (see RouteGeometry): stops joined by " -> ", cumulative meters at each stop
+    @Column(length = 2000)
+    private String routeStops;
+    @Column(length = 1000)
+    private String stopOffsets;
+    @Column(length = 4000)
+    private String routePolyline;
+    // "lat,lon" per stop joined by ';' (empty where unknown); endpoints are also kept as columns for spatial search
+    @Column(length = 2000)
+    private String stopCoordinates;
+    private Double fromLat;
+    private Double fromLon;
+    private Double toLat;
+    private Double toLon;
+
     // Driver Info
     private String driverName;
 
@@ -34,6 +54,9 @@ public class Ride {
     @Transient
     private int reservedSeats;
 
+    @Transient
+    private Integer loadedTickets; // tickets as read from the database; null for a ride never read from it
+
     private String cancellationReason;
 
     public String getCancellationReason() {
@@ -100,6 +123,14 @@ public class Ride {
         this.time = time;
     }
 
+    public Instant getDepartureAt() {
+        return departureAt;
+    }
+
+    public void setDepartureAt(Instant departureAt) {
+        this.departureAt = departureAt;
+    }
+
     public double getPrice() {
         return price;
     }
@@ -116,6 +147,25 @@ public class Ride {
         this.tickets = tickets;
     }
 
+    // JPA calls this once the row is read, so a later save can tell the driver's seat change from bookings
+    @PostLoad
+    public void rememberLoadedTickets() {
+        loadedTickets = tickets;
+    }
+
+    // Seats added (or removed, if negative) since the ride was read; 0 for a ride never read from the database
+    public int ticketsChangedSinceLoad() {
+        return loadedTickets == null ? 0 : tickets - loadedTickets;
+    }
+
+    public String getLegSeats() {
+        return legSeats;
+    }
+
+    public void setLegSeats(String legSeats) {
+        this.legSeats = legSeats;
+    }
+
     public String getVehicleType() {
         return vehicleType;
     }
@@ -140,6 +190,70 @@ public class Ride {
         this.route = route;
     }
 
+    public String getRouteStops() {
+        return routeStops;
+    }
+
+    public void setRouteStops(String routeStops) {
+        this.routeStops = routeStops;
+    }
+
+    public String getStopOffsets() {
+        return stopOffsets;
+    }
+
+    public void setStopOffsets(String stopOffsets) {
+        this.stopOffsets = stopOffsets;
+    }
+
+    public String getRoutePolyline() {
+        return routePolyline;
+    }
+
+    public void setRoutePolyline(String routePolyline) {
+        this.routePolyline = routePolyline;
+    }
+
+    public String getStopCoordinates() {
+        return stopCoordinates;
+    }
+
+    public void setStopCoordinates(String stopCoordinates) {
+        this.stopCoordinates = stopCoordinates;
+    }
+
+    public Double getFromLat() {
+        return fromLat;
+    }
+
+    public void setFromLat(Double fromLat) {
+        this.fromLat = fromLat;
+    }
+
+    public Double getFromLon() {
+        return fromLon;
+    }
+
+    public void setFromLon(Double fromLon) {
+        this.fromLon = fromLon;
+    }
+
+    public Double getToLat() {
+        return toLat;
+    }
+
+    public void setToLat(Double toLat) {
+        this.toLat = toLat;
+    }
+
+    public Double getToLon() {
+        return toLon;
+    }
+
+    public void setToLon(Double toLon) {
+        this.toLon = toLon;
+    }
+
     public String getDriverName() {
         return driverName;
     }
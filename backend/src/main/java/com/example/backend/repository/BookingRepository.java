@@ -1,10 +1,121 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.Booking;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    // Bookings handed to controllers carry their passengers, which are lazy and cannot be loaded once the
+    // repository call returns (there is no open-in-view session)
+    @EntityGraph(attributePaths = "passengers")
     List<Booking> findByUserEmailOrderByCreatedAtDesc(String email);
+
+    @EntityGraph(attributePaths = "passengers")
     List<Booking> findByRideId(Long rideId);
+
+    @Override
+    @EntityGraph(attributePaths = "passengers")
+    Optional<Booking> findById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = "passengers")
+    List<Booking> findAll();
+
+    // Row-locked read for state changes that return seats, so a cancel and a hold expiry cannot both do it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id = :id")
+    Optional<Booking> findByIdForUpdate(@Param("id") Long id);
+
+    // Outstanding seat holds, reloaded into SeatHolds on startup (idx_booking_hold_expires)
+    @Query("SELECT b.id, b.holdExpiresAt FROM Booking b WHERE b.holdExpiresAt IS NOT NULL AND b.status = 'PENDING'")
+    List<Object[]> findOpenHolds();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.id IN :ids AND b.status = 'PENDING' AND " +
+            "b.holdExpiresAt IS NOT NULL AND b.holdExpiresAt <= :now")
+    List<Booking> lockExpiredHolds(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'EXPIRED', b.holdExpiresAt = NULL, " +
+            "b.cancellationReason = 'Seat hold expired' WHERE b.id IN :ids")
+    int markExpired(@Param("ids") Collection<Long> ids);
+
+    // Turns a hold into a booking unless it was already released; 0 means the seats are gone
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.holdExpiresAt = NULL WHERE b.id = :id AND b.status = 'PENDING'")
+    int convertHold(@Param("id") Long id);
+
+    // Bookings a ride cancellation acts on: everything not already finished
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.ride.id = :rideId AND b.status NOT IN ('CANCELLED', 'REJECTED', 'EXPIRED')")
+    List<Booking> lockActiveForRide(@Param("rideId") Long rideId);
+
+    // Whether a ride's stops can still change: bookings hold seats on the legs between the stops they named
+    @Query("SELECT COUNT(b) FROM Booking b WHERE b.ride.id = :rideId AND b.status NOT IN ('CANCELLED', 'REJECTED', 'EXPIRED')")
+    long countActiveForRide(@Param("rideId") Long rideId);
+
+    // Bookings a ride completion acts on: the ones actually riding
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Booking b WHERE b.ride.id = :rideId AND b.status IN ('ACCEPTED', 'PAID')")
+    List<Booking> lockInProgressForRide(@Param("rideId") Long rideId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.cancellationReason = :reason, b.holdExpiresAt = NULL " +
+            "WHERE b.id IN :ids")
+    int cancelAll(@Param("ids") Collection<Long> ids, @Param("reason") String reason);
+
+    // Same outcome as BookingService.completedStatus, applied in one statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = CASE WHEN UPPER(b.paymentMethod) = 'CASH' THEN 'CASH_PAYMENT_PENDING' " +
+            "WHEN b.paymentStatus = 'PAID' THEN 'COMPLETED' ELSE 'PAYMENT_PENDING' END WHERE b.id IN :ids")
+    int completeAll(@Param("ids") Collection<Long> ids);
+
+    // Bookings left half-settled by the old payment flow, walked in id order by StuckBookingRepair. Bookings that
+    // hold no seats (expired holds, cancelled, rejected or waitlisted) stay unpaid rather than being completed
+    String STUCK = "b.status NOT IN ('EXPIRED', 'CANCELLED', 'REJECTED', 'WAITLISTED') AND " +
+            "(b.status IN ('PAYMENT_PENDING', 'CONFIRMED', 'DRIVER_COMPLETED') OR " +
+            "b.paymentStatus IN ('UNPAID', 'PENDING_COLLECTION'))";
+
+    @Query("SELECT b.id FROM Booking b WHERE b.id > :afterId AND " + STUCK + " ORDER BY b.id")
+    List<Long> findStuckIdsAfter(@Param("afterId") Long afterId, Pageable page);
+
+    // The predicate is checked again so a booking settled since the chunk was read is left alone
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'COMPLETED', b.paymentStatus = 'PAID', b.holdExpiresAt = NULL WHERE b.id IN :ids AND " + STUCK)
+    int settleStuck(@Param("ids") Collection<Long> ids);
+
+    // Waiting passengers in queue order, reloaded into Waitlist on startup
+    @Query("SELECT b.id, b.ride.id, b.seats, b.fromStop, b.toStop FROM Booking b WHERE b.status = 'WAITLISTED' ORDER BY b.id")
+    List<Object[]> findWaitlisted();
+
+    // Moves a waitlisted booking to PENDING with a seat hold; 0 means it left the waitlist meanwhile
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'PENDING', b.holdExpiresAt = :holdExpiresAt " +
+            "WHERE b.id = :id AND b.status = 'WAITLISTED'")
+    int promoteWaitlisted(@Param("id") Long id, @Param("holdExpiresAt") Instant holdExpiresAt);
+
+    // Rejects a booking that still has seats; 0 means it was already rejected, cancelled or expired
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'REJECTED', b.holdExpiresAt = NULL " +
+            "WHERE b.id = :id AND b.status IN ('PENDING', 'ACCEPTED')")
+    int rejectLive(@Param("id") Long id);
+
+    // Turns away whoever is still waiting when the ride completes
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = 'CANCELLED', b.cancellationReason = 'Ride completed' " +
+            "WHERE b.ride.id = :rideId AND b.status = 'WAITLISTED'")
+    int closeWaitlist(@Param("rideId") Long rideId);
 }
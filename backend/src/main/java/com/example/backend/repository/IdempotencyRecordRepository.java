@@ -0,0 +1,47 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Range delete on idx_idempotency_expires
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    // An expired response, or a claim whose request never finished, no longer holds the key
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.expiresAt <= :now")
+    int deleteIfExpired(@Param("id") String id, @Param("now") Instant now);
+
+    // Insert-if-absent on the primary key: 1 if this request now holds the key, 0 if another one does
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_records (id, fingerprint, state, status, created_at, expires_at) " +
+            "VALUES (:id, :fingerprint, 'IN_PROGRESS', 0, :now, :expiresAt) ON CONFLICT (id) DO NOTHING",
+            nativeQuery = true)
+    int claim(@Param("id") String id, @Param("fingerprint") String fingerprint, @Param("now") Instant now,
+            @Param("expiresAt") Instant expiresAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.state = 'DONE', r.status = :status, r.body = :body, " +
+            "r.expiresAt = :expiresAt WHERE r.id = :id AND r.state = 'IN_PROGRESS'")
+    int complete(@Param("id") String id, @Param("status") int status, @Param("body") String body,
+            @Param("expiresAt") Instant expiresAt);
+
+    // Gives the key up after a failure, so a retry runs the request again
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.state = 'IN_PROGRESS'")
+    int release(@Param("id") String id);
+}
@@ -0,0 +1,7 @@
+package com.example.backend.repository;
+
+import com.example.backend.model.MaintenanceJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MaintenanceJobRepository extends JpaRepository<MaintenanceJob, String> {
+}
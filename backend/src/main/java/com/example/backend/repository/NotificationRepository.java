@@ -1,7 +1,15 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.Notification;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -11,4 +19,28 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     @org.springframework.data.jpa.repository.Modifying
     @org.springframework.data.jpa.repository.Query("UPDATE Notification n SET n.isRead = true WHERE n.recipientEmail = :email")
     void markAllReadForUser(@org.springframework.web.bind.annotation.RequestParam("email") String email);
+
+    // Outbox rows NotificationDispatcher never got to, oldest first (idx_notification_dispatched)
+    @Query("SELECT n FROM Notification n WHERE n.dispatchedAt IS NULL AND n.createdAt < :before ORDER BY n.id")
+    List<Notification> findUndispatched(@Param("before") Instant before, Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchedAt = :at WHERE n.id IN :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("at") Instant at);
+
+    @Query("SELECT COALESCE(MAX(n.id), 0) FROM Notification n")
+    long findMaxId();
+
+    // Undispatched rows created before the cutoff with ids up to upToId, walked in id order
+    @Query("SELECT n.id FROM Notification n WHERE n.id > :afterId AND n.id <= :upToId AND n.dispatchedAt IS NULL " +
+            "AND n.createdAt < :before ORDER BY n.id")
+    List<Long> findStaleIdsAfter(@Param("afterId") Long afterId, @Param("upToId") Long upToId,
+            @Param("before") Instant before, Pageable page);
+
+    // Retires one chunk of those; a row dispatched since the chunk was read keeps its own timestamp
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notification n SET n.dispatchedAt = n.createdAt WHERE n.id IN :ids AND n.dispatchedAt IS NULL")
+    int markStaleDispatched(@Param("ids") Collection<Long> ids);
 }
@@ -1,19 +1,150 @@
 package com.example.backend.repository;
 
 import com.example.backend.model.Ride;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RideRepository extends JpaRepository<Ride, Long> {
 
     List<Ride> findByDriverEmail(String driverEmail);
 
+    // Row-locked read for writes that must not interleave with seat changes to the same ride, such as the per-leg
+    // seats SeatInventory takes and returns
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Ride r WHERE r.id = :id")
+    Optional<Ride> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT r.tickets FROM Ride r WHERE r.id = :id")
+    Integer findTicketsById(@Param("id") Long id);
+
+    // Seat changes go through the row itself so concurrent bookings cannot lose updates or oversell. The
+    // persistence context is flushed and cleared so rides read afterwards show the new count.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.tickets = r.tickets - :seats WHERE r.id = :id AND r.tickets >= :seats")
+    int reserveSeats(@Param("id") Long id, @Param("seats") int seats);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.tickets = r.tickets + :seats WHERE r.id = :id")
+    int releaseSeats(@Param("id") Long id, @Param("seats") int seats);
+
+    @Query("SELECT r.legSeats FROM Ride r WHERE r.id = :id")
+    String findLegSeatsById(@Param("id") Long id);
+
     @Query("SELECT r FROM Ride r WHERE " +
             "(LOWER(r.fromLocation) LIKE LOWER(CONCAT('%', :from, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :from, '%'))) AND "
             +
             "(LOWER(r.toLocation) LIKE LOWER(CONCAT('%', :to, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :to, '%')))")
     List<Ride> searchRides(@Param("from") String from, @Param("to") String to);
+
+    // Open rides with seats left, newest first. These and the pages below are served by the partial
+    // idx_ride_open_listing index in db/listing-indexes.sql, so the filter and order match its definition.
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findOpenWithSeats();
+
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findOpenPage(Pageable page);
+
+    // Keyset continuation: rides strictly after (createdAt, id) in (createdAt DESC, id DESC) order
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 AND " +
+            "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findOpenPageAfter(@Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 AND " +
+            "(LOWER(r.fromLocation) LIKE LOWER(CONCAT('%', :from, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :from, '%'))) AND "
+            +
+            "(LOWER(r.toLocation) LIKE LOWER(CONCAT('%', :to, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :to, '%'))) "
+            +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> searchOpenPage(@Param("from") String from, @Param("to") String to, Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 AND " +
+            "(LOWER(r.fromLocation) LIKE LOWER(CONCAT('%', :from, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :from, '%'))) AND "
+            +
+            "(LOWER(r.toLocation) LIKE LOWER(CONCAT('%', :to, '%')) OR LOWER(r.route) LIKE LOWER(CONCAT('%', :to, '%'))) AND "
+            +
+            "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> searchOpenPageAfter(@Param("from") String from, @Param("to") String to,
+            @Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable page);
+
+    // Pages over ids already matched by the in-memory search index
+    @Query("SELECT r FROM Ride r WHERE r.id IN :ids AND r.status = 'OPEN' AND r.tickets > 0 " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findOpenPageByIds(@Param("ids") Collection<Long> ids, Pageable page);
+
+    @Query("SELECT r FROM Ride r WHERE r.id IN :ids AND r.status = 'OPEN' AND r.tickets > 0 AND " +
+            "(r.createdAt < :createdAt OR (r.createdAt = :createdAt AND r.id < :id)) " +
+            "ORDER BY r.createdAt DESC, r.id DESC")
+    List<Ride> findOpenPageByIdsAfter(@Param("ids") Collection<Long> ids, @Param("createdAt") Instant createdAt,
+            @Param("id") Long id, Pageable page);
+
+    // The only rides RideRouteIndex can index: open, with a resolved route and located stops
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.routeStops IS NOT NULL AND " +
+            "r.stopCoordinates IS NOT NULL")
+    List<Ride> findOpenWithGeometry();
+
+    // The only rides RideGeoIndex indexes: id and end points of open rides with both ends located
+    @Query("SELECT r.id, r.fromLat, r.fromLon, r.toLat, r.toLon FROM Ride r WHERE r.status = 'OPEN' AND " +
+            "r.fromLat IS NOT NULL AND r.fromLon IS NOT NULL AND r.toLat IS NOT NULL AND r.toLon IS NOT NULL")
+    List<Object[]> findOpenEndPoints();
+
+    // Departure windows and expiry are range scans on idx_ride_status_departure (status, departureAt)
+    @Query("SELECT r FROM Ride r WHERE r.status = 'OPEN' AND r.tickets > 0 AND " +
+            "r.departureAt >= :from AND r.departureAt < :to ORDER BY r.departureAt, r.id")
+    List<Ride> findOpenDepartingBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable page);
+
+    // Status is matched trimmed and case-insensitively, as the analytics count always has
+    @Query("SELECT COUNT(r) FROM Ride r WHERE UPPER(TRIM(r.status)) = 'EXPIRED' OR " +
+            "(UPPER(TRIM(r.status)) = 'OPEN' AND r.departureAt < :before)")
+    long countExpired(@Param("before") Instant before);
+
+    // Rides still waiting for the departure backfill, in id order so unparseable rows are passed over once
+    @Query("SELECT r FROM Ride r WHERE r.departureAt IS NULL AND r.date IS NOT NULL AND r.id > :afterId ORDER BY r.id")
+    List<Ride> findMissingDepartureAfter(@Param("afterId") Long afterId, Pageable page);
+
+    // Writes only departureAt, so seats booked while the backfill runs are never overwritten
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.departureAt = :at WHERE r.id = :id AND r.departureAt IS NULL")
+    int setDepartureAt(@Param("id") Long id, @Param("at") Instant at);
+
+    // Rides still waiting for the coordinate backfill, in id order so unlocatable rows are passed over once
+    @Query("SELECT r FROM Ride r WHERE r.fromLat IS NULL AND r.fromLocation IS NOT NULL AND r.toLocation IS NOT NULL " +
+            "AND r.id > :afterId ORDER BY r.id")
+    List<Ride> findMissingCoordinatesAfter(@Param("afterId") Long afterId, Pageable page);
+
+    // Writes only the coordinate columns, and only while the ride is still unresolved with the same endpoints,
+    // so a concurrent booking or route edit is never overwritten
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Ride r SET r.fromLat = :fromLat, r.fromLon = :fromLon, r.toLat = :toLat, r.toLon = :toLon, " +
+            "r.stopCoordinates = :stopCoordinates WHERE r.id = :id AND r.fromLat IS NULL AND " +
+            "r.fromLocation = :from AND r.toLocation = :to")
+    int setCoordinates(@Param("id") Long id, @Param("from") String from, @Param("to") String to,
+            @Param("fromLat") double fromLat, @Param("fromLon") double fromLon, @Param("toLat") double toLat,
+            @Param("toLon") double toLon, @Param("stopCoordinates") String stopCoordinates);
+
+    // Served by the idx_ride_*_geo GiST indexes in db/geo-indexes.sql; the point expressions must match them
+    @Query(value = "SELECT * FROM rides r WHERE r.status = 'OPEN' AND " +
+            "ST_DWithin(geography(ST_SetSRID(ST_MakePoint(r.from_lon, r.from_lat), 4326)), " +
+            "geography(ST_SetSRID(ST_MakePoint(:fromLon, :fromLat), 4326)), :fromRadius) AND " +
+            "ST_DWithin(geography(ST_SetSRID(ST_MakePoint(r.to_lon, r.to_lat), 4326)), " +
+            "geography(ST_SetSRID(ST_MakePoint(:toLon, :toLat), 4326)), :toRadius)", nativeQuery = true)
+    List<Ride> findNearby(@Param("fromLat") double fromLat, @Param("fromLon") double fromLon,
+            @Param("fromRadius") double fromRadiusMeters, @Param("toLat") double toLat,
+            @Param("toLon") double toLon, @Param("toRadius") double toRadiusMeters);
 }
@@ -1,13 +1,18 @@
 package com.example.backend.service;
 
 import com.example.backend.model.Booking;
+import com.example.backend.model.Notification;
 import com.example.backend.model.Ride;
 import com.example.backend.model.User;
 import com.example.backend.repository.BookingRepository;
 import com.example.backend.repository.RideRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -20,38 +25,110 @@ public class BookingService {
     private final NotificationService notificationService;
     private final EmailService emailService;
     private final UserService userService;
+    private final ApplicationEventPublisher events;
+    private final SeatInventory seatInventory;
+    private final SeatHolds seatHolds;
+    private final Waitlist waitlist;
+    private final TransactionTemplate transactions;
 
     public BookingService(BookingRepository bookingRepository, RideRepository rideRepository,
-            GoogleMapsService googleMapsService, NotificationService notificationService, EmailService emailService, UserService userService) {
+            GoogleMapsService googleMapsService, NotificationService notificationService, EmailService emailService, UserService userService,
+            ApplicationEventPublisher events, SeatInventory seatInventory, SeatHolds seatHolds, Waitlist waitlist,
+            PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
         this.rideRepository = rideRepository;
         this.googleMapsService = googleMapsService;
         this.notificationService = notificationService;
         this.emailService = emailService;
         this.userService = userService;
+        this.events = events;
+        this.seatInventory = seatInventory;
+        this.seatHolds = seatHolds;
+        this.waitlist = waitlist;
+        this.transactions = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
+    /**
+     * Books seats in two phases so no database connection is held while the distance is looked up: the quote
+     * (distance and price, which may call Google or Nominatim) is worked out outside any transaction, then a
+     * short transaction takes the seats and saves the booking. Notifications go out after it commits.
+     */
     public Booking createBooking(Booking b) {
         if (b.getRide() == null || b.getRide().getId() == null) {
             throw new RuntimeException("Ride ID is required");
         }
+        if (b.getSeats() <= 0) {
+            throw new RuntimeException("At least one seat is required");
+        }
         Long rid = b.getRide().getId();
-        Ride r = rideRepository.findById(rid).orElseThrow(() -> new RuntimeException("Ride not found"));
-        if (b.getSeats() > r.getTickets())
-            throw new RuntimeException("Not enough seats available");
+        Ride quoted = rideRepository.findById(rid).orElseThrow(() -> new RuntimeException("Ride not found"));
+        quote(b, quoted);
+
+        Booking saved = transactions.execute(status -> commitBooking(b, rid));
+        seatHolds.track(saved);
+
+        // 5. Notifications
+        sendNotifications(saved, "BOOKING_CREATED");
+
+        return saved;
+    }
+
+    /**
+     * Puts a passenger on a full ride's waitlist. The booking is quoted like any other but saved as WAITLISTED
+     * without taking seats; Waitlist turns it into a PENDING booking once enough seats come free. Returns the
+     * saved booking and its position in the queue.
+     */
+    public java.util.Map<String, Object> joinWaitlist(Booking b) {
+        if (b.getRide() == null || b.getRide().getId() == null) {
+            throw new RuntimeException("Ride ID is required");
+        }
+        if (b.getSeats() <= 0) {
+            throw new RuntimeException("At least one seat is required");
+        }
+        Ride r = rideRepository.findById(b.getRide().getId()).orElseThrow(() -> new RuntimeException("Ride not found"));
+        if (!"OPEN".equals(r.getStatus()))
+            throw new RuntimeException("Ride is not open for booking");
+        String pickup = b.getPickupLocation() != null ? b.getPickupLocation() : r.getFromLocation();
+        String dropoff = b.getDropoffLocation() != null ? b.getDropoffLocation() : r.getToLocation();
+        if (LegSeats.forSegment(r, pickup, dropoff) >= b.getSeats())
+            throw new RuntimeException("Seats are available; book the ride directly");
+        quote(b, r);
+        b.setRide(r);
+        b.setStatus("WAITLISTED");
+        Booking saved = bookingRepository.save(b);
+        int position = waitlist.add(saved);
+        notificationService.createNotification(saved.getUserEmail(), "You are number " + position
+                + " on the waitlist for the ride to " + saved.getDropoffLocation() + ".", "WAITLIST_JOINED");
+        return java.util.Map.of("booking", saved, "position", position);
+    }
 
+    // Quoting phase: locations, distance, price and payment state, with no transaction open
+    private void quote(Booking b, Ride r) {
         // 1. Determine Locations
         String from = b.getPickupLocation() != null ? b.getPickupLocation() : r.getFromLocation();
         String to = b.getDropoffLocation() != null ? b.getDropoffLocation() : r.getToLocation();
         b.setPickupLocation(from);
         b.setDropoffLocation(to);
 
-        // 2. Calculate Distance
-        long distMeters = googleMapsService.getDistanceInMeters(from, to);
+        // 2. Calculate Distance (from the ride's stored route when both points are stops on it)
+        RouteGeometry geometry = RouteGeometry.of(r);
+        Long segment = geometry != null ? geometry.segmentMeters(from, to) : null;
+        long distMeters;
+        if (segment != null)
+            distMeters = segment;
+        else if (geometry == null && b.getUserEmail() != null && b.getUserEmail().equals(r.getDriverEmail()))
+            // The driver's own reservation is made while the route is still being resolved; don't wait on it
+            distMeters = googleMapsService.estimateDistanceInMeters(from, to, r.getRoute());
+        else
+            distMeters = googleMapsService.getDistanceInMeters(from, to);
         double distKm = distMeters / 1000.0;
         b.setDistanceKm(distKm);
 
+        // On a ride counting seats per leg, the legs between pickup and dropoff are the ones taken
+        int[] stops = geometry != null && r.getLegSeats() != null ? geometry.segmentStops(from, to) : null;
+        b.setFromStop(stops == null ? null : stops[0]);
+        b.setToStop(stops == null ? null : stops[1]);
+
         // 3. Calculate Price
         double base = 50.0;
         double rate = 2.0;
@@ -74,16 +151,21 @@ public class BookingService {
             b.setPaymentStatus("UNPAID");
             b.setStatus("PENDING");
         }
+    }
 
-        r.setTickets(r.getTickets() - b.getSeats());
-        rideRepository.save(r);
-        b.setRide(r);
-        Booking saved = bookingRepository.save(b);
-
-        // 5. Notifications
-        sendNotifications(saved, "BOOKING_CREATED");
+    // Commit phase: take the seats and save the booking; runs inside the booking transaction
+    private Booking commitBooking(Booking b, Long rid) {
+        // The ride read after taking the seats already shows them gone
+        if (!seatInventory.reserve(rid, b.getFromStop(), b.getToStop(), b.getSeats()))
+            throw new RuntimeException("Not enough seats available");
+        Ride r = rideRepository.findById(rid).orElseThrow(() -> new RuntimeException("Ride not found"));
 
-        return saved;
+        events.publishEvent(RideChangedEvent.saved(r));
+        b.setRide(r);
+        // A passenger's seats are only held until the booking is acted on; the driver's own reservation is kept
+        if (b.getUserEmail() == null || !b.getUserEmail().equals(r.getDriverEmail()))
+            b.setHoldExpiresAt(seatHolds.expiryFromNow());
+        return bookingRepository.save(b);
     }
 
     private void sendNotifications(Booking b, String type) {
@@ -144,6 +226,25 @@ public class BookingService {
     }
 
     public Booking updateBooking(Booking b) {
+        // Rejecting gives the seats back, once: a repeated reject, or one racing an expiry or cancel, finds no
+        // live booking to update and fails. The seats freed here may promote a waitlisted passenger
+        if ("REJECTED".equals(b.getStatus())) {
+            Ride r = b.getRide();
+            transactions.execute(status -> {
+                if (bookingRepository.rejectLive(b.getId()) == 0)
+                    throw new RuntimeException("Booking can no longer be rejected; it was already rejected, cancelled or has expired");
+                seatInventory.release(r.getId(), b.getFromStop(), b.getToStop(), b.getSeats());
+                rideRepository.findById(r.getId()).ifPresent(fresh -> events.publishEvent(RideChangedEvent.saved(fresh)));
+                return null;
+            });
+            b.setHoldExpiresAt(null);
+        }
+        // Acting on a pending booking (accepting it, confirming its payment) turns its seat hold into a booking
+        if (b.getHoldExpiresAt() != null && !"PENDING".equals(b.getStatus())) {
+            if (bookingRepository.convertHold(b.getId()) == 0)
+                throw new RuntimeException("Booking is no longer pending; its seat hold has expired or been cancelled");
+            b.setHoldExpiresAt(null);
+        }
         Booking saved = bookingRepository.save(b);
         sendNotifications(saved, "BOOKING_UPDATED");
         return saved;
@@ -151,8 +252,12 @@ public class BookingService {
 
     @Transactional
     public Booking cancelBooking(Long bookingId, String reason, String actorEmail) {
-        Booking b = bookingRepository.findById(bookingId)
+        Booking b = bookingRepository.findByIdForUpdate(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
+        // The locking read leaves the passengers lazy; load them while the transaction is open, as the
+        // controller returns the booking after it ends
+        if (b.getPassengers() != null)
+            b.getPassengers().size();
 
         Ride r = b.getRide();
 
@@ -165,16 +270,26 @@ public class BookingService {
         }
 
         // Prevent cancelling if already completed/cancelled
-        if ("CANCELLED".equals(b.getStatus()) || "COMPLETED".equals(b.getStatus())) {
+        if ("CANCELLED".equals(b.getStatus()) || "COMPLETED".equals(b.getStatus()) || "EXPIRED".equals(b.getStatus())
+                || "REJECTED".equals(b.getStatus())) {
             throw new RuntimeException("Cannot cancel a booking that is already " + b.getStatus());
         }
 
+        // A waitlisted booking holds no seats; Waitlist drops it when it reaches the head of the queue
+        if ("WAITLISTED".equals(b.getStatus())) {
+            b.setStatus("CANCELLED");
+            b.setCancellationReason(reason);
+            return bookingRepository.save(b);
+        }
+
         b.setStatus("CANCELLED");
         b.setCancellationReason(reason);
+        b.setHoldExpiresAt(null);
         
-        // RESTORE SEATS
-        r.setTickets(r.getTickets() + b.getSeats());
-        rideRepository.save(r);
+        // RESTORE SEATS (this clears the persistence context, so the ride is read again for its new count)
+        seatInventory.release(r.getId(), b.getFromStop(), b.getToStop(), b.getSeats());
+        r = rideRepository.findById(r.getId()).orElse(r);
+        events.publishEvent(RideChangedEvent.saved(r));
         
         Booking saved = bookingRepository.save(b);
 
@@ -200,6 +315,71 @@ public class BookingService {
         return saved;
     }
 
+    /**
+     * Cancels every live booking on a cancelled ride with one set-based update and tells the passengers in a
+     * single notification batch that goes out after the commit. Returns how many bookings were cancelled.
+     */
+    @Transactional
+    public int cancelAllForRide(Ride ride, String reason) {
+        List<Booking> bookings = bookingRepository.lockActiveForRide(ride.getId());
+        if (bookings.isEmpty())
+            return 0;
+        bookingRepository.cancelAll(ids(bookings), "Driver Cancelled: " + reason);
+
+        List<Notification> batch = new ArrayList<>(bookings.size());
+        for (Booking b : bookings) {
+            if (b.getUserEmail() != null)
+                batch.add(new Notification(b.getUserEmail(), "Ride Cancelled by Driver: " + reason, "RIDE_CANCELLED"));
+        }
+        notificationService.enqueueAll(batch);
+        return bookings.size();
+    }
+
+    /**
+     * Moves the accepted and paid bookings of a completed ride on to payment (or straight to COMPLETED when
+     * already paid) with one update, notifying the passengers who still have to pay in one batch.
+     */
+    @Transactional
+    public int completeAllForRide(Ride ride) {
+        bookingRepository.closeWaitlist(ride.getId());
+        List<Booking> bookings = bookingRepository.lockInProgressForRide(ride.getId());
+        if (bookings.isEmpty())
+            return 0;
+        bookingRepository.completeAll(ids(bookings));
+
+        List<Notification> batch = new ArrayList<>(bookings.size());
+        for (Booking b : bookings) {
+            if (b.getUserEmail() == null)
+                continue;
+            switch (completedStatus(b)) {
+                case "CASH_PAYMENT_PENDING":
+                    batch.add(new Notification(b.getUserEmail(), "Ride Completed! Please pay cash to Driver.", "RIDE_COMPLETED"));
+                    break;
+                case "PAYMENT_PENDING":
+                    batch.add(new Notification(b.getUserEmail(), "Ride Completed! Please proceed to payment.", "RIDE_COMPLETED"));
+                    break;
+                default:
+                    batch.add(new Notification(b.getUserEmail(), "Your ride to " + b.getDropoffLocation() + " is COMPLETED.", "RIDE_COMPLETED"));
+            }
+        }
+        notificationService.enqueueAll(batch);
+        return bookings.size();
+    }
+
+    // Where a riding booking goes when its ride completes (BookingRepository.completeAll applies the same rule)
+    static String completedStatus(Booking b) {
+        if ("CASH".equalsIgnoreCase(b.getPaymentMethod()))
+            return "CASH_PAYMENT_PENDING";
+        return "PAID".equals(b.getPaymentStatus()) ? "COMPLETED" : "PAYMENT_PENDING";
+    }
+
+    private static List<Long> ids(List<Booking> bookings) {
+        List<Long> ids = new ArrayList<>(bookings.size());
+        for (Booking b : bookings)
+            ids.add(b.getId());
+        return ids;
+    }
+
     public List<Booking> findByUserEmail(String email) {
         return bookingRepository.findByUserEmailOrderByCreatedAtDesc(email);
     }
@@ -212,12 +392,20 @@ public class BookingService {
         return bookingRepository.findAll();
     }
 
+    public boolean hasActiveBookings(Long rideId) {
+        return bookingRepository.countActiveForRide(rideId) > 0;
+    }
+
     public List<Booking> findByRideId(Long rideId) {
         return bookingRepository.findByRideId(rideId);
     }
 
+    // Instant quote from the local estimate; createBooking charges on the road distance
     public java.util.Map<String, Object> estimatePrice(String from, String to, int seats) {
-        long distMeters = googleMapsService.getDistanceInMeters(from, to);
+        return buildEstimate(googleMapsService.estimateDistanceInMeters(from, to, null), seats);
+    }
+
+    private java.util.Map<String, Object> buildEstimate(long distMeters, int seats) {
         double distKm = distMeters / 1000.0;
         double base = 50.0;
         double rate = 2.0;
@@ -232,22 +420,4 @@ public class BookingService {
                 "pricePerSeat", Math.round(pricePerSeat * 100.0) / 100.0,
                 "totalPrice", total);
     }
-
-    @Transactional
-    public int fixStuckBookings() {
-        List<Booking> stuck = bookingRepository.findAll().stream()
-            .filter(b -> "PAYMENT_PENDING".equals(b.getStatus()) || 
-                         "UNPAID".equals(b.getPaymentStatus()) ||
-                         "PENDING_COLLECTION".equals(b.getPaymentStatus()) ||
-                         "CONFIRMED".equals(b.getStatus()) ||
-                         "DRIVER_COMPLETED".equals(b.getStatus()))
-            .collect(java.util.stream.Collectors.toList());
-        
-        for (Booking b : stuck) {
-            b.setStatus("COMPLETED");
-            b.setPaymentStatus("PAID");
-            bookingRepository.save(b);
-        }
-        return stuck.size();
-    }
 }
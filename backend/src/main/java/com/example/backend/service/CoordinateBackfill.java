@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One-time job locating the start, end and stops of rides saved before their coordinates were stored, so nearby
+ * search can find them. Walks the rides still missing coordinates in id-ordered chunks and writes only the
+ * coordinate columns of each; rides whose endpoints cannot be located stay null and are skipped. Runs on its own
+ * thread because locating a place may take a geocoding lookup.
+ */
+@Component
+public class CoordinateBackfill {
+
+    private static final Logger logger = Logger.getLogger(CoordinateBackfill.class.getName());
+
+    private final RideRepository repo;
+    private final GoogleMapsService googleMapsService;
+    private final ApplicationEventPublisher events;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "coordinate-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CoordinateBackfill(RideRepository repo, GoogleMapsService googleMapsService,
+            ApplicationEventPublisher events, @Value("${rides.coordinates.backfill:true}") boolean enabled,
+            @Value("${rides.coordinates.backfill-chunk:200}") int chunkSize) {
+        this.repo = repo;
+        this.googleMapsService = googleMapsService;
+        this.events = events;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled)
+            return;
+        executor.execute(() -> {
+            try {
+                run();
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Coordinate backfill stopped; it resumes on the next startup", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the number of rides that were given coordinates.
+     */
+    public int run() {
+        int filled = 0;
+        int skipped = 0;
+        long afterId = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Ride> chunk = repo.findMissingCoordinatesAfter(afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty())
+                break;
+            for (Ride r : chunk) {
+                if (fill(r))
+                    filled++;
+                else
+                    skipped++;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        if (filled > 0 || skipped > 0)
+            logger.info("Backfilled coordinates for " + filled + " rides; " + skipped
+                    + " could not be located or had changed");
+        return filled;
+    }
+
+    private boolean fill(Ride r) {
+        double[] start = googleMapsService.locate(r.getFromLocation());
+        double[] end = googleMapsService.locate(r.getToLocation());
+        if (start == null || end == null)
+            return false;
+
+        // Per-stop coordinates line up with the stored stops, so they are only written for resolved routes
+        String stopCoordinates = r.getStopCoordinates();
+        if (stopCoordinates == null && r.getRouteStops() != null) {
+            List<double[]> located = new ArrayList<>();
+            for (String stop : Arrays.asList(r.getRouteStops().split(RouteGeometry.STOP_SEPARATOR)))
+                located.add(googleMapsService.locate(stop));
+            stopCoordinates = RouteGeometry.formatCoordinates(located);
+        }
+
+        if (repo.setCoordinates(r.getId(), r.getFromLocation(), r.getToLocation(), start[0], start[1], end[0],
+                end[1], stopCoordinates) == 0)
+            return false; // edited since it was read; the edit resolved its own coordinates
+        r.setFromLat(start[0]);
+        r.setFromLon(start[1]);
+        r.setToLat(end[0]);
+        r.setToLon(end[1]);
+        r.setStopCoordinates(stopCoordinates);
+        events.publishEvent(RideChangedEvent.saved(r));
+        return true;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Indexed corridor dataset used to suggest intermediate stops between two cities.
+ *
+ * Place names are interned to integer IDs and each corridor is stored once under the unordered pair of its end
+ * IDs, so a lookup is two hash probes to resolve the places plus one to find the corridor, in either direction.
+ */
+@Component
+public class CorridorIndex {
+
+    private static final Logger logger = Logger.getLogger(CorridorIndex.class.getName());
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+
+    private final Map<String, Integer> placeIds = new HashMap<>();
+    private final Map<Long, Corridor> corridors = new HashMap<>();
+
+    public CorridorIndex(ResourceLoader resourceLoader,
+            @Value("${maps.corridors:classpath:corridors/corridors.txt}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void load() {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            logger.warning("Corridor dataset " + location + " not found");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            load(reader);
+            logger.info("Loaded " + corridors.size() + " corridors from " + location);
+        } catch (IOException e) {
+            logger.severe("Failed to load corridors from " + location + ": " + e.getMessage());
+        }
+    }
+
+    void load(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        Map<String, String> aliases = new HashMap<>();
+        List<String[]> definitions = new ArrayList<>();
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.startsWith("alias ")) {
+                String[] parts = line.substring(6).split("=", 2);
+                if (parts.length != 2)
+                    throw new IOException("Malformed alias on line " + lineNo);
+                aliases.put(normalize(parts[0]), normalize(parts[1]));
+                continue;
+            }
+            int arrow = line.indexOf('>');
+            int colon = line.indexOf(':');
+            if (arrow < 0 || colon < arrow)
+                throw new IOException("Malformed corridor on line " + lineNo + ": " + line);
+            definitions.add(new String[] { line.substring(0, arrow), line.substring(arrow + 1, colon),
+                    line.substring(colon + 1) });
+        }
+
+        for (String[] def : definitions) {
+            int from = intern(normalize(def[0]));
+            int to = intern(normalize(def[1]));
+            List<String> stops = new ArrayList<>();
+            for (String stop : def[2].split(",")) {
+                if (!stop.isBlank())
+                    stops.add(stop.trim());
+            }
+            corridors.put(pairKey(from, to), new Corridor(from, stops));
+        }
+        // Aliases point at the same ID as the place they stand for
+        aliases.forEach((alias, place) -> {
+            Integer id = placeIds.get(place);
+            if (id != null)
+                placeIds.putIfAbsent(alias, id);
+        });
+    }
+
+    /**
+     * Intermediate stops from one address to another in travel order, or null if no corridor connects them.
+     * The returned list is shared and must not be modified.
+     */
+    public List<String> findStops(String from, String to) {
+        int a = resolve(from);
+        if (a < 0)
+            return null;
+        int b = resolve(to);
+        if (b < 0 || a == b)
+            return null;
+        Corridor corridor = corridors.get(pairKey(a, b));
+        if (corridor == null)
+            return null;
+        return corridor.from == a ? corridor.forward : corridor.reverse;
+    }
+
+    public int size() {
+        return corridors.size();
+    }
+
+    // Tries the whole address, then each comma-separated part, then each word
+    private int resolve(String address) {
+        String normalized = normalize(address);
+        Integer id = placeIds.get(normalized);
+        if (id != null)
+            return id;
+        for (String part : normalized.split(",")) {
+            id = placeIds.get(part.trim());
+            if (id != null)
+                return id;
+            for (String word : part.trim().split(" ")) {
+                id = placeIds.get(word);
+                if (id != null)
+                    return id;
+            }
+        }
+        return -1;
+    }
+
+    private int intern(String place) {
+        return placeIds.computeIfAbsent(place, p -> placeIds.size());
+    }
+
+    private static long pairKey(int a, int b) {
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        return ((long) lo << 32) | hi;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Corridor {
+        final int from;
+        final List<String> forward;
+        final List<String> reverse;
+
+        Corridor(int from, List<String> stops) {
+            this.from = from;
+            this.forward = Collections.unmodifiableList(new ArrayList<>(stops));
+            List<String> reversed = new ArrayList<>(stops);
+            Collections.reverse(reversed);
+            this.reverse = Collections.unmodifiableList(reversed);
+        }
+    }
+}
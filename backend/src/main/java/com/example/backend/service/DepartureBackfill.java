@@ -0,0 +1,94 @@
+package com.example.backend.service;
+
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.MaintenanceJobRepository;
+import com.example.backend.repository.RideRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * One-time job filling Ride.departureAt from the legacy date and time strings for rides saved before the column
+ * existed. Walks the rides still missing it in id-ordered chunks and updates only that column of each, so
+ * bookings taken meanwhile are kept; rows whose date cannot be read stay null. The last id walked is saved as a
+ * maintenance job checkpoint after each chunk and the next startup continues after it, so unreadable rows are
+ * passed over once and a finished backfill costs one empty indexed query.
+ */
+@Component
+public class DepartureBackfill {
+
+    static final String JOB = "departure-backfill";
+
+    private static final Logger logger = Logger.getLogger(DepartureBackfill.class.getName());
+
+    private final RideRepository repo;
+    private final MaintenanceJobRepository jobs;
+    private final boolean enabled;
+    private final ZoneId zone;
+    private final int chunkSize;
+
+    public DepartureBackfill(RideRepository repo, MaintenanceJobRepository jobs,
+            @Value("${rides.departure.backfill:true}") boolean enabled,
+            @Value("${rides.departure.zone:Asia/Kolkata}") String zone,
+            @Value("${rides.departure.backfill-chunk:500}") int chunkSize) {
+        this.repo = repo;
+        this.jobs = jobs;
+        this.enabled = enabled;
+        this.zone = ZoneId.of(zone);
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled)
+            run();
+    }
+
+    /**
+     * Returns the number of rides that were given a departure.
+     */
+    public int run() {
+        MaintenanceJob job = jobs.findById(JOB).orElseGet(() -> {
+            MaintenanceJob started = new MaintenanceJob(JOB);
+            started.setStartedAt(Instant.now());
+            return started;
+        });
+        int filled = 0;
+        int unreadable = 0;
+        long afterId = job.getAfterId();
+        while (true) {
+            List<Ride> chunk = repo.findMissingDepartureAfter(afterId, PageRequest.of(0, chunkSize));
+            if (chunk.isEmpty())
+                break;
+            for (Ride r : chunk) {
+                Instant departure = Departures.parse(r.getDate(), r.getTime(), zone);
+                if (departure == null)
+                    unreadable++;
+                else
+                    filled += repo.setDepartureAt(r.getId(), departure);
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+            job.setStatus("RUNNING");
+            job.setAfterId(afterId);
+            job.setProcessed(job.getProcessed() + chunk.size());
+            job.setUpdatedAt(Instant.now());
+            job = jobs.save(job);
+        }
+        if (!"DONE".equals(job.getStatus())) {
+            job.setStatus("DONE");
+            job.setUpdatedAt(Instant.now());
+            jobs.save(job);
+        }
+        if (filled > 0 || unreadable > 0)
+            logger.info("Backfilled departure times for " + filled + " rides; " + unreadable + " had unreadable dates");
+        return filled;
+    }
+}
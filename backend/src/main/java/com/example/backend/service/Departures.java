@@ -0,0 +1,86 @@
+package com.example.backend.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Normalizes the free-form ride date and time strings into a departure instant.
+ *
+ * Dates are accepted in the formats the admin analytics used to try one by one; times as 12-hour ("11:22 AM")
+ * or 24-hour ("19:00", "19:00:00") clock. A missing or unreadable time means the start of the day, so a ride
+ * counts as departed once its date has passed, as before.
+ */
+public final class Departures {
+
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            DateTimeFormatter.ofPattern("yyyy/MM/dd"),
+            DateTimeFormatter.ofPattern("MM/dd/yyyy"),
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+
+    private static final List<DateTimeFormatter> TIME_FORMATS = List.of(
+            caseInsensitive("h:mm a"),
+            caseInsensitive("h:mma"),
+            caseInsensitive("h.mm a"),
+            caseInsensitive("h.mma"),
+            DateTimeFormatter.ofPattern("H:mm:ss"),
+            DateTimeFormatter.ofPattern("H:mm"));
+
+    private Departures() {
+    }
+
+    /**
+     * Departure instant for a ride's date and time in the given zone, or null if the date cannot be read.
+     */
+    public static Instant parse(String date, String time, ZoneId zone) {
+        LocalDate day = parseDate(date);
+        if (day == null)
+            return null;
+        LocalTime clock = parseTime(time);
+        return day.atTime(clock == null ? LocalTime.MIDNIGHT : clock).atZone(zone).toInstant();
+    }
+
+    static LocalDate parseDate(String date) {
+        if (date == null || date.isBlank())
+            return null;
+        String trimmed = date.trim();
+        // Some clients send a full ISO timestamp; the date part is what the ride means
+        if (trimmed.length() > 10 && trimmed.charAt(10) == 'T')
+            trimmed = trimmed.substring(0, 10);
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(trimmed, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    static LocalTime parseTime(String time) {
+        if (time == null || time.isBlank())
+            return null;
+        String trimmed = time.trim();
+        for (DateTimeFormatter format : TIME_FORMATS) {
+            try {
+                return LocalTime.parse(trimmed, format);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        return null;
+    }
+
+    private static DateTimeFormatter caseInsensitive(String pattern) {
+        return new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern(pattern).toFormatter(Locale.ENGLISH);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of resolved route distances.
+ * Entries are evicted least-recently-used once the cache is full, and expire after the configured TTL.
+ */
+@Component
+public class DistanceCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    // Access-ordered so the eldest entry is always the least recently used one
+    private final LinkedHashMap<String, Entry> entries;
+
+    public DistanceCache(@Value("${maps.distance-cache.max-entries:10000}") int maxEntries,
+            @Value("${maps.distance-cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > DistanceCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Builds the cache key for a route. Case, surrounding whitespace and repeated spaces are ignored,
+     * so "Hyderabad " and "hyderabad" share one entry.
+     */
+    public static String key(String from, String to, String waypoints) {
+        return normalize(from) + "|" + normalize(to) + "|" + normalizeWaypoints(waypoints);
+    }
+
+    public static String normalize(String place) {
+        if (place == null)
+            return "";
+        return place.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeWaypoints(String waypoints) {
+        if (waypoints == null || waypoints.isBlank())
+            return "";
+        StringBuilder sb = new StringBuilder();
+        for (String point : waypoints.split(",")) {
+            String p = normalize(point);
+            if (p.isEmpty())
+                continue;
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(p);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the cached distance in meters, or null if the route is unknown or its entry has expired.
+     */
+    public synchronized Long get(String key) {
+        Long meters = lookup(key);
+        if (meters == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return meters;
+    }
+
+    /**
+     * Like {@link #get(String)} but without touching the hit/miss counters, for re-checks after a counted miss.
+     */
+    public synchronized Long peek(String key) {
+        return lookup(key);
+    }
+
+    private Long lookup(String key) {
+        Entry e = entries.get(key);
+        if (e == null)
+            return null;
+        if (e.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            expirations.incrementAndGet();
+            return null;
+        }
+        return e.meters;
+    }
+
+    public synchronized void put(String key, long meters) {
+        entries.put(key, new Entry(meters, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMinutes", ttlMillis / 60_000L);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        return stats;
+    }
+
+    private static final class Entry {
+        final long meters;
+        final long expiresAt;
+
+        Entry(long meters, long expiresAt) {
+            this.meters = meters;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
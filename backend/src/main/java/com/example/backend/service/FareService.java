@@ -1,27 +1,41 @@
 package com.example.backend.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class FareService {
 
     private final GoogleMapsService googleMapsService;
+    private final Executor mapsExecutor;
 
     // Constants (Ideally configurable)
     private static final double BASE_FARE = 50.0;
     private static final double RATE_PER_KM = 2.0;
 
-    public FareService(GoogleMapsService googleMapsService) {
+    public FareService(GoogleMapsService googleMapsService, @Qualifier("mapsExecutor") Executor mapsExecutor) {
         this.googleMapsService = googleMapsService;
+        this.mapsExecutor = mapsExecutor;
     }
 
     public Map<String, Object> calculateFare(String from, String to) {
         return calculateFare(from, to, null);
     }
 
+    // Quotes use the instant estimate; the road distance is looked up when a booking is placed
     public Map<String, Object> calculateFare(String from, String to, String via) {
-        long distMeters = googleMapsService.getDistanceInMeters(from, to, via);
+        return buildFare(from, to, via, googleMapsService.estimateDistanceInMeters(from, to, via));
+    }
+
+    // The suggested route may ask Google Directions, so the quote is built on the maps pool
+    public CompletableFuture<Map<String, Object>> calculateFareAsync(String from, String to, String via) {
+        return CompletableFuture.supplyAsync(() -> calculateFare(from, to, via), mapsExecutor);
+    }
+
+    private Map<String, Object> buildFare(String from, String to, String via, long distMeters) {
         double distKm = distMeters / 1000.0;
 
         // Get suggested route string
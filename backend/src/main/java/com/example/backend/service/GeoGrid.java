@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Mutable uniform-grid spatial index of points keyed by id, for radius queries over live data.
+ *
+ * Points are bucketed into square cells of a fixed size in degrees. A radius query visits only the cells
+ * overlapping the circle's bounding box and measures the points in them exactly, so its cost depends on how
+ * many points sit near the query rather than on the total. Safe for concurrent use.
+ */
+public class GeoGrid {
+
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+
+    private final double cellDeg;
+    private final Map<Long, Set<Long>> cells = new HashMap<>();
+    private final Map<Long, double[]> points = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GeoGrid(double cellKm) {
+        if (cellKm <= 0)
+            throw new IllegalArgumentException("Cell size must be positive");
+        this.cellDeg = cellKm * 1000 / METERS_PER_DEG_LAT;
+    }
+
+    /**
+     * Places an id at the given point, moving it if it was already indexed.
+     */
+    public void put(long id, double lat, double lon) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            points.put(id, new double[] { lat, lon });
+            cells.computeIfAbsent(cellKey(lat, lon), k -> new HashSet<>()).add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids within radiusMeters of the point, mapped to their great-circle distance in meters.
+     */
+    public Map<Long, Double> within(double lat, double lon, double radiusMeters) {
+        Map<Long, Double> result = new HashMap<>();
+        double latSpan = radiusMeters / METERS_PER_DEG_LAT;
+        // Longitude degrees shrink towards the poles; clamp so the span stays finite
+        double lonSpan = radiusMeters / (METERS_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        long rowMin = cell(lat - latSpan);
+        long rowMax = cell(lat + latSpan);
+        long colMin = cell(lon - lonSpan);
+        long colMax = cell(lon + lonSpan);
+        lock.readLock().lock();
+        try {
+            for (long r = rowMin; r <= rowMax; r++) {
+                for (long c = colMin; c <= colMax; c++) {
+                    Set<Long> bucket = cells.get(cellKey(r, c));
+                    if (bucket == null)
+                        continue;
+                    for (Long id : bucket) {
+                        double[] p = points.get(id);
+                        double d = RoadGraph.haversineMeters(lat, lon, p[0], p[1]);
+                        if (d <= radiusMeters)
+                            result.put(id, d);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        double[] old = points.remove(id);
+        if (old == null)
+            return;
+        long key = cellKey(old[0], old[1]);
+        Set<Long> bucket = cells.get(key);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.isEmpty())
+                cells.remove(key);
+        }
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDeg);
+    }
+
+    private long cellKey(double lat, double lon) {
+        return cellKey(cell(lat), cell(lon));
+    }
+
+    // Multiplying by an odd constant keeps keys unique but spreads them, since Long.hashCode alone is row ^ col
+    private static long cellKey(long row, long col) {
+        return ((row << 32) ^ (col & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Persistent geocode cache backing the Nominatim fallback.
+ * Resolved coordinates are kept in memory and appended to a tab-separated file
+ * ("address\tlat\tlon" per line), which is replayed on startup so a restart does not re-geocode known places.
+ */
+@Component
+public class GeocodeStore {
+
+    private static final Logger logger = Logger.getLogger(GeocodeStore.class.getName());
+
+    private final Path file;
+    private final Map<String, double[]> coordinates = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    public GeocodeStore(@Value("${maps.geocode-store.path:data/geocode-cache.tsv}") String path) {
+        this.file = (path == null || path.isBlank()) ? null : Paths.get(path);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (file == null)
+            return;
+        if (Files.exists(file)) {
+            int loaded = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    if (parts.length != 3)
+                        continue; // partially written line from a crash, skip it
+                    try {
+                        coordinates.put(parts[0],
+                                new double[] { Double.parseDouble(parts[1]), Double.parseDouble(parts[2]) });
+                        loaded++;
+                    } catch (NumberFormatException e) {
+                        // skip corrupt line
+                    }
+                }
+            } catch (IOException e) {
+                logger.warning("Could not read geocode store " + file + ": " + e.getMessage());
+            }
+            logger.info("Loaded " + loaded + " geocoded addresses from " + file);
+        }
+    }
+
+    public static String normalize(String address) {
+        if (address == null)
+            return "";
+        return address.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns {lat, lon} for a previously geocoded address, or null if it has never been resolved.
+     */
+    public double[] get(String address) {
+        return coordinates.get(normalize(address));
+    }
+
+    /**
+     * Stores a resolved address in memory and appends it to the backing file.
+     */
+    public void put(String address, double lat, double lon) {
+        String key = normalize(address);
+        if (key.isEmpty() || key.contains("\t"))
+            return;
+        if (coordinates.putIfAbsent(key, new double[] { lat, lon }) == null) {
+            append(key + "\t" + lat + "\t" + lon);
+        }
+    }
+
+    public int size() {
+        return coordinates.size();
+    }
+
+    private synchronized void append(String line) {
+        if (file == null)
+            return;
+        try {
+            if (writer == null) {
+                if (file.getParent() != null)
+                    Files.createDirectories(file.getParent());
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            logger.warning("Could not persist geocode entry: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // ignore on shutdown
+            }
+            writer = null;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.backend.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 @Service
@@ -16,27 +20,321 @@ public class GoogleMapsService {
     @Value("${google.maps.api.key:}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Only consulted when the local road graph cannot answer a query
+    @Value("${maps.routing.osrm-fallback:false}")
+    private boolean osrmFallback;
+
+    // Road distance is roughly this many times the great-circle distance on Indian highways
+    @Value("${maps.estimate.road-factor:1.3}")
+    private double roadFactor = 1.3;
+
+    // Upper bound on a whole lookup; slower lookups fall back to the local estimate
+    @Value("${maps.lookup-timeout-ms:8000}")
+    private long lookupTimeoutMs = 8000;
+
+    private final RestTemplate restTemplate;
+    private final Executor mapsExecutor;
+
+    private final DistanceCache distanceCache;
+    private final GeocodeStore geocodeStore;
+    private final LocalRoutingService localRouting;
+    private final CorridorIndex corridorIndex;
+    private final PlaceDirectory placeDirectory;
+
+    // Concurrent misses for the same route share one remote lookup
+    private final SingleFlight<Long> routeLookups = new SingleFlight<>();
+
+    public GoogleMapsService(DistanceCache distanceCache, GeocodeStore geocodeStore,
+            LocalRoutingService localRouting, CorridorIndex corridorIndex, PlaceDirectory placeDirectory,
+            @Qualifier("mapsRestTemplate") RestTemplate restTemplate,
+            @Qualifier("mapsExecutor") Executor mapsExecutor) {
+        this.distanceCache = distanceCache;
+        this.geocodeStore = geocodeStore;
+        this.localRouting = localRouting;
+        this.corridorIndex = corridorIndex;
+        this.placeDirectory = placeDirectory;
+        this.restTemplate = restTemplate;
+        this.mapsExecutor = mapsExecutor;
+    }
 
     public long getDistanceInMeters(String from, String to) {
         return getDistanceInMeters(from, to, null);
     }
 
     public long getDistanceInMeters(String from, String to, String waypoints) {
+        return getDistanceInMetersAsync(from, to, waypoints).join();
+    }
+
+    public CompletableFuture<Long> getDistanceInMetersAsync(String from, String to) {
+        return getDistanceInMetersAsync(from, to, null);
+    }
+
+    /**
+     * Non-blocking distance lookup. Remote calls run on the maps executor, so callers can compose the result
+     * without holding a servlet thread. Never completes exceptionally: failures and timeouts yield the local estimate.
+     */
+    public CompletableFuture<Long> getDistanceInMetersAsync(String from, String to, String waypoints) {
+        String key = DistanceCache.key(from, to, waypoints);
+        Long cached = distanceCache.get(key);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return routeLookups.executeAsync(key, () -> {
+            // Another caller may have finished the same lookup between our miss and now
+            Long resolved = distanceCache.peek(key);
+            if (resolved != null)
+                return CompletableFuture.completedFuture(resolved);
+            return fetchDistanceAsync(from, to, waypoints)
+                    .exceptionally(e -> {
+                        logger.warning("Distance lookup failed: " + e.getMessage());
+                        return null;
+                    })
+                    .completeOnTimeout(null, lookupTimeoutMs, TimeUnit.MILLISECONDS)
+                    .thenApply(distance -> {
+                        if (distance != null)
+                            distanceCache.put(key, distance);
+                        return distance;
+                    });
+        }).thenApply(distance -> {
+            if (distance == null) {
+                // Remote lookups failed: answer with the estimate, but don't cache it so the next call retries
+                return estimateDistance(from, to, waypoints);
+            }
+            return distance;
+        });
+    }
+
+    /**
+     * Instant distance for quotes: a cached road distance if there is one, otherwise the great-circle estimate.
+     * Never makes a remote call.
+     */
+    public long estimateDistanceInMeters(String from, String to, String waypoints) {
+        Long cached = distanceCache.get(DistanceCache.key(from, to, waypoints));
+        if (cached != null)
+            return cached;
+        return estimateDistance(from, to, waypoints);
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return Map.of(
+                "distance", distanceCache.getStats(),
+                "routeLookups", routeLookups.getStats(),
+                "localRouting", localRouting.getStats(),
+                "geocodeStoreSize", geocodeStore.size());
+    }
+
+    /**
+     * Resolves many origin/destination pairs in as few remote round trips as the quotas allow.
+     * Cached pairs are answered locally; the rest go to Google Distance Matrix in tiles, then to the local road
+     * graph, then to a single OSRM /table call per chunk. Pairs nothing can resolve get the local estimate.
+     */
+    public Map<RoutePair, Long> getDistancesInMeters(java.util.Collection<RoutePair> pairs) {
+        Map<RoutePair, Long> result = new java.util.LinkedHashMap<>();
+        java.util.List<RoutePair> missing = new java.util.ArrayList<>();
+        for (RoutePair pair : new java.util.LinkedHashSet<>(pairs)) {
+            Long cached = distanceCache.get(DistanceCache.key(pair.from(), pair.to(), null));
+            if (cached != null)
+                result.put(pair, cached);
+            else
+                missing.add(pair);
+        }
+
+        if (!missing.isEmpty() && apiKey != null && !apiKey.isEmpty())
+            resolveBatch(missing, result, getGoogleMatrix(missing));
+        if (!missing.isEmpty() && localRouting.isEnabled()) {
+            // Geocode the distinct endpoints in parallel; the routing below then reads them from the geocode store
+            java.util.Set<String> endpoints = new java.util.LinkedHashSet<>();
+            for (RoutePair pair : missing) {
+                endpoints.add(pair.from());
+                endpoints.add(pair.to());
+            }
+            CompletableFuture.allOf(endpoints.stream()
+                    .map(address -> geocodeAsync(address).exceptionally(e -> null)
+                            .completeOnTimeout(null, lookupTimeoutMs, TimeUnit.MILLISECONDS))
+                    .toArray(CompletableFuture[]::new)).join();
+            Map<RoutePair, Long> local = new java.util.HashMap<>();
+            for (RoutePair pair : missing) {
+                Long d = localRouting.distanceInMeters(pair.from(), pair.to(), this::geocode);
+                if (d != null)
+                    local.put(pair, d);
+            }
+            resolveBatch(missing, result, local);
+        }
+        if (!missing.isEmpty() && (osrmFallback || !localRouting.isEnabled()))
+            resolveBatch(missing, result, getOsrmTable(missing));
+
+        for (RoutePair pair : missing)
+            result.put(pair, estimateDistance(pair.from(), pair.to(), null));
+        return result;
+    }
+
+    /**
+     * Road distances along a ride's stops, accumulated per stop, with a polyline through the stops whose
+     * coordinates are known. All legs are resolved in one batch.
+     */
+    public RouteGeometry resolveRouteGeometry(java.util.List<String> stops) {
+        java.util.List<RoutePair> legs = new java.util.ArrayList<>();
+        for (int i = 0; i + 1 < stops.size(); i++)
+            legs.add(new RoutePair(stops.get(i), stops.get(i + 1)));
+        Map<RoutePair, Long> distances = getDistancesInMeters(legs);
+
+        long[] offsets = new long[stops.size()];
+        for (int i = 0; i < legs.size(); i++)
+            offsets[i + 1] = offsets[i] + distances.get(legs.get(i));
+
+        // Stops unknown locally are geocoded in parallel so the ride can be found by spatial search
+        java.util.List<CompletableFuture<double[]>> lookups = new java.util.ArrayList<>();
+        for (String stop : stops)
+            lookups.add(locateAsync(stop));
+        java.util.List<double[]> coordinates = new java.util.ArrayList<>();
+        java.util.List<double[]> points = new java.util.ArrayList<>();
+        for (CompletableFuture<double[]> lookup : lookups) {
+            double[] coord = lookup.join();
+            coordinates.add(coord);
+            if (coord != null)
+                points.add(coord);
+        }
+        String polyline = points.size() >= 2 ? RouteGeometry.encodePolyline(points) : null;
+        return new RouteGeometry(stops, offsets, coordinates, polyline);
+    }
+
+    /**
+     * Coordinates ({lat, lon}) of an address: bundled places, earlier geocodes and road graph nodes first, then
+     * a Nominatim lookup bounded by the lookup timeout. Null if the address cannot be located.
+     */
+    public double[] locate(String address) {
+        return locateAsync(address).join();
+    }
+
+    private CompletableFuture<double[]> locateAsync(String address) {
+        if (address == null || address.isBlank())
+            return CompletableFuture.completedFuture(null);
+        double[] known = knownCoordinates(address);
+        if (known != null)
+            return CompletableFuture.completedFuture(known);
+        return CompletableFuture.supplyAsync(() -> geocode(address), mapsExecutor)
+                .exceptionally(e -> null)
+                .completeOnTimeout(null, lookupTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void resolveBatch(java.util.List<RoutePair> missing, Map<RoutePair, Long> result,
+            Map<RoutePair, Long> resolved) {
+        java.util.Iterator<RoutePair> it = missing.iterator();
+        while (it.hasNext()) {
+            RoutePair pair = it.next();
+            Long d = resolved.get(pair);
+            if (d != null) {
+                distanceCache.put(DistanceCache.key(pair.from(), pair.to(), null), d);
+                result.put(pair, d);
+                it.remove();
+            }
+        }
+    }
+
+    private CompletableFuture<Long> fetchDistanceAsync(String from, String to, String waypoints) {
+        CompletableFuture<Long> google = CompletableFuture.completedFuture(null);
         if (apiKey != null && !apiKey.isEmpty()) {
-            try {
-                // If using Google Maps, one would pass &waypoints=opt1|opt2
-                // For this implementation, we will stick to simple A -> B distance summation if
-                // waypoints exist
-                // to avoid complex API parameter construction without testing it.
-                // However, a real implementation would append waypoints to the API call.
-                return getGoogleDistance(from, to);
-            } catch (Exception e) {
-                logger.severe("Google Maps Error: " + e.getMessage());
+            // If using Google Maps, one would pass &waypoints=opt1|opt2
+            // For this implementation, we will stick to simple A -> B distance summation if
+            // waypoints exist
+            // to avoid complex API parameter construction without testing it.
+            // However, a real implementation would append waypoints to the API call.
+            google = CompletableFuture.supplyAsync(() -> getGoogleDistance(from, to), mapsExecutor)
+                    .exceptionally(e -> {
+                        logger.severe("Google Maps Error: " + e.getMessage());
+                        return null;
+                    });
+        }
+
+        return google.thenCompose(distance -> {
+            if (distance != null)
+                return CompletableFuture.completedFuture(distance);
+            // Geocode both endpoints in parallel; the fallback below then reads them from the geocode store
+            return CompletableFuture.allOf(geocodeAsync(from), geocodeAsync(to))
+                    .thenApplyAsync(ignored -> fallbackDistance(from, to, waypoints), mapsExecutor);
+        });
+    }
+
+    private Long fallbackDistance(String from, String to, String waypoints) {
+        if (localRouting.isEnabled()) {
+            Long local = getLocalDistance(from, to, waypoints);
+            if (local != null || !osrmFallback)
+                return local;
+        }
+
+        Long totalDistance = getOpenMapDistance(from, to);
+        if (totalDistance == null)
+            return null;
+        return totalDistance + waypointAllowance(waypoints);
+    }
+
+    private CompletableFuture<double[]> geocodeAsync(String address) {
+        double[] known = geocodeStore.get(address);
+        if (known != null)
+            return CompletableFuture.completedFuture(known);
+        RoadGraph graph = localRouting.getGraph();
+        if (graph != null && graph.findByName(address) >= 0)
+            return CompletableFuture.completedFuture(null); // routed by name, no coordinates needed
+        return CompletableFuture.supplyAsync(() -> geocode(address), mapsExecutor);
+    }
+
+    // Embedded road graph: routes through each waypoint in order instead of adding a flat allowance
+    private Long getLocalDistance(String from, String to, String waypoints) {
+        java.util.List<String> points = routePoints(from, to, waypoints);
+        long total = 0;
+        for (int i = 0; i + 1 < points.size(); i++) {
+            Long leg = localRouting.distanceInMeters(points.get(i), points.get(i + 1), this::geocode);
+            if (leg == null)
+                return null;
+            total += leg;
+        }
+        return total;
+    }
+
+    private static java.util.List<String> routePoints(String from, String to, String waypoints) {
+        java.util.List<String> points = new java.util.ArrayList<>();
+        points.add(from);
+        if (waypoints != null && !waypoints.isEmpty()) {
+            for (String p : waypoints.split(",")) {
+                if (!p.isBlank())
+                    points.add(p.trim());
             }
         }
+        points.add(to);
+        return points;
+    }
+
+    // Great-circle legs through each waypoint, scaled to road distance; the mock only when a place is unknown
+    private long estimateDistance(String from, String to, String waypoints) {
+        java.util.List<String> points = routePoints(from, to, waypoints);
+        double meters = 0;
+        double[] prev = null;
+        for (String point : points) {
+            double[] next = knownCoordinates(point);
+            if (next == null)
+                return mockDistance(from, to) + waypointAllowance(waypoints);
+            if (prev != null)
+                meters += RoadGraph.haversineMeters(prev[0], prev[1], next[0], next[1]);
+            prev = next;
+        }
+        return Math.round(meters * roadFactor);
+    }
+
+    // Coordinates available without a remote call: bundled places, earlier geocodes, then road graph nodes
+    private double[] knownCoordinates(String address) {
+        double[] coord = placeDirectory.find(address);
+        if (coord == null)
+            coord = geocodeStore.get(address);
+        RoadGraph graph = localRouting.getGraph();
+        if (coord == null && graph != null) {
+            int node = graph.findByName(address);
+            if (node >= 0)
+                coord = graph.coordinates(node);
+        }
+        return coord;
+    }
 
-        long totalDistance = getOpenMapDistance(from, to);
+    private long waypointAllowance(String waypoints) {
         // Fallback Logic: If waypoints are present, we might want to increase distance
         if (waypoints != null && !waypoints.isEmpty()) {
             // Heuristic: Add 10% distance per waypoint for simulation if real routing isn't
@@ -44,9 +342,9 @@ public class GoogleMapsService {
             // In a real scenario, we would call OSRM with waypoints.
             // For simplicity in this demo environment:
             String[] points = waypoints.split(",");
-            totalDistance += (points.length * 5000); // +5km per waypoint mock
+            return points.length * 5000L; // +5km per waypoint mock
         }
-        return totalDistance;
+        return 0;
     }
 
     public String getSuggestedRoute(String from, String to) {
@@ -60,74 +358,9 @@ public class GoogleMapsService {
         java.util.List<String> route = new java.util.ArrayList<>();
         route.add(from);
 
-        String f = from.toLowerCase();
-        String t = to.toLowerCase();
-
-        // 1. CHENNAI <-> HYDERABAD
-        if ((f.contains("chennai") && t.contains("hyderabad")) || (f.contains("hyderabad") && t.contains("chennai"))) {
-            route.add("Nellore");
-            route.add("Ongole");
-            route.add("Vijayawada");
-            route.add("Suryapet");
-        }
-        // 2. BANGALORE <-> CHENNAI
-        else if ((f.contains("bangalore") && t.contains("chennai"))
-                || (f.contains("chennai") && t.contains("bangalore"))) {
-            route.add("Hosur");
-            route.add("Krishnagiri");
-            route.add("Vellore");
-            route.add("Kanchipuram");
-        }
-        // 3. HYDERABAD <-> VIZAG (Most Common)
-        else if ((f.contains("hyderabad") && t.contains("vizag")) || (f.contains("vizag") && t.contains("hyderabad"))) {
-            if (f.contains("hyderabad")) {
-                route.add("Suryapet");
-                route.add("Vijayawada");
-                route.add("Eluru");
-                route.add("Rajahmundry");
-                route.add("Tuni");
-                route.add("Anakapalle");
-            } else {
-                route.add("Anakapalle");
-                route.add("Tuni");
-                route.add("Rajahmundry");
-                route.add("Eluru");
-                route.add("Vijayawada");
-                route.add("Suryapet");
-            }
-        }
-        // 4. VIZAG <-> VIZIANAGRAM (Granular Request)
-        else if ((f.contains("vizag") || f.contains("visakhapatnam"))
-                && (t.contains("vizianag") || t.contains("vizianagram"))) {
-            route.add("Maddilapalem");
-            route.add("Yendada");
-            route.add("Kommadi"); // Major junction
-            route.add("Anandhapuram"); // Junction
-            route.add("Thagarapuvalasa"); // Bridge
-        } else if ((t.contains("vizag") || t.contains("visakhapatnam"))
-                && (f.contains("vizianag") || f.contains("vizianagram"))) {
-            route.add("Thagarapuvalasa");
-            route.add("Anandhapuram");
-            route.add("Kommadi");
-            route.add("Yendada");
-            route.add("Maddilapalem");
-        }
-        // 5. VIZAG <-> ARAKU (Tourist)
-        else if ((f.contains("vizag") && t.contains("araku")) || (f.contains("araku") && t.contains("vizag"))) {
-            route.add("Pendurthi");
-            route.add("Kothavalasa");
-            route.add("Srungavarapukota");
-            route.add("Tyda");
-            route.add("Borra Caves");
-        }
-        // 6. VIZAG <-> SRIKAKULAM
-        else if ((f.contains("vizag") && t.contains("srikakulam"))
-                || (f.contains("srikakulam") && t.contains("vizag"))) {
-            route.add("Madhurawada");
-            route.add("Tagarapuvalasa");
-            route.add("Bhogapuram"); // Airport area
-            route.add("Pusapatirega");
-            route.add("Etcherla");
+        java.util.List<String> stops = corridorIndex.findStops(from, to);
+        if (stops != null) {
+            route.addAll(stops);
         }
         // REAL API ATTEMPT
         else if (apiKey != null && !apiKey.isEmpty()) {
@@ -179,13 +412,144 @@ public class GoogleMapsService {
         throw new RuntimeException("No distance found in Google Response");
     }
 
-    // OpenStreetMap Fallback (Nominatim + OSRM)
-    private long getOpenMapDistance(String from, String to) {
+    // Distance Matrix quotas: at most 25 origins, 25 destinations and 100 elements per request
+    private static final int MATRIX_MAX_SIDE = 25;
+    private static final int MATRIX_MAX_ELEMENTS = 100;
+    // The public OSRM server rejects /table requests with more than 100 coordinates
+    private static final int OSRM_TABLE_MAX_COORDS = 100;
+
+    private Map<RoutePair, Long> getGoogleMatrix(java.util.List<RoutePair> pairs) {
+        java.util.List<String> origins = pairs.stream().map(RoutePair::from).distinct().toList();
+        java.util.List<String> destinations = pairs.stream().map(RoutePair::to).distinct().toList();
+        java.util.Set<RoutePair> wanted = new java.util.HashSet<>(pairs);
+
+        // Tile the origin x destination grid, shaping tiles to the quota, and skip tiles nobody asked for
+        int cols = Math.min(MATRIX_MAX_SIDE, destinations.size());
+        int rows = Math.max(1, Math.min(MATRIX_MAX_SIDE, MATRIX_MAX_ELEMENTS / cols));
+        java.util.List<CompletableFuture<Map<RoutePair, Long>>> tiles = new java.util.ArrayList<>();
+        for (int r = 0; r < origins.size(); r += rows) {
+            java.util.List<String> o = origins.subList(r, Math.min(r + rows, origins.size()));
+            for (int c = 0; c < destinations.size(); c += cols) {
+                java.util.List<String> d = destinations.subList(c, Math.min(c + cols, destinations.size()));
+                boolean needed = o.stream().anyMatch(from -> d.stream().anyMatch(to -> wanted.contains(new RoutePair(from, to))));
+                if (needed)
+                    tiles.add(CompletableFuture.supplyAsync(() -> getGoogleMatrixTile(o, d), mapsExecutor));
+            }
+        }
+
+        Map<RoutePair, Long> result = new java.util.HashMap<>();
+        for (CompletableFuture<Map<RoutePair, Long>> tile : tiles) {
+            try {
+                result.putAll(tile.join());
+            } catch (Exception e) {
+                logger.severe("Google Distance Matrix Error: " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private Map<RoutePair, Long> getGoogleMatrixTile(java.util.List<String> origins, java.util.List<String> destinations) {
+        String url = UriComponentsBuilder.fromHttpUrl("https://maps.googleapis.com/maps/api/distancematrix/json")
+                .queryParam("origins", String.join("|", origins))
+                .queryParam("destinations", String.join("|", destinations))
+                .queryParam("key", apiKey)
+                .toUriString();
+        Map<?, ?> response = restTemplate.getForObject(url, Map.class);
+        Map<RoutePair, Long> result = new java.util.HashMap<>();
+        if (response == null)
+            return result;
+        java.util.List<?> rows = (java.util.List<?>) response.get("rows");
+        for (int i = 0; rows != null && i < rows.size(); i++) {
+            java.util.List<?> elements = (java.util.List<?>) ((Map<?, ?>) rows.get(i)).get("elements");
+            for (int j = 0; elements != null && j < elements.size(); j++) {
+                Map<?, ?> distanceMap = (Map<?, ?>) ((Map<?, ?>) elements.get(j)).get("distance");
+                if (distanceMap != null)
+                    result.put(new RoutePair(origins.get(i), destinations.get(j)),
+                            ((Number) distanceMap.get("value")).longValue());
+            }
+        }
+        return result;
+    }
+
+    // OSRM /table: one request returns the full source x destination distance matrix
+    private Map<RoutePair, Long> getOsrmTable(java.util.List<RoutePair> pairs) {
+        java.util.List<String> origins = pairs.stream().map(RoutePair::from).distinct().toList();
+        java.util.List<String> destinations = pairs.stream().map(RoutePair::to).distinct().toList();
+
+        // Geocode every distinct place in parallel before building the tables
+        Map<String, CompletableFuture<double[]>> lookups = new java.util.LinkedHashMap<>();
+        for (RoutePair pair : pairs) {
+            lookups.computeIfAbsent(pair.from(), p -> CompletableFuture.supplyAsync(() -> geocode(p), mapsExecutor));
+            lookups.computeIfAbsent(pair.to(), p -> CompletableFuture.supplyAsync(() -> geocode(p), mapsExecutor));
+        }
+        Map<String, double[]> coords = new java.util.HashMap<>();
+        lookups.forEach((place, f) -> {
+            double[] c = f.join();
+            if (c != null)
+                coords.put(place, c);
+        });
+        java.util.List<String> o = origins.stream().filter(coords::containsKey).toList();
+        java.util.List<String> d = destinations.stream().filter(coords::containsKey).toList();
+
+        Map<RoutePair, Long> result = new java.util.HashMap<>();
+        int side = OSRM_TABLE_MAX_COORDS / 2;
+        for (int r = 0; r < o.size(); r += side) {
+            for (int c = 0; c < d.size(); c += side) {
+                result.putAll(getOsrmTableTile(o.subList(r, Math.min(r + side, o.size())),
+                        d.subList(c, Math.min(c + side, d.size())), coords));
+            }
+        }
+        return result;
+    }
+
+    private Map<RoutePair, Long> getOsrmTableTile(java.util.List<String> origins, java.util.List<String> destinations,
+            Map<String, double[]> coords) {
+        Map<RoutePair, Long> result = new java.util.HashMap<>();
+        try {
+            StringBuilder points = new StringBuilder();
+            StringBuilder sources = new StringBuilder();
+            StringBuilder targets = new StringBuilder();
+            int index = 0;
+            for (String place : origins) {
+                double[] c = coords.get(place);
+                points.append(points.length() > 0 ? ";" : "").append(c[1]).append(',').append(c[0]);
+                sources.append(sources.length() > 0 ? ";" : "").append(index++);
+            }
+            for (String place : destinations) {
+                double[] c = coords.get(place);
+                points.append(';').append(c[1]).append(',').append(c[0]);
+                targets.append(targets.length() > 0 ? ";" : "").append(index++);
+            }
+            String url = "http://router.project-osrm.org/table/v1/driving/" + points
+                    + "?sources=" + sources + "&destinations=" + targets + "&annotations=distance";
+
+            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
+            headers.set("User-Agent", "RideshareApp/1.0");
+            org.springframework.http.ResponseEntity<Map> resp = restTemplate.exchange(url,
+                    org.springframework.http.HttpMethod.GET, new org.springframework.http.HttpEntity<>(headers), Map.class);
+            Map<?, ?> body = resp.getBody();
+            java.util.List<?> rows = body == null ? null : (java.util.List<?>) body.get("distances");
+            for (int i = 0; rows != null && i < rows.size(); i++) {
+                java.util.List<?> row = (java.util.List<?>) rows.get(i);
+                for (int j = 0; row != null && j < row.size(); j++) {
+                    if (row.get(j) != null)
+                        result.put(new RoutePair(origins.get(i), destinations.get(j)), ((Number) row.get(j)).longValue());
+                }
+            }
+        } catch (Exception e) {
+            logger.warning("OSRM table Error: " + e.getMessage());
+        }
+        return result;
+    }
+
+    // OpenStreetMap Fallback (Nominatim + OSRM). Returns null when no real distance could be resolved.
+    // Both endpoints are normally geocoded in parallel beforehand (fetchDistanceAsync), so these are store hits
+    private Long getOpenMapDistance(String from, String to) {
         try {
             double[] fromCoord = geocode(from);
             double[] toCoord = geocode(to);
             if (fromCoord == null || toCoord == null)
-                return mockDistance(from, to);
+                return null;
 
             String url = "http://router.project-osrm.org/route/v1/driving/"
                     + fromCoord[1] + "," + fromCoord[0] + ";" + toCoord[1] + "," + toCoord[0]
@@ -211,10 +575,13 @@ public class GoogleMapsService {
         } catch (Exception e) {
             logger.warning("OSRM Error: " + e.getMessage());
         }
-        return mockDistance(from, to);
+        return null;
     }
 
     private double[] geocode(String address) {
+        double[] known = geocodeStore.get(address);
+        if (known != null)
+            return known;
         try {
             String url = UriComponentsBuilder.fromHttpUrl("https://nominatim.openstreetmap.org/search")
                     .queryParam("q", address)
@@ -235,6 +602,7 @@ public class GoogleMapsService {
                 Map<?, ?> item = (Map<?, ?>) list.get(0);
                 double lat = Double.parseDouble(item.get("lat").toString());
                 double lon = Double.parseDouble(item.get("lon").toString());
+                geocodeStore.put(address, lat, lon);
                 return new double[] { lat, lon };
             }
         } catch (Exception e) {
@@ -0,0 +1,305 @@
+package com.example.backend.service;
+
+import com.example.backend.model.IdempotencyRecord;
+import com.example.backend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays the stored response of a request retried with the same Idempotency-Key.
+ *
+ * Keys are scoped to the endpoint and caller. Before the action runs, the key is claimed with an IN_PROGRESS row
+ * in the idempotency_records table (an insert that does nothing if the row exists), and the row is filled in with
+ * the response when the request completes, so a retry reaching another instance, or arriving after a restart, is
+ * still replayed. Recent responses are also kept in a bounded in-memory map that is consulted first. Responses
+ * expire after the TTL; a claim expires after the lease, in case its instance died mid-request.
+ *
+ * A duplicate that arrives while the first request is still running waits for it and gets its response, so
+ * the action never runs twice at once: on the same instance through the in-flight future, on another by polling
+ * the claimed row. If the first attempt throws or answers with a 5xx (which the client may retry), its claim is
+ * given up and a waiting duplicate runs the action itself.
+ * Reusing a key with a different request body is refused; bodies are compared by the SHA-256 of their JSON with
+ * map keys sorted, so the same request sent with its fields in another order still matches.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Logger logger = Logger.getLogger(IdempotencyStore.class.getName());
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000L;
+    private static final long POLL_MILLIS = 100L;
+
+    private final IdempotencyRecordRepository repo;
+    private final ObjectMapper mapper;
+    private final ObjectMapper canonical;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long waitMillis;
+    private final long leaseMillis;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+    // Access-ordered, least recently used dropped first; every entry is also in the table
+    private final LinkedHashMap<String, Stored> entries;
+    private volatile long lastPurge;
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public IdempotencyStore(IdempotencyRecordRepository repo, ObjectMapper mapper,
+            @Value("${rides.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${rides.idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${rides.idempotency.wait-seconds:30}") long waitSeconds,
+            @Value("${rides.idempotency.lease-seconds:300}") long leaseSeconds) {
+        this.repo = repo;
+        this.mapper = mapper;
+        this.canonical = mapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlHours * 3_600_000L;
+        this.waitMillis = waitSeconds * 1000L;
+        this.leaseMillis = leaseSeconds * 1000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > IdempotencyStore.this.maxEntries;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeExpired() {
+        lastPurge = System.currentTimeMillis();
+        try {
+            int removed = repo.deleteExpired(Instant.now());
+            if (removed > 0)
+                logger.info("Removed " + removed + " expired idempotency records");
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not purge idempotency records", e);
+        }
+    }
+
+    /**
+     * Runs the action once per (endpoint, caller, key) and replays its response for repeats. Without a key the
+     * action simply runs. The request body is fingerprinted to catch a key reused for a different request.
+     */
+    public ResponseEntity<?> execute(String endpoint, String caller, String key, Object request,
+            Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank())
+            return action.get();
+        if (key.length() > MAX_KEY_LENGTH)
+            return ResponseEntity.badRequest().body(Map.of("error", HEADER + " is too long"));
+        String id = endpoint + "|" + caller + "|" + key;
+        String fingerprint = fingerprint(request);
+        while (true) {
+            Stored done = lookup(id);
+            if (done != null)
+                return replay(done, fingerprint);
+
+            CompletableFuture<Stored> mine = new CompletableFuture<>();
+            CompletableFuture<Stored> running = inFlight.putIfAbsent(id, mine);
+            if (running == null)
+                return run(id, fingerprint, mine, action);
+
+            try {
+                Stored first = running.get(waitMillis, TimeUnit.MILLISECONDS);
+                joined.incrementAndGet();
+                return replay(first, fingerprint);
+            } catch (ExecutionException e) {
+                // The first attempt failed without a response; run it here instead
+            } catch (TimeoutException e) {
+                return stillInProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return interrupted();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("inFlight", inFlight.size());
+        stats.put("executed", executed.get());
+        stats.put("replayed", replayed.get());
+        stats.put("joined", joined.get());
+        stats.put("persisted", persisted.get());
+        stats.put("conflicts", conflicts.get());
+        return stats;
+    }
+
+    private ResponseEntity<?> run(String id, String fingerprint, CompletableFuture<Stored> mine,
+            Supplier<ResponseEntity<?>> action) {
+        boolean claimed = false;
+        try {
+            long deadline = System.currentTimeMillis() + waitMillis;
+            while (!(claimed = claim(id, fingerprint))) {
+                // Held by the same key on another instance (or it finished just now): wait for its response
+                Stored done = lookup(id);
+                if (done != null) {
+                    mine.complete(done);
+                    joined.incrementAndGet();
+                    return replay(done, fingerprint);
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    mine.completeExceptionally(new TimeoutException(id));
+                    return stillInProgress();
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            ResponseEntity<?> response = action.get();
+            executed.incrementAndGet();
+            Stored stored = new Stored(response.getStatusCode().value(), response.getBody(), fingerprint,
+                    System.currentTimeMillis() + ttlMillis);
+            if (!response.getStatusCode().is5xxServerError()) {
+                store(id, stored);
+                claimed = false;
+            }
+            mine.complete(stored);
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mine.completeExceptionally(e);
+            return interrupted();
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (claimed)
+                release(id);
+            inFlight.remove(id, mine);
+        }
+    }
+
+    // True if this request now holds the key; clears an expired response or abandoned claim first
+    private boolean claim(String id, String fingerprint) {
+        Instant now = Instant.now();
+        repo.deleteIfExpired(id, now);
+        return repo.claim(id, fingerprint, now, now.plusMillis(leaseMillis)) == 1;
+    }
+
+    private void release(String id) {
+        try {
+            repo.release(id);
+        } catch (RuntimeException e) {
+            // The claim lapses after the lease instead
+            logger.log(Level.WARNING, "Could not release idempotency key " + id, e);
+        }
+    }
+
+    private static ResponseEntity<?> stillInProgress() {
+        return ResponseEntity.status(409)
+                .body(Map.of("error", "A request with this " + HEADER + " is still in progress"));
+    }
+
+    private static ResponseEntity<?> interrupted() {
+        return ResponseEntity.status(503).body(Map.of("error", "Interrupted"));
+    }
+
+    private ResponseEntity<?> replay(Stored stored, String fingerprint) {
+        if (!stored.fingerprint.equals(fingerprint)) {
+            conflicts.incrementAndGet();
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("error", HEADER + " was already used for a different request"));
+        }
+        replayed.incrementAndGet();
+        return ResponseEntity.status(stored.status).header("Idempotent-Replayed", "true").body(stored.body);
+    }
+
+    private Stored lookup(String id) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Stored s = entries.get(id);
+            if (s != null) {
+                if (s.expiresAt > now)
+                    return s;
+                entries.remove(id);
+            }
+        }
+        Optional<IdempotencyRecord> record = repo.findById(id);
+        if (record.isEmpty() || !record.get().isDone() || record.get().getExpiresAt().toEpochMilli() <= now)
+            return null;
+        IdempotencyRecord r = record.get();
+        return new Stored(r.getStatus(), readBody(r.getBody()), r.getFingerprint(), r.getExpiresAt().toEpochMilli());
+    }
+
+    private void store(String id, Stored stored) {
+        synchronized (this) {
+            entries.put(id, stored);
+        }
+        try {
+            repo.complete(id, stored.status, mapper.writeValueAsString(stored.body),
+                    Instant.ofEpochMilli(stored.expiresAt));
+            persisted.incrementAndGet();
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Still replayed from memory here; elsewhere the claim holds the key until its lease runs out
+            logger.log(Level.WARNING, "Could not store idempotent response for " + id, e);
+        }
+        if (System.currentTimeMillis() - lastPurge > PURGE_INTERVAL_MILLIS)
+            purgeExpired();
+    }
+
+    // SHA-256 of the request as JSON with map keys sorted, hex encoded
+    private String fingerprint(Object request) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(canonical.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Could not fingerprint the request", e);
+        }
+    }
+
+    // Stored bodies come back as JSON trees, which serialize to the same response
+    private Object readBody(String json) {
+        if (json == null)
+            return null;
+        try {
+            return mapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static final class Stored {
+        final int status;
+        final Object body;
+        final String fingerprint;
+        final long expiresAt;
+
+        Stored(int status, Object body, String fingerprint, long expiresAt) {
+            this.status = status;
+            this.body = body;
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+/**
+ * Free seats on each leg (stop to stop) of a ride's route, in a segment tree: the fewest free seats over a
+ * range of legs and taking or returning seats over a range are both O(log n).
+ *
+ * A passenger riding from stop i to stop j uses legs i..j-1, so two passengers whose stretches don't overlap
+ * can have the same seat. Stored on the ride as Ride.legSeats, one count per leg joined by commas; rides without
+ * intermediate stops have a single leg and keep just Ride.tickets. Not thread-safe; SeatInventory locks it.
+ */
+public final class LegSeats {
+
+    private final int legs;
+    private final int[] min;
+    private final int[] max;
+    private final int[] pending; // added to the whole subtree but not yet pushed to its children
+
+    public LegSeats(int[] free) {
+        if (free.length == 0)
+            throw new IllegalArgumentException("A ride has at least one leg");
+        this.legs = free.length;
+        this.min = new int[4 * legs];
+        this.max = new int[4 * legs];
+        this.pending = new int[4 * legs];
+        build(1, 0, legs - 1, free);
+    }
+
+    /**
+     * Legs stored on a ride, or null if it has none (a single leg whose seats are Ride.tickets) or they can't be read.
+     */
+    public static LegSeats parse(String stored) {
+        if (stored == null || stored.isBlank())
+            return null;
+        String[] parts = stored.split(",");
+        int[] free = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++)
+                free[i] = Integer.parseInt(parts[i].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new LegSeats(free);
+    }
+
+    public static LegSeats of(Ride ride) {
+        LegSeats stored = parse(ride.getLegSeats());
+        return stored != null ? stored : new LegSeats(new int[] { ride.getTickets() });
+    }
+
+    /**
+     * Seats free from pickup to dropoff on a ride, or over the whole ride when either isn't one of its stops.
+     */
+    public static int forSegment(Ride ride, String from, String to) {
+        LegSeats seats = parse(ride.getLegSeats());
+        if (seats == null)
+            return ride.getTickets();
+        RouteGeometry geometry = RouteGeometry.of(ride);
+        int[] span = geometry == null ? null : geometry.segmentStops(from, to);
+        return span == null ? seats.min(0, seats.legs()) : seats.min(span[0], span[1]);
+    }
+
+    public int legs() {
+        return legs;
+    }
+
+    /**
+     * Fewest free seats over the legs between two stops (fromStop inclusive, toStop exclusive as a leg index).
+     */
+    public int min(int fromStop, int toStop) {
+        check(fromStop, toStop);
+        return queryMin(1, 0, legs - 1, fromStop, toStop - 1);
+    }
+
+    /**
+     * Most free seats on any leg; kept in Ride.tickets so a ride with room anywhere still shows up in search.
+     */
+    public int max() {
+        return max[1];
+    }
+
+    /**
+     * Adds delta free seats to every leg between two stops; negative takes seats.
+     */
+    public void add(int fromStop, int toStop, int delta) {
+        check(fromStop, toStop);
+        update(1, 0, legs - 1, fromStop, toStop - 1, delta);
+    }
+
+    public int[] toArray() {
+        int[] out = new int[legs];
+        for (int i = 0; i < legs; i++)
+            out[i] = queryMin(1, 0, legs - 1, i, i);
+        return out;
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        for (int free : toArray()) {
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(free);
+        }
+        return sb.toString();
+    }
+
+    private void check(int fromStop, int toStop) {
+        if (fromStop < 0 || toStop > legs || fromStop >= toStop)
+            throw new IllegalArgumentException("No legs between stops " + fromStop + " and " + toStop);
+    }
+
+    private void build(int node, int lo, int hi, int[] free) {
+        if (lo == hi) {
+            min[node] = free[lo];
+            max[node] = free[lo];
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        build(2 * node, lo, mid, free);
+        build(2 * node + 1, mid + 1, hi, free);
+        pull(node);
+    }
+
+    private int queryMin(int node, int lo, int hi, int from, int to) {
+        if (from <= lo && hi <= to)
+            return min[node];
+        push(node);
+        int mid = (lo + hi) >>> 1;
+        int best = Integer.MAX_VALUE;
+        if (from <= mid)
+            best = queryMin(2 * node, lo, mid, from, to);
+        if (to > mid)
+            best = Math.min(best, queryMin(2 * node + 1, mid + 1, hi, from, to));
+        return best;
+    }
+
+    private void update(int node, int lo, int hi, int from, int to, int delta) {
+        if (from <= lo && hi <= to) {
+            apply(node, delta);
+            return;
+        }
+        push(node);
+        int mid = (lo + hi) >>> 1;
+        if (from <= mid)
+            update(2 * node, lo, mid, from, to, delta);
+        if (to > mid)
+            update(2 * node + 1, mid + 1, hi, from, to, delta);
+        pull(node);
+    }
+
+    private void apply(int node, int delta) {
+        min[node] += delta;
+        max[node] += delta;
+        pending[node] += delta;
+    }
+
+    private void push(int node) {
+        if (pending[node] != 0) {
+            apply(2 * node, pending[node]);
+            apply(2 * node + 1, pending[node]);
+            pending[node] = 0;
+        }
+    }
+
+    private void pull(int node) {
+        min[node] = Math.min(min[2 * node], min[2 * node + 1]);
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Answers road-distance queries in-process from a preprocessed road graph, replacing live OSRM calls.
+ * Endpoints are matched to graph nodes by name first, then by snapping geocoded coordinates to the nearest node.
+ */
+@Service
+public class LocalRoutingService {
+
+    private static final Logger logger = Logger.getLogger(LocalRoutingService.class.getName());
+
+    // Straight-line snap distances are stretched by this factor to approximate the local road leg
+    private static final double SNAP_ROAD_FACTOR = 1.3;
+
+    private final ResourceLoader resourceLoader;
+    private final String graphLocation;
+    private final int landmarks;
+    private final double snapRadiusMeters;
+
+    private volatile RoadGraph graph;
+
+    private final AtomicLong answered = new AtomicLong();
+    private final AtomicLong unresolved = new AtomicLong();
+
+    public LocalRoutingService(ResourceLoader resourceLoader,
+            @Value("${maps.routing.graph:}") String graphLocation,
+            @Value("${maps.routing.landmarks:8}") int landmarks,
+            @Value("${maps.routing.snap-radius-km:30}") double snapRadiusKm) {
+        this.resourceLoader = resourceLoader;
+        this.graphLocation = graphLocation;
+        this.landmarks = landmarks;
+        this.snapRadiusMeters = snapRadiusKm * 1000.0;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (graphLocation == null || graphLocation.isBlank()) {
+            logger.info("No road graph configured, local routing disabled");
+            return;
+        }
+        Resource resource = resourceLoader.getResource(graphLocation);
+        if (!resource.exists()) {
+            logger.warning("Road graph " + graphLocation + " not found, local routing disabled");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            graph = RoadGraph.parse(reader, landmarks);
+            logger.info("Loaded road graph " + graphLocation + " (" + graph.nodeCount() + " nodes, "
+                    + graph.landmarkCount() + " landmarks) in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            logger.severe("Failed to load road graph " + graphLocation + ": " + e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return graph != null;
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Road distance in meters between two places, or null if either end cannot be placed on the graph.
+     * The geocoder is only consulted for names that are not graph nodes.
+     */
+    public Long distanceInMeters(String from, String to, Function<String, double[]> geocoder) {
+        RoadGraph g = graph;
+        if (g == null)
+            return null;
+        Snap a = snap(g, from, geocoder);
+        Snap b = a == null ? null : snap(g, to, geocoder);
+        if (a == null || b == null) {
+            unresolved.incrementAndGet();
+            return null;
+        }
+        long path = g.shortestPath(a.node, b.node);
+        if (path < 0) {
+            unresolved.incrementAndGet();
+            return null;
+        }
+        answered.incrementAndGet();
+        return path + Math.round((a.offsetMeters + b.offsetMeters) * SNAP_ROAD_FACTOR);
+    }
+
+    private Snap snap(RoadGraph g, String place, Function<String, double[]> geocoder) {
+        int node = g.findByName(place);
+        if (node >= 0)
+            return new Snap(node, 0);
+        double[] coord = geocoder.apply(place);
+        if (coord == null)
+            return null;
+        node = g.nearestNode(coord[0], coord[1], snapRadiusMeters);
+        if (node < 0)
+            return null;
+        double[] nodeCoord = g.coordinates(node);
+        return new Snap(node, RoadGraph.haversineMeters(coord[0], coord[1], nodeCoord[0], nodeCoord[1]));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("nodes", graph == null ? 0 : graph.nodeCount());
+        stats.put("answered", answered.get());
+        stats.put("unresolved", unresolved.get());
+        return stats;
+    }
+
+    private static final class Snap {
+        final int node;
+        final double offsetMeters;
+
+        Snap(int node, double offsetMeters) {
+            this.node = node;
+            this.offsetMeters = offsetMeters;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+/**
+ * A ride found by spatial search, with the distances from the requested pickup and drop to where the passenger
+ * would board and leave it: the ride's endpoints for nearby search, the nearest points on its route for route
+ * matching.
+ */
+public record NearbyRide(Ride ride, double startMeters, double endMeters) {
+
+    /**
+     * Extra driving to collect and drop the passenger, leaving the route and returning to it at both ends.
+     */
+    public double detourMeters() {
+        return 2 * (startMeters + endMeters);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.backend.service;
+
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.model.Notification;
+import com.example.backend.repository.MaintenanceJobRepository;
+import com.example.backend.repository.NotificationRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes saved notifications to their recipients over WebSocket, off the request thread.
+ *
+ * The notifications table is the outbox: business transactions only insert rows, and a row is handed to this
+ * class once its transaction commits, so nothing is pushed for a change that rolled back. Workers drain the
+ * bounded queue in batches, push each notification and stamp the batch dispatchedAt in one update.
+ *
+ * Rows that never reach a worker (the queue was full, the push failed, or the application stopped first) are
+ * found by a periodic sweep of undispatched rows older than a grace period. Delivery is at least once: a row
+ * still queued when the sweep runs can be pushed twice.
+ *
+ * Rows are never pushed once they are older than max-age-hours. On the first start with the outbox, every row
+ * already in the table is retired too, since the synchronous path that wrote it also pushed it; the sweep waits
+ * until that is done.
+ */
+@Component
+public class NotificationDispatcher {
+
+    static final String OUTBOX_JOB = "notification-outbox";
+
+    private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    private final NotificationRepository repo;
+    private final MaintenanceJobRepository jobs;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BlockingQueue<Notification> queue;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration grace;
+    private final Duration maxAge;
+    private final long sweepIntervalMillis;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong lastSweepMillis = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong swept = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean outboxReady;
+
+    public NotificationDispatcher(NotificationRepository repo, MaintenanceJobRepository jobs,
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${notifications.dispatch.workers:2}") int workers,
+            @Value("${notifications.dispatch.queue-capacity:10000}") int queueCapacity,
+            @Value("${notifications.dispatch.batch-size:200}") int batchSize,
+            @Value("${notifications.dispatch.sweep-seconds:30}") long sweepSeconds,
+            @Value("${notifications.dispatch.max-age-hours:24}") long maxAgeHours) {
+        this.repo = repo;
+        this.jobs = jobs;
+        this.messagingTemplate = messagingTemplate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.workerCount = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.grace = Duration.ofSeconds(sweepSeconds);
+        this.maxAge = Duration.ofHours(maxAgeHours);
+        this.sweepIntervalMillis = TimeUnit.SECONDS.toMillis(sweepSeconds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        prepareOutbox();
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread t = new Thread(this::run, "notification-dispatch-" + i);
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread t : workers)
+            t.interrupt();
+        workers.clear();
+    }
+
+    /**
+     * Queues saved notifications for pushing once the surrounding transaction commits, or now without one.
+     * Notifications of a rolled-back transaction are never queued (their rows are gone with it).
+     */
+    public void dispatchAfterCommit(List<Notification> saved) {
+        if (saved.isEmpty())
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            offer(saved);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                offer(saved);
+            }
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workerCount);
+        stats.put("pending", queue.size());
+        stats.put("queued", queued.get());
+        stats.put("overflowed", overflowed.get());
+        stats.put("dispatched", dispatched.get());
+        stats.put("swept", swept.get());
+        stats.put("batches", batches.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    // A full queue leaves the rest for the sweep rather than making the committing thread wait
+    private void offer(List<Notification> saved) {
+        for (Notification n : saved) {
+            if (queue.offer(n))
+                queued.incrementAndGet();
+            else
+                overflowed.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Notification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    List<Notification> batch = new ArrayList<>(batchSize);
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    dispatch(batch);
+                }
+                long now = System.currentTimeMillis();
+                long last = lastSweepMillis.get();
+                if (now - last >= sweepIntervalMillis && lastSweepMillis.compareAndSet(last, now)
+                        && (outboxReady || prepareOutbox()))
+                    sweep();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Notification dispatch failed; the sweep will retry", e);
+            }
+        }
+    }
+
+    /**
+     * Pushes a batch and marks it dispatched, returning how many were pushed.
+     */
+    int dispatch(List<Notification> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (Notification n : batch) {
+            try {
+                messagingTemplate.convertAndSend("/topic/user/" + n.getRecipientEmail(), n);
+                ids.add(n.getId());
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                logger.log(Level.FINE, "Could not push notification " + n.getId(), e);
+            }
+        }
+        if (!ids.isEmpty())
+            repo.markDispatched(ids, Instant.now());
+        batches.incrementAndGet();
+        dispatched.addAndGet(ids.size());
+        return ids.size();
+    }
+
+    // Rows from before the outbox, or too old to be worth pushing, are never sent; false if that failed, in
+    // which case the sweep holds off and a later sweep tries again
+    private boolean prepareOutbox() {
+        try {
+            int stale = retireBeforeOutbox() + retireStale(Long.MAX_VALUE, Instant.now().minus(maxAge));
+            if (stale > 0)
+                logger.info("Marked " + stale + " old notifications as dispatched");
+            outboxReady = true;
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not mark old notifications as dispatched", e);
+        }
+        return outboxReady;
+    }
+
+    /**
+     * Retires every row written before the outbox existed, once. The highest id at the first start is saved (as
+     * the job's afterId) before the walk, so a run cut short resumes with the same bound and never retires rows
+     * written since. Returns how many were retired.
+     */
+    int retireBeforeOutbox() {
+        MaintenanceJob job = jobs.findById(OUTBOX_JOB).orElse(null);
+        if (job != null && "DONE".equals(job.getStatus()))
+            return 0;
+        if (job == null) {
+            job = new MaintenanceJob(OUTBOX_JOB);
+            job.setStatus("RUNNING");
+            job.setAfterId(repo.findMaxId());
+            job.setStartedAt(Instant.now());
+            job.setUpdatedAt(Instant.now());
+            job = jobs.save(job);
+        }
+        int retired = retireStale(job.getAfterId(), Instant.now());
+        job.setStatus("DONE");
+        job.setProcessed(job.getProcessed() + retired);
+        job.setUpdatedAt(Instant.now());
+        jobs.save(job);
+        return retired;
+    }
+
+    /**
+     * Marks undispatched rows with ids up to upToId created before the cutoff as dispatched without pushing them,
+     * one id-ordered chunk per update so no single statement locks the whole backlog; returns how many were
+     * retired.
+     */
+    int retireStale(long upToId, Instant before) {
+        int total = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = repo.findStaleIdsAfter(afterId, upToId, before, PageRequest.of(0, batchSize));
+            if (ids.isEmpty())
+                return total;
+            total += repo.markStaleDispatched(ids);
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Pushes committed rows that were never dispatched, one batch at a time; returns how many were pushed.
+     */
+    int sweep() {
+        if (!sweeping.compareAndSet(false, true))
+            return 0;
+        try {
+            int total = 0;
+            while (true) {
+                List<Notification> missed = repo.findUndispatched(Instant.now().minus(grace),
+                        PageRequest.of(0, batchSize));
+                if (missed.isEmpty())
+                    break;
+                int pushed = dispatch(missed);
+                total += pushed;
+                if (pushed < missed.size())
+                    break; // pushes are failing; try again next sweep
+            }
+            swept.addAndGet(total);
+            return total;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
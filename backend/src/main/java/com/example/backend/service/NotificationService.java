@@ -2,28 +2,42 @@ package com.example.backend.service;
 
 import com.example.backend.model.Notification;
 import com.example.backend.repository.NotificationRepository;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+
 import java.util.List;
 
+/**
+ * Notifications are written to the notifications table as an outbox, in the caller's transaction, and pushed
+ * over WebSocket by NotificationDispatcher once it commits.
+ */
 @Service
 public class NotificationService {
+
     private final NotificationRepository repo;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final NotificationDispatcher dispatcher;
 
-    public NotificationService(NotificationRepository repo, SimpMessagingTemplate messagingTemplate) {
+    public NotificationService(NotificationRepository repo, NotificationDispatcher dispatcher) {
         this.repo = repo;
-        this.messagingTemplate = messagingTemplate;
+        this.dispatcher = dispatcher;
     }
 
     public Notification createNotification(String email, String message, String type) {
         Notification n = new Notification(email, message, type);
         Notification saved = repo.save(n);
-        // Broadcast in-app
-        messagingTemplate.convertAndSend("/topic/user/" + email, saved);
+        // Broadcast in-app once the row is committed
+        dispatcher.dispatchAfterCommit(List.of(saved));
         return saved;
     }
 
+    /**
+     * Saves a batch of notifications together; they are pushed to their recipients like single ones.
+     */
+    public void enqueueAll(List<Notification> batch) {
+        if (batch.isEmpty())
+            return;
+        dispatcher.dispatchAfterCommit(repo.saveAll(batch));
+    }
+
     public List<Notification> getNotificationsForUser(String email) {
         return repo.findByRecipientEmailOrderByCreatedAtDesc(email);
     }
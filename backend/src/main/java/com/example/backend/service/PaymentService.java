@@ -5,10 +5,14 @@ import com.example.backend.model.Booking;
 import com.example.backend.repository.PaymentRepository;
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class PaymentService {
 
+    // Bookings that no longer hold seats; a payment for one of them is flagged for refund instead
+    private static final Set<String> SEATLESS = Set.of("EXPIRED", "CANCELLED", "REJECTED", "WAITLISTED");
+
     private final PaymentRepository paymentRepository;
     private final BookingService bookingService;
     private final NotificationService notificationService;
@@ -33,18 +37,16 @@ public class PaymentService {
         Payment p = paymentRepository.findByStripePaymentIntentId(stripePaymentIntentId);
         if (p != null) {
             p.setStripePaymentMethodId(stripePaymentMethodId);
+
+            // Update Booking Status before the payment counts as confirmed
+            Booking b = p.getBookingId() == null ? null : bookingService.findById(p.getBookingId()).orElse(null);
+            if (b != null)
+                applyPayment(p, b, stripePaymentIntentId); // Save Real Transaction ID
             p.setStatus("CONFIRMED");
             Payment saved = paymentRepository.save(p);
 
-            // Update Booking Status
             if (p.getBookingId() != null) {
-                Booking b = bookingService.findById(p.getBookingId()).orElse(null);
                 if (b != null) {
-                    b.setPaymentStatus("PAID");
-                    b.setStatus("COMPLETED"); 
-                    b.setTransactionId(stripePaymentIntentId); // Save Real Transaction ID
-                    bookingService.updateBooking(b);
-
                     // Notify Driver
                     if (b.getRide() != null) {
                         notificationService.createNotification(
@@ -76,17 +78,16 @@ public class PaymentService {
         p.setAmount(amount);
         p.setStripePaymentIntentId("SIMULATED_INTENT_" + System.currentTimeMillis());
         p.setStripePaymentMethodId("SIMULATED_METHOD");
-        p.setStatus("CONFIRMED");
-        paymentRepository.save(p);
+        p.setStatus("PENDING");
+        p = paymentRepository.save(p);
 
-        // Update Booking
+        // Update Booking before the payment counts as confirmed
         if (bookingId != null) {
             Booking b = bookingService.findById(bookingId).orElse(null);
             if (b != null) {
-                b.setPaymentStatus("PAID");
-                b.setStatus("COMPLETED");
-                b.setTransactionId(p.getStripePaymentIntentId()); // Save Simulated Transaction ID
-                bookingService.updateBooking(b);
+                applyPayment(p, b, p.getStripePaymentIntentId()); // Save Simulated Transaction ID
+                p.setStatus("CONFIRMED");
+                paymentRepository.save(p);
 
                 // Notify Driver
                 if (b.getRide() != null) {
@@ -106,9 +107,35 @@ public class PaymentService {
                 return b;
             }
         }
+        p.setStatus("CONFIRMED");
+        paymentRepository.save(p);
         return null;
     }
 
+    /**
+     * Marks the booking paid, converting a seat hold still pending into a booking. A booking whose hold expired
+     * (or that was cancelled or rejected) has no seats to pay for: the payment is saved as REFUND_PENDING and the
+     * RuntimeException says why.
+     */
+    private void applyPayment(Payment p, Booking b, String transactionId) {
+        String refused = SEATLESS.contains(b.getStatus()) ? "Booking is " + b.getStatus() : null;
+        if (refused == null) {
+            b.setPaymentStatus("PAID");
+            b.setStatus("COMPLETED");
+            b.setTransactionId(transactionId);
+            try {
+                bookingService.updateBooking(b);
+            } catch (RuntimeException e) {
+                refused = e.getMessage();
+            }
+        }
+        if (refused != null) {
+            p.setStatus("REFUND_PENDING");
+            paymentRepository.save(p);
+            throw new RuntimeException(refused + "; the payment will be refunded");
+        }
+    }
+
     public List<Payment> getMyHistory(String email) {
         return paymentRepository.findByUserEmail(email);
     }
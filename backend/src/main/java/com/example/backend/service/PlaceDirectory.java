@@ -0,0 +1,102 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Bundled table of place coordinates, used for instant distance estimates without any remote lookup.
+ */
+@Component
+public class PlaceDirectory {
+
+    private static final Logger logger = Logger.getLogger(PlaceDirectory.class.getName());
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+
+    private final Map<String, double[]> places = new HashMap<>();
+
+    public PlaceDirectory(ResourceLoader resourceLoader,
+            @Value("${maps.places:classpath:places/india.places}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.location = location;
+    }
+
+    @PostConstruct
+    public void load() {
+        Resource resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            logger.warning("Place table " + location + " not found");
+            return;
+        }
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            load(reader);
+            logger.info("Loaded " + places.size() + " place names from " + location);
+        } catch (IOException e) {
+            logger.severe("Failed to load places from " + location + ": " + e.getMessage());
+        }
+    }
+
+    void load(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] parts = line.split("\\s+", 3);
+            if (parts.length < 3)
+                throw new IOException("Malformed place on line " + lineNo + ": " + line);
+            double[] coord;
+            try {
+                coord = new double[] { Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) };
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed coordinates on line " + lineNo + ": " + line);
+            }
+            for (String name : parts[2].split("\\|")) {
+                if (!name.isBlank())
+                    places.putIfAbsent(RoadGraph.normalizeName(name), coord);
+            }
+        }
+    }
+
+    /**
+     * Coordinates ({lat, lon}) for an address, or null if no part of it names a known place.
+     * Tries the whole address, then each comma-separated part, then each word.
+     */
+    public double[] find(String address) {
+        String normalized = RoadGraph.normalizeName(address);
+        double[] coord = places.get(normalized);
+        if (coord != null)
+            return coord;
+        for (String part : normalized.split(",")) {
+            coord = places.get(part.trim());
+            if (coord != null)
+                return coord;
+            for (String word : part.trim().split(" ")) {
+                coord = places.get(word);
+                if (coord != null)
+                    return coord;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return places.size();
+    }
+}
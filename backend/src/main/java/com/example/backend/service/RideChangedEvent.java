@@ -0,0 +1,22 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+/**
+ * Published by RideService whenever a ride is saved or deleted, so in-memory views of rides can stay current.
+ * {@code ride} is null for deletions.
+ */
+public record RideChangedEvent(Long rideId, Ride ride) {
+
+    public static RideChangedEvent saved(Ride ride) {
+        return new RideChangedEvent(ride.getId(), ride);
+    }
+
+    public static RideChangedEvent deleted(Long rideId) {
+        return new RideChangedEvent(rideId, null);
+    }
+
+    public boolean isDeleted() {
+        return ride == null;
+    }
+}
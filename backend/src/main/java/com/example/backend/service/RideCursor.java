@@ -0,0 +1,39 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Keyset position in a ride listing ordered by (createdAt DESC, id DESC): the last ride of the previous page.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public record RideCursor(Instant createdAt, long id) {
+
+    public static RideCursor after(Ride ride) {
+        return new RideCursor(ride.getCreatedAt(), ride.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a token produced by {@link #encode()}, or returns null if it is malformed.
+     */
+    public static RideCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            if (bar < 0)
+                return null;
+            return new RideCursor(Instant.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * In-memory spatial index of ride start and end points, used for nearby search when
+ * {@code rides.nearby.mode=memory}, the default. Built on startup from the end points of open rides and kept
+ * current from {@link RideChangedEvent}s; rides that are no longer open, or have no resolved coordinates, are
+ * dropped, so the grids hold only what a search can return.
+ */
+@Component
+public class RideGeoIndex {
+
+    private static final Logger logger = Logger.getLogger(RideGeoIndex.class.getName());
+
+    private final RideRepository repo;
+    private final boolean enabled;
+
+    private final GeoGrid starts;
+    private final GeoGrid ends;
+
+    public RideGeoIndex(RideRepository repo, @Value("${rides.nearby.mode:memory}") String mode,
+            @Value("${rides.nearby.cell-km:5}") double cellKm) {
+        this.repo = repo;
+        this.enabled = "memory".equalsIgnoreCase(mode);
+        this.starts = new GeoGrid(cellKm);
+        this.ends = new GeoGrid(cellKm);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled)
+            return;
+        for (Object[] row : repo.findOpenEndPoints()) {
+            long id = (Long) row[0];
+            starts.put(id, (Double) row[1], (Double) row[2]);
+            ends.put(id, (Double) row[3], (Double) row[4]);
+        }
+        logger.info("Indexed " + starts.size() + " ride start points for nearby search");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // After the change commits, so a rolled-back change is never indexed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideChanged(RideChangedEvent event) {
+        if (!enabled || event.rideId() == null)
+            return;
+        if (event.isDeleted()) {
+            starts.remove(event.rideId());
+            ends.remove(event.rideId());
+        } else {
+            put(event.ride());
+        }
+    }
+
+    /**
+     * Rides starting within startRadiusMeters of the pickup and ending within endRadiusMeters of the drop,
+     * mapped to {start distance, end distance} in meters.
+     */
+    public Map<Long, double[]> search(double fromLat, double fromLon, double startRadiusMeters,
+            double toLat, double toLon, double endRadiusMeters) {
+        Map<Long, Double> near = starts.within(fromLat, fromLon, startRadiusMeters);
+        Map<Long, double[]> matches = new HashMap<>();
+        if (near.isEmpty())
+            return matches;
+        ends.within(toLat, toLon, endRadiusMeters).forEach((id, endMeters) -> {
+            Double startMeters = near.get(id);
+            if (startMeters != null)
+                matches.put(id, new double[] { startMeters, endMeters });
+        });
+        return matches;
+    }
+
+    void put(Ride r) {
+        if (r.getId() == null)
+            return;
+        if (!"OPEN".equals(r.getStatus()) || r.getFromLat() == null || r.getFromLon() == null || r.getToLat() == null
+                || r.getToLon() == null) {
+            starts.remove(r.getId());
+            ends.remove(r.getId());
+            return;
+        }
+        starts.put(r.getId(), r.getFromLat(), r.getFromLon());
+        ends.put(r.getId(), r.getToLat(), r.getToLon());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+import java.util.List;
+
+/**
+ * One page of a ride listing; nextCursor is null on the last page.
+ */
+public record RidePage(List<Ride> rides, String nextCursor) {
+}
@@ -0,0 +1,297 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Spatial index of open rides' routes for partial-route matching: finds rides that pass near a passenger's pickup
+ * and then near their drop.
+ *
+ * Each ride's route is the path through its located stops (see RouteGeometry). Every leg is sampled at half the
+ * cell size and the ride is recorded in each grid cell the leg crosses. A query collects the rides bucketed near
+ * the pickup and near the drop, then projects both points onto each candidate's path to get the exact
+ * off-route distances and check that the pickup comes before the drop. Only open rides are indexed; the index
+ * follows {@link RideChangedEvent}s. With {@code rides.corridor.mode=off} nothing is loaded or indexed and
+ * partial-route search is unavailable.
+ */
+@Component
+public class RideRouteIndex {
+
+    private static final Logger logger = Logger.getLogger(RideRouteIndex.class.getName());
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+
+    private final RideRepository repo;
+    private final boolean enabled;
+    private final double cellDeg;
+
+    private final Map<Long, Bucket> cells = new HashMap<>();
+    private final Map<Long, Path> paths = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public RideRouteIndex(RideRepository repo, @Value("${rides.corridor.mode:memory}") String mode,
+            @Value("${rides.corridor.cell-km:5}") double cellKm) {
+        this.repo = repo;
+        this.enabled = "memory".equalsIgnoreCase(mode);
+        this.cellDeg = cellKm * 1000 / METERS_PER_DEG_LAT;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled)
+            return;
+        for (Ride r : repo.findOpenWithGeometry())
+            put(r);
+        logger.info("Indexed routes of " + size() + " open rides");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // After the change commits, so a rolled-back change is never indexed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideChanged(RideChangedEvent event) {
+        if (!enabled || event.rideId() == null)
+            return;
+        if (event.isDeleted())
+            remove(event.rideId());
+        else
+            put(event.ride());
+    }
+
+    /**
+     * Rides whose route passes within radiusMeters of the pickup and later within radiusMeters of the drop,
+     * mapped to {pickup distance, drop distance} in meters from the route.
+     */
+    public Map<Long, double[]> match(double fromLat, double fromLon, double toLat, double toLon,
+            double radiusMeters) {
+        Map<Long, double[]> matches = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = near(fromLat, fromLon, radiusMeters);
+            if (candidates.isEmpty())
+                return matches;
+            candidates.retainAll(near(toLat, toLon, radiusMeters));
+            for (Long id : candidates) {
+                Path path = paths.get(id);
+                double[] pickup = path.project(fromLat, fromLon);
+                if (pickup[0] > radiusMeters)
+                    continue;
+                double[] drop = path.project(toLat, toLon);
+                if (drop[0] > radiusMeters || drop[1] <= pickup[1])
+                    continue;
+                matches.put(id, new double[] { pickup[0], drop[0] });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return paths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(Ride r) {
+        if (r.getId() == null)
+            return;
+        Path path = "OPEN".equals(r.getStatus()) ? Path.of(RouteGeometry.of(r)) : null;
+        if (path != null)
+            path.cells = cellsAlong(path);
+        lock.writeLock().lock();
+        try {
+            removeLocked(r.getId());
+            if (path == null)
+                return;
+            paths.put(r.getId(), path);
+            for (long cell : path.cells)
+                cells.computeIfAbsent(cell, k -> new Bucket()).add(r.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Path old = paths.remove(id);
+        if (old == null)
+            return;
+        for (long cell : old.cells) {
+            Bucket bucket = cells.get(cell);
+            if (bucket != null && bucket.remove(id) == 0)
+                cells.remove(cell);
+        }
+    }
+
+    // Rides with a leg in a cell overlapping the circle's bounding box, widened by one cell for sampling gaps
+    private Set<Long> near(double lat, double lon, double radiusMeters) {
+        double latSpan = radiusMeters / METERS_PER_DEG_LAT;
+        double lonSpan = radiusMeters / (METERS_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(lat)), 0.01));
+        Set<Long> ids = new HashSet<>();
+        for (long r = cell(lat - latSpan) - 1; r <= cell(lat + latSpan) + 1; r++) {
+            for (long c = cell(lon - lonSpan) - 1; c <= cell(lon + lonSpan) + 1; c++) {
+                Bucket bucket = cells.get(cellKey(r, c));
+                if (bucket != null) {
+                    for (int i = 0; i < bucket.size; i++)
+                        ids.add(bucket.ids[i]);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Distinct cells crossed by the path's legs, sorted
+    private long[] cellsAlong(Path path) {
+        double step = cellDeg / 2;
+        long[] keys = new long[16];
+        int n = 0;
+        for (int i = 0; i < path.lat.length; i++) {
+            int samples = 1;
+            double dLat = 0;
+            double dLon = 0;
+            if (i > 0) {
+                dLat = path.lat[i] - path.lat[i - 1];
+                dLon = path.lon[i] - path.lon[i - 1];
+                samples = Math.max(1, (int) Math.ceil(Math.hypot(dLat, dLon) / step));
+            }
+            for (int s = 1; s <= samples; s++) {
+                double t = i == 0 ? 0 : (double) s / samples;
+                long key = cellKey(cell(path.lat[i] - (1 - t) * dLat), cell(path.lon[i] - (1 - t) * dLon));
+                if (n > 0 && keys[n - 1] == key)
+                    continue; // consecutive samples mostly share a cell
+                if (n == keys.length)
+                    keys = Arrays.copyOf(keys, n * 2);
+                keys[n++] = key;
+            }
+        }
+        long[] sorted = Arrays.copyOf(keys, n);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                sorted[unique++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDeg);
+    }
+
+    // Multiplying by an odd constant keeps keys unique but spreads them, since Long.hashCode alone is row ^ col
+    private static long cellKey(long row, long col) {
+        return ((row << 32) ^ (col & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+    }
+
+    // Ride ids in one cell; a plain array keeps millions of cell entries free of boxing
+    private static final class Bucket {
+        long[] ids = new long[4];
+        int size;
+
+        void add(long id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    break;
+                }
+            }
+            return size;
+        }
+    }
+
+    // The located stops of a route in travel order, with the distance along the path at each
+    private static final class Path {
+        final double[] lat;
+        final double[] lon;
+        final double[] along;
+        long[] cells;
+
+        private Path(double[] lat, double[] lon) {
+            this.lat = lat;
+            this.lon = lon;
+            this.along = new double[lat.length];
+            for (int i = 1; i < lat.length; i++)
+                along[i] = along[i - 1] + RoadGraph.haversineMeters(lat[i - 1], lon[i - 1], lat[i], lon[i]);
+        }
+
+        static Path of(RouteGeometry geometry) {
+            if (geometry == null)
+                return null;
+            List<double[]> points = new ArrayList<>();
+            for (int i = 0; i < geometry.getStops().size(); i++) {
+                double[] coord = geometry.coordinatesAt(i);
+                if (coord != null)
+                    points.add(coord);
+            }
+            if (points.size() < 2)
+                return null;
+            double[] lat = new double[points.size()];
+            double[] lon = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                lat[i] = points.get(i)[0];
+                lon[i] = points.get(i)[1];
+            }
+            return new Path(lat, lon);
+        }
+
+        /**
+         * {distance from the point to the path, distance along the path to the nearest point} in meters.
+         * Legs are treated as straight lines on a local equirectangular projection around the point.
+         */
+        double[] project(double pLat, double pLon) {
+            double kx = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(pLat));
+            double best = Double.MAX_VALUE;
+            double bestAlong = 0;
+            for (int i = 1; i < lat.length; i++) {
+                double ax = (lon[i - 1] - pLon) * kx;
+                double ay = (lat[i - 1] - pLat) * METERS_PER_DEG_LAT;
+                double bx = (lon[i] - pLon) * kx;
+                double by = (lat[i] - pLat) * METERS_PER_DEG_LAT;
+                double dx = bx - ax;
+                double dy = by - ay;
+                double lengthSq = dx * dx + dy * dy;
+                double t = lengthSq == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSq));
+                double d = Math.hypot(ax + t * dx, ay + t * dy);
+                if (d < best) {
+                    best = d;
+                    bestAlong = along[i - 1] + t * (along[i] - along[i - 1]);
+                }
+            }
+            return new double[] { best, bestAlong };
+        }
+    }
+}
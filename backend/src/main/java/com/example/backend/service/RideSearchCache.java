@@ -0,0 +1,340 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of ride search responses keyed by normalized (from, to, date, page).
+ *
+ * Entries are grouped by corridor, the (from, to, date) part of the key, and a ride change drops every page of
+ * the corridors it can affect: those whose cached results contain the ride, and those whose search the ride now
+ * matches while open with seats left. Other corridors stay cached. Changes arrive as {@link RideChangedEvent}s
+ * after the publishing transaction commits.
+ *
+ * A response computed while a change commits could otherwise be cached stale, so callers take a
+ * {@link #ticket()} before querying and {@link #put} refuses the entry if a change since that ticket affects it.
+ * Driver ratings in cached responses are refreshed only by the TTL.
+ */
+@Component
+public class RideSearchCache {
+
+    // Changes remembered for put-time checks; a ticket older than this many changes is refused outright
+    private static final int RECENT_CHANGES = 256;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong invalidatedEntries = new AtomicLong();
+    private final AtomicLong refusedPuts = new AtomicLong();
+    private final AtomicLong hitAgeTotalMillis = new AtomicLong();
+    private final AtomicLong hitAgeMaxMillis = new AtomicLong();
+
+    // Access-ordered so the eldest corridor is always the least recently used one
+    private final LinkedHashMap<String, Corridor> corridors = new LinkedHashMap<>(16, 0.75f, true);
+    // Ride id -> corridors with a cached page containing it
+    private final Map<Long, Set<String>> corridorsByRide = new HashMap<>();
+    private final ArrayDeque<Change> recentChanges = new ArrayDeque<>();
+    private long changeSeq;
+    private int entryCount;
+
+    public RideSearchCache(@Value("${rides.search-cache.max-entries:5000}") int maxEntries,
+            @Value("${rides.search-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Normalized search key. Terms are matched case-insensitively, so they are lower-cased, trimmed and have
+     * repeated spaces collapsed; callers should search with {@link Key#from()} and {@link Key#to()} so the
+     * cached response is exactly what the normalized query returns.
+     */
+    public static Key key(String from, String to, LocalDate date, String page) {
+        return new Key(DistanceCache.normalize(from), DistanceCache.normalize(to), date, page == null ? "" : page);
+    }
+
+    /**
+     * Position in the change stream; take it before running the query whose result will be {@link #put}.
+     */
+    public synchronized long ticket() {
+        return changeSeq;
+    }
+
+    /**
+     * The cached response for the key, or null if it is not cached or has expired.
+     */
+    public synchronized Object get(Key key) {
+        Corridor corridor = corridors.get(key.corridor());
+        Entry e = corridor == null ? null : corridor.pages.get(key.page());
+        if (e != null && e.expiresAt <= System.currentTimeMillis()) {
+            removePage(key.corridor(), corridor, key.page());
+            expirations.incrementAndGet();
+            e = null;
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        long age = System.currentTimeMillis() - e.createdAt;
+        hitAgeTotalMillis.addAndGet(age);
+        hitAgeMaxMillis.accumulateAndGet(age, Math::max);
+        return e.value;
+    }
+
+    /**
+     * Caches the response for the key, built from the given rides, unless a ride change since the ticket
+     * affects it. Returns whether the entry was stored.
+     */
+    public synchronized boolean put(Key key, long ticket, List<Ride> rides, Object value) {
+        Set<Long> ids = new HashSet<>();
+        for (Ride r : rides) {
+            if (r.getId() != null)
+                ids.add(r.getId());
+        }
+        if (changedSince(ticket, key, ids)) {
+            refusedPuts.incrementAndGet();
+            return false;
+        }
+        String corridorKey = key.corridor();
+        Corridor corridor = corridors.computeIfAbsent(corridorKey, k -> new Corridor(key));
+        removePage(corridorKey, corridor, key.page());
+        long now = System.currentTimeMillis();
+        corridor.pages.put(key.page(), new Entry(value, ids, now, now + ttlMillis));
+        corridors.putIfAbsent(corridorKey, corridor);
+        for (Long id : ids)
+            corridorsByRide.computeIfAbsent(id, k -> new HashSet<>()).add(corridorKey);
+        entryCount++;
+        while (entryCount > maxEntries) {
+            Iterator<Map.Entry<String, Corridor>> eldest = corridors.entrySet().iterator();
+            Map.Entry<String, Corridor> victim = eldest.next();
+            evictions.addAndGet(victim.getValue().pages.size());
+            dropCorridor(victim.getKey(), victim.getValue());
+        }
+        return true;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideChanged(RideChangedEvent event) {
+        if (event.rideId() != null)
+            invalidate(Change.of(event));
+    }
+
+    synchronized void invalidate(Change change) {
+        change.seq = ++changeSeq;
+        recentChanges.addLast(change);
+        if (recentChanges.size() > RECENT_CHANGES)
+            recentChanges.removeFirst();
+
+        Set<String> affected = new HashSet<>(corridorsByRide.getOrDefault(change.id, Set.of()));
+        if (change.listed) {
+            for (Map.Entry<String, Corridor> c : corridors.entrySet()) {
+                if (c.getValue().matches(change))
+                    affected.add(c.getKey());
+            }
+        }
+        for (String corridorKey : affected) {
+            Corridor corridor = corridors.get(corridorKey);
+            if (corridor == null)
+                continue;
+            invalidations.incrementAndGet();
+            invalidatedEntries.addAndGet(corridor.pages.size());
+            dropCorridor(corridorKey, corridor);
+        }
+    }
+
+    public synchronized void clear() {
+        corridors.clear();
+        corridorsByRide.clear();
+        entryCount = 0;
+    }
+
+    public synchronized int size() {
+        return entryCount;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long h = hits.get();
+        long m = misses.get();
+        long now = System.currentTimeMillis();
+        long oldest = 0;
+        for (Corridor c : corridors.values()) {
+            for (Entry e : c.pages.values())
+                oldest = Math.max(oldest, now - e.createdAt);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entryCount);
+        stats.put("corridors", corridors.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", ttlMillis / 1000L);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("invalidatedEntries", invalidatedEntries.get());
+        stats.put("refusedPuts", refusedPuts.get());
+        // Staleness: how old the responses served from cache were, and the oldest one still held
+        stats.put("avgHitAgeMs", h == 0 ? 0.0 : (double) hitAgeTotalMillis.get() / h);
+        stats.put("maxHitAgeMs", hitAgeMaxMillis.get());
+        stats.put("oldestEntryAgeMs", oldest);
+        return stats;
+    }
+
+    private boolean changedSince(long ticket, Key key, Set<Long> ids) {
+        if (ticket == changeSeq)
+            return false;
+        if (changeSeq - ticket > recentChanges.size())
+            return true; // the changes in between are no longer known
+        Corridor probe = new Corridor(key);
+        for (Iterator<Change> it = recentChanges.descendingIterator(); it.hasNext();) {
+            Change change = it.next();
+            if (change.seq <= ticket)
+                break;
+            if (ids.contains(change.id) || (change.listed && probe.matches(change)))
+                return true;
+        }
+        return false;
+    }
+
+    private void removePage(String corridorKey, Corridor corridor, String page) {
+        Entry old = corridor.pages.remove(page);
+        if (old == null)
+            return;
+        entryCount--;
+        unlinkRides(corridorKey, corridor, old.rideIds);
+        if (corridor.pages.isEmpty())
+            corridors.remove(corridorKey);
+    }
+
+    private void dropCorridor(String corridorKey, Corridor corridor) {
+        corridors.remove(corridorKey);
+        for (Entry e : corridor.pages.values()) {
+            entryCount--;
+            unlinkRides(corridorKey, null, e.rideIds);
+        }
+        corridor.pages.clear();
+    }
+
+    // Forgets ride -> corridor links no longer backed by a page (any page, when corridor is given)
+    private void unlinkRides(String corridorKey, Corridor corridor, Set<Long> rideIds) {
+        for (Long id : rideIds) {
+            if (corridor != null && corridor.contains(id))
+                continue;
+            Set<String> keys = corridorsByRide.get(id);
+            if (keys == null)
+                continue;
+            keys.remove(corridorKey);
+            if (keys.isEmpty())
+                corridorsByRide.remove(id);
+        }
+    }
+
+    public record Key(String from, String to, LocalDate date, String page) {
+        String corridor() {
+            return from + "|" + to + "|" + (date == null ? "" : date.toString());
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final Set<Long> rideIds;
+        final long createdAt;
+        final long expiresAt;
+
+        Entry(Object value, Set<Long> rideIds, long createdAt, long expiresAt) {
+            this.value = value;
+            this.rideIds = rideIds;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Corridor {
+        final String from;
+        final String to;
+        final LocalDate date;
+        final Map<String, Entry> pages = new HashMap<>();
+
+        Corridor(Key key) {
+            this.from = key.from();
+            this.to = key.to();
+            this.date = key.date();
+        }
+
+        boolean contains(long rideId) {
+            for (Entry e : pages.values()) {
+                if (e.rideIds.contains(rideId))
+                    return true;
+            }
+            return false;
+        }
+
+        // Mirrors RideRepository.searchRides: from in fromLocation or route, to in toLocation or route
+        boolean matches(Change change) {
+            if (date != null && !date.equals(change.date))
+                return false;
+            return (like(change.from, from) || like(change.route, from))
+                    && (like(change.to, to) || like(change.route, to));
+        }
+
+        // LIKE '%term%'; a term with its own wildcards is assumed to match anything
+        private static boolean like(String text, String term) {
+            if (term.indexOf('%') >= 0 || term.indexOf('_') >= 0)
+                return true;
+            return text != null && text.contains(term);
+        }
+    }
+
+    // A ride as it stands after a change, reduced to what search keys can match on
+    static final class Change {
+        final long id;
+        final boolean listed;
+        final String from;
+        final String to;
+        final String route;
+        final LocalDate date;
+        long seq;
+
+        Change(long id, boolean listed, String from, String to, String route, LocalDate date) {
+            this.id = id;
+            this.listed = listed;
+            this.from = from;
+            this.to = to;
+            this.route = route;
+            this.date = date;
+        }
+
+        static Change of(RideChangedEvent event) {
+            Ride r = event.ride();
+            if (event.isDeleted() || r == null)
+                return new Change(event.rideId(), false, null, null, null, null);
+            return new Change(event.rideId(), "OPEN".equals(r.getStatus()) && r.getTickets() > 0,
+                    lower(r.getFromLocation()), lower(r.getToLocation()), lower(r.getRoute()),
+                    Departures.parseDate(r.getDate()));
+        }
+
+        private static String lower(String s) {
+            return s == null ? null : s.toLowerCase(Locale.ROOT);
+        }
+    }
+}
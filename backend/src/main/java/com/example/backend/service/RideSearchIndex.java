@@ -0,0 +1,86 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * In-memory ride search used when {@code rides.search.mode=memory}, for embedded databases that have no
+ * pg_trgm. Mirrors RideRepository.searchRides: "from" matches fromLocation or route and "to" matches
+ * toLocation or route, case-insensitively. Built from the repository on startup and kept current from
+ * {@link RideChangedEvent}s. In the default "database" mode it stays empty and the repository query is used.
+ */
+@Component
+public class RideSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(RideSearchIndex.class.getName());
+
+    private final RideRepository repo;
+    private final boolean enabled;
+
+    private final TrigramIndex fromIndex = new TrigramIndex();
+    private final TrigramIndex toIndex = new TrigramIndex();
+
+    public RideSearchIndex(RideRepository repo, @Value("${rides.search.mode:database}") String mode) {
+        this.repo = repo;
+        this.enabled = "memory".equalsIgnoreCase(mode);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled)
+            return;
+        for (Ride r : repo.findAll())
+            put(r);
+        logger.info("Indexed " + fromIndex.size() + " rides for search");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // After the change commits, so a rolled-back change is never indexed
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideChanged(RideChangedEvent event) {
+        if (!enabled || event.rideId() == null)
+            return;
+        if (event.isDeleted()) {
+            fromIndex.remove(event.rideId());
+            toIndex.remove(event.rideId());
+        } else {
+            put(event.ride());
+        }
+    }
+
+    /**
+     * Ids of rides matching both the from and to terms.
+     */
+    public Set<Long> search(String from, String to) {
+        Set<Long> matches = fromIndex.search(from);
+        if (!matches.isEmpty())
+            matches.retainAll(toIndex.search(to));
+        return matches;
+    }
+
+    void put(Ride r) {
+        if (r.getId() == null)
+            return;
+        fromIndex.put(r.getId(), join(r.getFromLocation(), r.getRoute()));
+        toIndex.put(r.getId(), join(r.getToLocation(), r.getRoute()));
+    }
+
+    // Newline-separated so a query cannot match across the end of one field and the start of the next
+    private static String join(String location, String route) {
+        if (location == null)
+            return route;
+        if (route == null)
+            return location;
+        return location + "\n" + route;
+    }
+}
@@ -2,28 +2,88 @@ package com.example.backend.service;
 
 import com.example.backend.model.Ride;
 import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Service
 public class RideService {
+    private static final Logger logger = Logger.getLogger(RideService.class.getName());
+
+    // Largest pickup or drop radius a nearby search may ask for
+    @Value("${rides.nearby.max-radius-km:100}")
+    private double maxNearbyRadiusKm = 100;
+
+    // Most rides a nearby search loads and returns, closest first
+    @Value("${rides.nearby.max-results:100}")
+    private int maxNearbyResults = 100;
+
+    // Largest off-route distance a route match may ask for
+    @Value("${rides.corridor.max-radius-km:25}")
+    private double maxCorridorRadiusKm = 25;
+
+    // Zone the free-form ride date and time strings are read in
+    @Value("${rides.departure.zone:Asia/Kolkata}")
+    private String departureZone = "Asia/Kolkata";
+
+    // Largest page a listing may ask for
+    @Value("${rides.page.max-size:100}")
+    private int maxPageSize = 100;
+
     private final RideRepository repo;
     private final UserService userService;
     private final BookingService bookingService;
     private final GoogleMapsService googleMapsService;
+    private final RideSearchIndex searchIndex;
+    private final RideGeoIndex geoIndex;
+    private final RideRouteIndex routeIndex;
+    private final ApplicationEventPublisher events;
+    private final SeatInventory seatInventory;
+    private final TransactionTemplate transactions;
+    private final ExecutorService geometryResolver = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "route-geometry");
+        t.setDaemon(true);
+        return t;
+    });
 
     public RideService(RideRepository repo, UserService userService, BookingService bookingService,
-            GoogleMapsService googleMapsService) {
+            GoogleMapsService googleMapsService, RideSearchIndex searchIndex, RideGeoIndex geoIndex,
+            RideRouteIndex routeIndex, ApplicationEventPublisher events, SeatInventory seatInventory,
+            PlatformTransactionManager transactionManager) {
         this.repo = repo;
         this.userService = userService;
         this.bookingService = bookingService;
         this.googleMapsService = googleMapsService;
+        this.searchIndex = searchIndex;
+        this.geoIndex = geoIndex;
+        this.routeIndex = routeIndex;
+        this.events = events;
+        this.seatInventory = seatInventory;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void stop() {
+        geometryResolver.shutdownNow();
     }
 
     public Ride create(Ride r) {
-        return repo.save(r);
+        return save(r);
     }
 
     /**
@@ -53,9 +113,11 @@ public class RideService {
             r.setVehicleType(u.getCarModel());
         }
 
-        // 2b. Calculate Dynamic Fare (if price is 0 or auto-calc requested)
+        // 2. Calculate Dynamic Fare (if price is 0 or auto-calc requested). The local estimate keeps the
+        // request off the maps APIs; the route geometry is resolved in the background once the ride is saved.
         if (r.getPrice() <= 0 && r.getFromLocation() != null && r.getToLocation() != null) {
-            long distanceMeters = googleMapsService.getDistanceInMeters(r.getFromLocation(), r.getToLocation());
+            long distanceMeters = googleMapsService.estimateDistanceInMeters(r.getFromLocation(), r.getToLocation(),
+                    r.getRoute());
             double distanceKm = distanceMeters / 1000.0;
             double baseFare = 50.0;
             double ratePerKm = 10.0;
@@ -71,7 +133,9 @@ public class RideService {
         }
 
         // 3. Save Ride
-        Ride saved = repo.save(r);
+        Ride saved = save(r);
+        if (saved != null && saved.getId() != null)
+            resolveRouteGeometryLater(saved.getId());
 
         // 4. Handle Reservation (if driver reserves seats for themselves/friends)
         if (r.getReservedSeats() > 0) {
@@ -91,24 +155,286 @@ public class RideService {
         return saved;
     }
 
+    /**
+     * Re-resolves the stored route geometry after the ride's endpoints or route change.
+     * Returns null (and clears the stored geometry) when the ride has no endpoints.
+     */
+    public RouteGeometry refreshRouteGeometry(Ride r) {
+        if (r.getFromLocation() == null || r.getToLocation() == null) {
+            r.setRouteStops(null);
+            r.setStopOffsets(null);
+            r.setRoutePolyline(null);
+            r.setStopCoordinates(null);
+            r.setFromLat(null);
+            r.setFromLon(null);
+            r.setToLat(null);
+            r.setToLon(null);
+            return null;
+        }
+        RouteGeometry geometry = googleMapsService.resolveRouteGeometry(
+                RouteGeometry.stopsOf(r.getRoute(), r.getFromLocation(), r.getToLocation()));
+        if (geometry != null)
+            geometry.applyTo(r);
+        return geometry;
+    }
+
+    /**
+     * Resolves a newly posted ride's route geometry on the route-geometry thread and stores it, unless the
+     * ride's endpoints or route were edited in the meantime (the edit resolves its own).
+     */
+    void resolveRouteGeometryLater(Long id) {
+        geometryResolver.execute(() -> {
+            try {
+                Ride posted = repo.findById(id).orElse(null);
+                if (posted == null || posted.getFromLocation() == null || posted.getToLocation() == null)
+                    return;
+                RouteGeometry geometry = googleMapsService.resolveRouteGeometry(
+                        RouteGeometry.stopsOf(posted.getRoute(), posted.getFromLocation(), posted.getToLocation()));
+                if (geometry == null)
+                    return;
+                Ride stored = transactions.execute(status -> {
+                    Ride locked = repo.findByIdForUpdate(id).orElse(null);
+                    if (locked == null || !Objects.equals(locked.getRoute(), posted.getRoute())
+                            || !Objects.equals(locked.getFromLocation(), posted.getFromLocation())
+                            || !Objects.equals(locked.getToLocation(), posted.getToLocation()))
+                        return null;
+                    geometry.applyTo(locked);
+                    reconcileLegSeats(locked);
+                    return repo.save(locked);
+                });
+                if (stored != null) {
+                    seatInventory.forget(id);
+                    events.publishEvent(RideChangedEvent.saved(stored));
+                }
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Could not resolve the route of ride " + id, e);
+            }
+        });
+    }
+
     public List<Ride> list() {
         return repo.findAll();
     }
 
+    /**
+     * Open rides with seats left, filtered in the database.
+     */
+    public List<Ride> listOpen() {
+        return repo.findOpenWithSeats();
+    }
+
+    /**
+     * A page of open rides with seats left, newest first, continuing after the cursor (null for the first page).
+     * The size is clamped to 1..rides.page.max-size.
+     */
+    public RidePage listOpenPage(RideCursor cursor, int size) {
+        PageRequest page = pageRequest(size);
+        List<Ride> rides = cursor == null
+                ? repo.findOpenPage(page)
+                : repo.findOpenPageAfter(cursor.createdAt(), cursor.id(), page);
+        return toPage(rides, page.getPageSize() - 1);
+    }
+
+    /**
+     * A page of open rides with seats left matching from and to, in the same order and with the same cursor and
+     * size rules as {@link #listOpenPage}.
+     */
+    public RidePage searchOpenPage(String from, String to, RideCursor cursor, int size) {
+        PageRequest page = pageRequest(size);
+        List<Ride> rides;
+        if (searchIndex.isEnabled()) {
+            java.util.Set<Long> ids = searchIndex.search(from, to);
+            if (ids.isEmpty())
+                return new RidePage(List.of(), null);
+            rides = cursor == null
+                    ? repo.findOpenPageByIds(ids, page)
+                    : repo.findOpenPageByIdsAfter(ids, cursor.createdAt(), cursor.id(), page);
+        } else {
+            rides = cursor == null
+                    ? repo.searchOpenPage(from, to, page)
+                    : repo.searchOpenPageAfter(from, to, cursor.createdAt(), cursor.id(), page);
+        }
+        return toPage(rides, page.getPageSize() - 1);
+    }
+
+    // Fetches one extra row so the presence of a next page is known without a count query
+    private PageRequest pageRequest(int size) {
+        return PageRequest.of(0, Math.max(1, Math.min(size, maxPageSize)) + 1);
+    }
+
+    private static RidePage toPage(List<Ride> rides, int size) {
+        if (rides.size() <= size)
+            return new RidePage(rides, null);
+        List<Ride> page = rides.subList(0, size);
+        return new RidePage(page, RideCursor.after(page.get(size - 1)).encode());
+    }
+
     public Optional<Ride> findById(Long id) {
         return repo.findById(id);
     }
 
     public void delete(Long id) {
         repo.deleteById(id);
+        seatInventory.forget(id);
+        events.publishEvent(RideChangedEvent.deleted(id));
     }
 
     public List<Ride> searchRides(String from, String to) {
+        if (searchIndex.isEnabled())
+            return repo.findAllById(searchIndex.search(from, to));
         return repo.searchRides(from, to);
     }
 
+    /**
+     * Open rides starting within startRadiusKm of the pickup and ending within endRadiusKm of the drop, nearest
+     * first by combined distance. Radii are capped at rides.nearby.max-radius-km.
+     */
+    public List<NearbyRide> searchNearby(double fromLat, double fromLon, double startRadiusKm,
+            double toLat, double toLon, double endRadiusKm) {
+        double startMeters = Math.min(startRadiusKm, maxNearbyRadiusKm) * 1000;
+        double endMeters = Math.min(endRadiusKm, maxNearbyRadiusKm) * 1000;
+        List<NearbyRide> result = new ArrayList<>();
+        if (geoIndex.isEnabled()) {
+            Map<Long, double[]> matches = geoIndex.search(fromLat, fromLon, startMeters, toLat, toLon, endMeters);
+            // Only the closest are loaded; a wide radius can match far more rides than anyone reads
+            List<Long> closest = matches.entrySet().stream()
+                    .sorted(Comparator.comparingDouble(e -> e.getValue()[0] + e.getValue()[1]))
+                    .limit(Math.max(1, maxNearbyResults))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            for (Ride r : repo.findAllById(closest)) {
+                if (!"OPEN".equals(r.getStatus()))
+                    continue;
+                double[] d = matches.get(r.getId());
+                result.add(new NearbyRide(r, d[0], d[1]));
+            }
+        } else {
+            for (Ride r : repo.findNearby(fromLat, fromLon, startMeters, toLat, toLon, endMeters)) {
+                result.add(new NearbyRide(r,
+                        RoadGraph.haversineMeters(fromLat, fromLon, r.getFromLat(), r.getFromLon()),
+                        RoadGraph.haversineMeters(toLat, toLon, r.getToLat(), r.getToLon())));
+            }
+        }
+        result.sort(Comparator.comparingDouble(n -> n.startMeters() + n.endMeters()));
+        return result;
+    }
+
+    /**
+     * Open rides with seats left matching from and to, optionally only those departing on the given date
+     * (null for any date).
+     */
+    public List<Ride> searchOpenRides(String from, String to, java.time.LocalDate date) {
+        List<Ride> result = new ArrayList<>();
+        for (Ride r : searchRides(from, to)) {
+            if (!"OPEN".equals(r.getStatus()) || r.getTickets() <= 0)
+                continue;
+            if (date != null && !date.equals(Departures.parseDate(r.getDate())))
+                continue;
+            result.add(r);
+        }
+        return result;
+    }
+
+    public boolean isRouteSearchEnabled() {
+        return routeIndex.isEnabled();
+    }
+
+    /**
+     * Open rides whose route passes within radiusKm of the pickup and then within radiusKm of the drop, smallest
+     * detour first. The radius is capped at rides.corridor.max-radius-km.
+     */
+    public List<NearbyRide> searchAlongRoute(double fromLat, double fromLon, double toLat, double toLon,
+            double radiusKm) {
+        double radiusMeters = Math.min(radiusKm, maxCorridorRadiusKm) * 1000;
+        Map<Long, double[]> matches = routeIndex.match(fromLat, fromLon, toLat, toLon, radiusMeters);
+        List<NearbyRide> result = new ArrayList<>();
+        for (Ride r : repo.findAllById(matches.keySet())) {
+            double[] d = matches.get(r.getId());
+            result.add(new NearbyRide(r, d[0], d[1]));
+        }
+        result.sort(Comparator.comparingDouble(NearbyRide::detourMeters));
+        return result;
+    }
+
+    /**
+     * Coordinates ({lat, lon}) of a place name, or null if it cannot be located.
+     */
+    public double[] locate(String place) {
+        return googleMapsService.locate(place);
+    }
+
+    /**
+     * Open rides with seats left departing in [from, to), earliest first, at most size of them (clamped like
+     * the listing pages).
+     */
+    public List<Ride> findDepartingBetween(java.time.Instant from, java.time.Instant to, int size) {
+        return repo.findOpenDepartingBetween(from, to,
+                PageRequest.of(0, Math.max(1, Math.min(size, maxPageSize))));
+    }
+
+    /**
+     * Rides that have expired: marked EXPIRED, or still OPEN with a departure before the start of today.
+     */
+    public long countExpiredRides() {
+        java.time.ZoneId zone = java.time.ZoneId.of(departureZone);
+        java.time.Instant startOfToday = java.time.LocalDate.now(zone).atStartOfDay(zone).toInstant();
+        return repo.countExpired(startOfToday);
+    }
+
+    /**
+     * Saves a whole ride, such as a driver's edit. The row is re-read under its lock first: seats booked since
+     * the ride was read stay booked, and a seat count edited by the driver is applied as a change to the count
+     * now stored.
+     */
     public Ride save(Ride r) {
-        return repo.save(r);
+        r.setDepartureAt(Departures.parse(r.getDate(), r.getTime(), java.time.ZoneId.of(departureZone)));
+        Ride saved = transactions.execute(status -> {
+            if (r.getId() != null)
+                repo.findByIdForUpdate(r.getId()).ifPresent(locked -> keepBookedSeats(r, locked));
+            reconcileLegSeats(r);
+            return repo.save(r);
+        });
+        if (saved != null && saved.getId() != null)
+            seatInventory.forget(saved.getId()); // the saved seat count replaces whatever was counted
+        if (saved != null)
+            events.publishEvent(RideChangedEvent.saved(saved));
+        return saved;
+    }
+
+    // Carries the locked row's seats over to r, moved by whatever the driver changed on r since reading it
+    static void keepBookedSeats(Ride r, Ride locked) {
+        if (locked == r)
+            return; // r is the row itself, already current
+        int change = r.ticketsChangedSinceLoad();
+        r.setTickets(Math.max(0, locked.getTickets() + change));
+        r.setLegSeats(locked.getLegSeats());
+    }
+
+    /**
+     * Keeps a ride's per-leg seats in step with its stops and seat count: a route with intermediate stops gets
+     * one count per leg, and a seat count edited by the driver moves every leg by the same amount. Legs are only
+     * laid out afresh while no booking holds seats on them: route edits are refused once a ride has bookings, and
+     * the geometry resolved after posting only arrives for bookings made before the ride had stops, which took
+     * the whole ride and so leave the same count free on every leg.
+     */
+    static void reconcileLegSeats(Ride r) {
+        int legs = r.getRouteStops() == null ? 1 : r.getRouteStops().split(RouteGeometry.STOP_SEPARATOR).length - 1;
+        if (legs < 2) {
+            r.setLegSeats(null);
+            return;
+        }
+        LegSeats stored = LegSeats.parse(r.getLegSeats());
+        int[] free;
+        if (stored == null || stored.legs() != legs) {
+            free = new int[legs];
+            java.util.Arrays.fill(free, r.getTickets());
+        } else {
+            free = stored.toArray();
+            int shift = r.getTickets() - stored.max();
+            for (int i = 0; i < legs; i++)
+                free[i] = Math.max(0, free[i] + shift);
+        }
+        r.setLegSeats(new LegSeats(free).format());
     }
 
     public List<Ride> getAllRides() {
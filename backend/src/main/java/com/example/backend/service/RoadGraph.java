@@ -0,0 +1,299 @@
+package com.example.backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Immutable road graph with in-process shortest-path queries.
+ *
+ * Queries use ALT (A*, Landmarks and the Triangle inequality): distances from a handful of landmark nodes are
+ * precomputed once at load time, and |d(L,t) - d(L,v)| gives A* an admissible lower bound that prunes most of the
+ * graph compared to a plain Dijkstra search. Edges are undirected.
+ *
+ * Text format, one record per line ('#' starts a comment):
+ * <pre>
+ * N &lt;id&gt; &lt;lat&gt; &lt;lon&gt; [name|alias|...]
+ * E &lt;fromId&gt; &lt;toId&gt; &lt;meters&gt;
+ * </pre>
+ */
+public class RoadGraph {
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final double GRID_CELL_DEG = 0.25;
+
+    private final double[] lat;
+    private final double[] lon;
+    // Compressed adjacency: neighbours of v are targets[offsets[v] .. offsets[v + 1])
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final Map<String, Integer> nodesByName;
+    private final Map<Long, int[]> grid;
+    private final long[][] landmarkDistances;
+
+    private RoadGraph(double[] lat, double[] lon, int[] offsets, int[] targets, int[] weights,
+            Map<String, Integer> nodesByName, int landmarkCount) {
+        this.lat = lat;
+        this.lon = lon;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nodesByName = nodesByName;
+        this.grid = buildGrid();
+        this.landmarkDistances = buildLandmarks(landmarkCount);
+    }
+
+    public static RoadGraph parse(BufferedReader reader, int landmarkCount) throws IOException {
+        Map<Long, Integer> indexById = new HashMap<>();
+        List<double[]> coords = new ArrayList<>();
+        Map<String, Integer> names = new HashMap<>();
+        List<int[]> edges = new ArrayList<>();
+
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] parts = line.split("\\s+", 5);
+            try {
+                if ("N".equals(parts[0])) {
+                    int index = coords.size();
+                    indexById.put(Long.parseLong(parts[1]), index);
+                    coords.add(new double[] { Double.parseDouble(parts[2]), Double.parseDouble(parts[3]) });
+                    if (parts.length > 4) {
+                        for (String name : parts[4].split("\\|")) {
+                            String key = normalizeName(name);
+                            if (!key.isEmpty())
+                                names.putIfAbsent(key, index);
+                        }
+                    }
+                } else if ("E".equals(parts[0])) {
+                    Integer a = indexById.get(Long.parseLong(parts[1]));
+                    Integer b = indexById.get(Long.parseLong(parts[2]));
+                    if (a == null || b == null)
+                        throw new IOException("Edge references unknown node on line " + lineNo);
+                    edges.add(new int[] { a, b, Integer.parseInt(parts[3]) });
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Malformed road graph line " + lineNo + ": " + line);
+            }
+        }
+
+        int n = coords.size();
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = coords.get(i)[0];
+            lon[i] = coords.get(i)[1];
+        }
+
+        int[] degree = new int[n + 1];
+        for (int[] e : edges) {
+            degree[e[0]]++;
+            degree[e[1]]++;
+        }
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++)
+            offsets[i + 1] = offsets[i] + degree[i];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        for (int[] e : edges) {
+            targets[fill[e[0]]] = e[1];
+            weights[fill[e[0]]++] = e[2];
+            targets[fill[e[1]]] = e[0];
+            weights[fill[e[1]]++] = e[2];
+        }
+        return new RoadGraph(lat, lon, offsets, targets, weights, names, landmarkCount);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public int nodeCount() {
+        return lat.length;
+    }
+
+    public int landmarkCount() {
+        return landmarkDistances.length;
+    }
+
+    /**
+     * Looks a place up by node name. Only the part before the first comma is compared,
+     * so "Vijayawada, Andhra Pradesh" resolves to the "vijayawada" node.
+     */
+    public int findByName(String place) {
+        String key = normalizeName(place);
+        Integer node = nodesByName.get(key);
+        if (node == null && key.indexOf(',') > 0)
+            node = nodesByName.get(key.substring(0, key.indexOf(',')).trim());
+        return node == null ? -1 : node;
+    }
+
+    /**
+     * Returns the node closest to the given point within maxMeters, or -1 if none is that close.
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        int best = -1;
+        double bestDist = maxMeters;
+        int reach = (int) Math.ceil(maxMeters / 111_000.0 / GRID_CELL_DEG) + 1;
+        long row = cellRow(latitude);
+        long col = cellCol(longitude);
+        for (long r = row - reach; r <= row + reach; r++) {
+            for (long c = col - reach; c <= col + reach; c++) {
+                int[] bucket = grid.get(cellKey(r, c));
+                if (bucket == null)
+                    continue;
+                for (int v : bucket) {
+                    double d = haversineMeters(latitude, longitude, lat[v], lon[v]);
+                    if (d <= bestDist) {
+                        bestDist = d;
+                        best = v;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    public double[] coordinates(int node) {
+        return new double[] { lat[node], lon[node] };
+    }
+
+    /**
+     * Shortest road distance in meters between two nodes, or -1 if they are not connected.
+     */
+    public long shortestPath(int source, int target) {
+        if (source == target)
+            return 0;
+        int n = nodeCount();
+        long[] dist = new long[n];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        boolean[] settled = new boolean[n];
+        dist[source] = 0;
+
+        // Entries are {f = g + h, node}
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        open.add(new long[] { heuristic(source, target), source });
+        while (!open.isEmpty()) {
+            int v = (int) open.poll()[1];
+            if (settled[v])
+                continue;
+            if (v == target)
+                return dist[v];
+            settled[v] = true;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+                long candidate = dist[v] + weights[i];
+                if (candidate < dist[w]) {
+                    dist[w] = candidate;
+                    open.add(new long[] { candidate + heuristic(w, target), w });
+                }
+            }
+        }
+        return -1;
+    }
+
+    private long heuristic(int v, int target) {
+        long best = 0;
+        for (long[] fromLandmark : landmarkDistances) {
+            long dv = fromLandmark[v];
+            long dt = fromLandmark[target];
+            if (dv == Long.MAX_VALUE || dt == Long.MAX_VALUE)
+                continue;
+            best = Math.max(best, Math.abs(dt - dv));
+        }
+        return best;
+    }
+
+    // Farthest-point selection: each new landmark is the node farthest from the ones already chosen
+    private long[][] buildLandmarks(int count) {
+        int n = nodeCount();
+        count = Math.min(count, n);
+        long[][] result = new long[count][];
+        if (count == 0)
+            return result;
+        long[] minToChosen = new long[n];
+        Arrays.fill(minToChosen, Long.MAX_VALUE);
+        int next = 0;
+        for (int l = 0; l < count; l++) {
+            result[l] = dijkstraAll(next);
+            int farthest = -1;
+            long farthestDist = -1;
+            for (int v = 0; v < n; v++) {
+                if (result[l][v] != Long.MAX_VALUE)
+                    minToChosen[v] = Math.min(minToChosen[v], result[l][v]);
+                long d = minToChosen[v] == Long.MAX_VALUE ? Long.MAX_VALUE - 1 : minToChosen[v];
+                if (d > farthestDist) {
+                    farthestDist = d;
+                    farthest = v;
+                }
+            }
+            next = farthest;
+        }
+        return result;
+    }
+
+    private long[] dijkstraAll(int source) {
+        long[] dist = new long[nodeCount()];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[source] = 0;
+        PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        open.add(new long[] { 0, source });
+        while (!open.isEmpty()) {
+            long[] top = open.poll();
+            int v = (int) top[1];
+            if (top[0] > dist[v])
+                continue;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = targets[i];
+                long candidate = dist[v] + weights[i];
+                if (candidate < dist[w]) {
+                    dist[w] = candidate;
+                    open.add(new long[] { candidate, w });
+                }
+            }
+        }
+        return dist;
+    }
+
+    private Map<Long, int[]> buildGrid() {
+        Map<Long, List<Integer>> cells = new HashMap<>();
+        for (int v = 0; v < nodeCount(); v++)
+            cells.computeIfAbsent(cellKey(cellRow(lat[v]), cellCol(lon[v])), k -> new ArrayList<>()).add(v);
+        Map<Long, int[]> result = new HashMap<>();
+        cells.forEach((k, list) -> result.put(k, list.stream().mapToInt(Integer::intValue).toArray()));
+        return result;
+    }
+
+    private static long cellRow(double latitude) {
+        return (long) Math.floor(latitude / GRID_CELL_DEG);
+    }
+
+    private static long cellCol(double longitude) {
+        return (long) Math.floor(longitude / GRID_CELL_DEG);
+    }
+
+    private static long cellKey(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+
+    public static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A ride's resolved route: its stops in travel order with the cumulative road distance at each stop, the
+ * coordinates of each stop where known, and an encoded polyline for maps. Resolved once when the ride is posted,
+ * so a segment's distance is two array lookups.
+ */
+public final class RouteGeometry {
+
+    static final String STOP_SEPARATOR = " -> ";
+
+    private final List<String> stops;
+    private final long[] offsets;
+    private final double[][] coordinates;
+    private final String polyline;
+
+    public RouteGeometry(List<String> stops, long[] offsets, String polyline) {
+        this(stops, offsets, null, polyline);
+    }
+
+    /**
+     * @param coordinates {lat, lon} per stop with null entries for stops that could not be located, or null
+     */
+    public RouteGeometry(List<String> stops, long[] offsets, List<double[]> coordinates, String polyline) {
+        if (stops.size() != offsets.length)
+            throw new IllegalArgumentException("Need one offset per stop");
+        if (coordinates != null && coordinates.size() != stops.size())
+            throw new IllegalArgumentException("Need one coordinate slot per stop");
+        this.stops = List.copyOf(stops);
+        this.offsets = offsets.clone();
+        this.coordinates = new double[stops.size()][];
+        if (coordinates != null) {
+            for (int i = 0; i < stops.size(); i++)
+                this.coordinates[i] = coordinates.get(i) == null ? null : coordinates.get(i).clone();
+        }
+        this.polyline = polyline;
+    }
+
+    /**
+     * Stops of a route string ("Start -> Stop1 -> End"), or just the two endpoints if it isn't one.
+     */
+    public static List<String> stopsOf(String route, String from, String to) {
+        if (route != null && route.contains(STOP_SEPARATOR)) {
+            List<String> stops = new ArrayList<>();
+            for (String stop : route.split(STOP_SEPARATOR)) {
+                if (!stop.isBlank())
+                    stops.add(stop.trim());
+            }
+            if (stops.size() >= 2)
+                return stops;
+        }
+        return List.of(from, to);
+    }
+
+    /**
+     * Geometry stored on a ride, or null if it was never resolved or the stored columns don't line up.
+     */
+    public static RouteGeometry of(Ride ride) {
+        if (ride.getRouteStops() == null || ride.getStopOffsets() == null)
+            return null;
+        List<String> stops = Arrays.asList(ride.getRouteStops().split(STOP_SEPARATOR));
+        String[] parts = ride.getStopOffsets().split(",");
+        if (parts.length != stops.size())
+            return null;
+        long[] offsets = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++)
+                offsets[i] = Long.parseLong(parts[i].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new RouteGeometry(stops, offsets, parseCoordinates(ride.getStopCoordinates(), stops.size()),
+                ride.getRoutePolyline());
+    }
+
+    public void applyTo(Ride ride) {
+        StringBuilder sb = new StringBuilder();
+        for (long offset : offsets) {
+            if (sb.length() > 0)
+                sb.append(',');
+            sb.append(offset);
+        }
+        ride.setRouteStops(String.join(STOP_SEPARATOR, stops));
+        ride.setStopOffsets(sb.toString());
+        ride.setRoutePolyline(polyline);
+        ride.setStopCoordinates(formatCoordinates());
+        double[] start = coordinates[0];
+        double[] end = coordinates[coordinates.length - 1];
+        ride.setFromLat(start == null ? null : start[0]);
+        ride.setFromLon(start == null ? null : start[1]);
+        ride.setToLat(end == null ? null : end[0]);
+        ride.setToLon(end == null ? null : end[1]);
+    }
+
+    /**
+     * {lat, lon} of the stop at the given index, or null if it could not be located.
+     */
+    public double[] coordinatesAt(int index) {
+        return coordinates[index] == null ? null : coordinates[index].clone();
+    }
+
+    public List<String> getStops() {
+        return stops;
+    }
+
+    public String getPolyline() {
+        return polyline;
+    }
+
+    public long totalMeters() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Road distance between the stops matching a pickup and a dropoff, or null when either isn't on the route
+     * or the dropoff comes first. Stops match by case-insensitive containment, the pickup at its first match
+     * and the dropoff at its first match after the pickup.
+     */
+    public Long segmentMeters(String from, String to) {
+        int[] span = segmentStops(from, to);
+        return span == null ? null : offsets[span[1]] - offsets[span[0]];
+    }
+
+    /**
+     * Indexes {pickup, dropoff} of the stops matching a pickup and a dropoff, matched as for segmentMeters, or null.
+     */
+    public int[] segmentStops(String from, String to) {
+        int start = indexOf(from, 0);
+        if (start < 0)
+            return null;
+        int end = indexOf(to, start + 1);
+        if (end < 0)
+            return null;
+        return new int[] { start, end };
+    }
+
+    private int indexOf(String place, int fromIndex) {
+        if (place == null || place.isBlank())
+            return -1;
+        String needle = place.trim().toLowerCase(Locale.ROOT);
+        for (int i = fromIndex; i < stops.size(); i++) {
+            String stop = stops.get(i).toLowerCase(Locale.ROOT);
+            if (stop.contains(needle) || needle.contains(stop))
+                return i;
+        }
+        return -1;
+    }
+
+    // "lat,lon" per stop joined by ';', with an empty entry for a stop that has no coordinates
+    private String formatCoordinates() {
+        return formatCoordinates(Arrays.asList(coordinates));
+    }
+
+    /**
+     * The stored form of per-stop coordinates ("lat,lon;;lat,lon", empty for unlocated stops), or null if none
+     * were located.
+     */
+    static String formatCoordinates(List<double[]> coordinates) {
+        StringBuilder sb = new StringBuilder();
+        boolean any = false;
+        for (int i = 0; i < coordinates.size(); i++) {
+            if (i > 0)
+                sb.append(';');
+            double[] c = coordinates.get(i);
+            if (c != null) {
+                sb.append(String.format(Locale.ROOT, "%.5f,%.5f", c[0], c[1]));
+                any = true;
+            }
+        }
+        return any ? sb.toString() : null;
+    }
+
+    private static List<double[]> parseCoordinates(String stored, int stops) {
+        if (stored == null)
+            return null;
+        String[] entries = stored.split(";", -1);
+        if (entries.length != stops)
+            return null;
+        List<double[]> coords = new ArrayList<>();
+        for (String entry : entries) {
+            String[] parts = entry.split(",");
+            if (parts.length != 2) {
+                coords.add(null);
+                continue;
+            }
+            try {
+                coords.add(new double[] { Double.parseDouble(parts[0]), Double.parseDouble(parts[1]) });
+            } catch (NumberFormatException e) {
+                coords.add(null);
+            }
+        }
+        return coords;
+    }
+
+    /**
+     * Google encoded polyline format for a list of {lat, lon} points.
+     */
+    public static String encodePolyline(List<double[]> points) {
+        StringBuilder sb = new StringBuilder();
+        long prevLat = 0;
+        long prevLon = 0;
+        for (double[] p : points) {
+            long lat = Math.round(p[0] * 1e5);
+            long lon = Math.round(p[1] * 1e5);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lon - prevLon, sb);
+            prevLat = lat;
+            prevLon = lon;
+        }
+        return sb.toString();
+    }
+
+    private static void encodeValue(long value, StringBuilder sb) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            sb.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        sb.append((char) (v + 63));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.backend.service;
+
+/**
+ * An origin/destination pair for batch distance lookups.
+ */
+public record RoutePair(String from, String to) {
+}
@@ -0,0 +1,214 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Booking;
+import com.example.backend.model.Notification;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Expires the seat holds of bookings nobody acted on.
+ *
+ * A new passenger booking takes its seats straight away but only holds them until holdExpiresAt. The hold is
+ * converted into a booking when the booking leaves PENDING (the driver accepts, or a payment is confirmed), see
+ * BookingService.updateBooking. Holds wait in a delay queue in memory, so finding the stale ones needs no table
+ * scan. A worker thread takes them as they fall due and expires each batch in one transaction: the still-pending
+ * bookings are locked and marked EXPIRED in one update, and their seats go back with one update per ride.
+ *
+ * The queue is refilled from the database on startup. Entries for holds that were converted or cancelled in the
+ * meantime are simply skipped by the expiry query, so they are never removed from the queue early.
+ */
+@Component
+public class SeatHolds {
+
+    private static final Logger logger = Logger.getLogger(SeatHolds.class.getName());
+
+    private final BookingRepository bookingRepository;
+    private final RideRepository rideRepository;
+    private final SeatInventory seatInventory;
+    private final NotificationService notificationService;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactions;
+    private final Duration ttl;
+    private final int batchSize;
+
+    private final DelayQueue<Hold> queue = new DelayQueue<>();
+    private final AtomicLong held = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile Thread worker;
+
+    public SeatHolds(BookingRepository bookingRepository, RideRepository rideRepository, SeatInventory seatInventory,
+            NotificationService notificationService, ApplicationEventPublisher events,
+            PlatformTransactionManager transactionManager,
+            @Value("${rides.hold.ttl-minutes:30}") long ttlMinutes,
+            @Value("${rides.hold.batch-size:200}") int batchSize) {
+        this.bookingRepository = bookingRepository;
+        this.rideRepository = rideRepository;
+        this.seatInventory = seatInventory;
+        this.notificationService = notificationService;
+        this.events = events;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (Object[] row : bookingRepository.findOpenHolds())
+            queue.add(new Hold((Long) row[0], (Instant) row[1]));
+        logger.info("Tracking " + queue.size() + " seat holds");
+        Thread t = new Thread(this::run, "seat-hold-expiry");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null)
+            t.interrupt();
+    }
+
+    /**
+     * When a hold taken now runs out; set it as the booking's holdExpiresAt before saving.
+     */
+    public Instant expiryFromNow() {
+        return Instant.now().plus(ttl);
+    }
+
+    /**
+     * Starts tracking a saved booking's hold.
+     */
+    public void track(Booking b) {
+        if (b.getId() == null || b.getHoldExpiresAt() == null)
+            return;
+        queue.add(new Hold(b.getId(), b.getHoldExpiresAt()));
+        held.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ttlMinutes", ttl.toMinutes());
+        stats.put("queued", queue.size());
+        stats.put("held", held.get());
+        stats.put("expired", expired.get());
+        stats.put("batches", batches.get());
+        return stats;
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            try {
+                List<Hold> due = new ArrayList<>();
+                due.add(queue.take());
+                queue.drainTo(due, batchSize - 1); // only holds that are already due
+                expire(due);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Seat hold expiry failed; will retry", e);
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Expires the given holds that are still pending and past due, returning how many were.
+     */
+    int expire(List<Hold> due) {
+        List<Long> ids = new ArrayList<>(due.size());
+        for (Hold h : due)
+            ids.add(h.bookingId);
+        List<Booking> bookings;
+        try {
+            bookings = transactions.execute(status -> expireLocked(ids));
+        } catch (RuntimeException e) {
+            queue.addAll(due); // nothing was committed; try these again
+            throw e;
+        }
+        batches.incrementAndGet();
+        expired.addAndGet(bookings.size());
+        List<Notification> batch = new ArrayList<>(bookings.size());
+        for (Booking b : bookings) {
+            batch.add(new Notification(b.getUserEmail(),
+                    "Your booking to " + b.getDropoffLocation() + " expired before it was confirmed, so its seats were released.",
+                    "BOOKING_EXPIRED"));
+        }
+        notificationService.enqueueAll(batch);
+        return bookings.size();
+    }
+
+    private List<Booking> expireLocked(List<Long> ids) {
+        List<Booking> bookings = bookingRepository.lockExpiredHolds(ids, Instant.now());
+        if (bookings.isEmpty())
+            return bookings;
+        List<Long> expiredIds = new ArrayList<>(bookings.size());
+        Map<Span, Integer> seatsBySpan = new HashMap<>();
+        Set<Long> rideIds = new HashSet<>();
+        for (Booking b : bookings) {
+            expiredIds.add(b.getId());
+            seatsBySpan.merge(new Span(b.getRide().getId(), b.getFromStop(), b.getToStop()), b.getSeats(), Integer::sum);
+            rideIds.add(b.getRide().getId());
+        }
+        bookingRepository.markExpired(expiredIds);
+        seatsBySpan.forEach((span, seats) -> seatInventory.release(span.rideId(), span.fromStop(), span.toStop(), seats));
+        for (Ride r : rideRepository.findAllById(rideIds))
+            events.publishEvent(RideChangedEvent.saved(r));
+        return bookings;
+    }
+
+    // Seats go back per ride and stretch of its route; bookings over the whole ride have null stops
+    private record Span(long rideId, Integer fromStop, Integer toStop) {
+    }
+
+    static final class Hold implements Delayed {
+        final long bookingId;
+        final long dueAtMillis;
+
+        Hold(long bookingId, Instant dueAt) {
+            this.bookingId = bookingId;
+            this.dueAtMillis = dueAt.toEpochMilli();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((Hold) other).dueAtMillis);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seats left per ride, for taking and returning seats without lost updates.
+ *
+ * The rides table is the source of truth: a seat is only taken by the conditional
+ * {@code UPDATE ... SET tickets = tickets - n WHERE tickets >= n}, which the database serializes per row. In front
+ * of it each ride has an in-memory counter, loaded on first use and checked before the database, so requests for
+ * a sold-out ride are turned away without touching the database and contention stays on that one ride.
+ *
+ * Rides with intermediate stops count seats per leg (see LegSeats), so a passenger getting off halfway frees the
+ * seat for the rest of the route. Their legs are read with the ride row locked, inside the booking's transaction,
+ * and written back once; other bookings of the ride wait for the lock instead of retrying.
+ *
+ * The counter is an admission filter, not a ledger. Decrements are undone if the transaction rolls back, and
+ * returned seats are added once it commits. A counter the database disagrees with (the row was changed by
+ * another instance or an edit) is dropped and reloaded on next use. A counter can also be behind the row the
+ * other way, when seats were returned elsewhere, so before turning a request away the row is read again, at most
+ * once per ride every rides.seats.recheck-ms.
+ */
+@Component
+public class SeatInventory {
+
+    private final RideRepository repo;
+    private final TransactionTemplate transactions;
+    private final long recheckNanos;
+    private final ConcurrentHashMap<Long, LegSeats> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> loadedAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong turnedAway = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+    private final AtomicLong rechecks = new AtomicLong();
+
+    public SeatInventory(RideRepository repo, PlatformTransactionManager transactionManager,
+            @Value("${rides.seats.recheck-ms:1000}") long recheckMillis) {
+        this.repo = repo;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.recheckNanos = TimeUnit.MILLISECONDS.toNanos(recheckMillis);
+    }
+
+    /**
+     * Takes seats on a whole ride. Returns false if the ride does not exist or has fewer seats left.
+     */
+    public boolean reserve(long rideId, int seats) {
+        return reserve(rideId, null, null, seats);
+    }
+
+    /**
+     * Takes seats between two stops of a ride (null for the whole ride). Returns false if the ride does not exist
+     * or some leg in between has fewer seats left.
+     */
+    public boolean reserve(long rideId, Integer fromStop, Integer toStop, int seats) {
+        if (seats <= 0)
+            throw new IllegalArgumentException("Seats must be positive");
+        LegSeats counter = counter(rideId);
+        if (counter == null)
+            return false;
+        if (!take(counter, span(counter.legs(), fromStop, toStop), seats)) {
+            counter = reload(rideId, counter);
+            if (counter == null || !take(counter, span(counter.legs(), fromStop, toStop), seats)) {
+                turnedAway.incrementAndGet();
+                return false;
+            }
+        }
+        return write(rideId, counter, span(counter.legs(), fromStop, toStop), seats);
+    }
+
+    // Takes the seats the counter admitted from the row; the counter is given them back if that fails or the
+    // transaction rolls back
+    private boolean write(long rideId, LegSeats counter, int[] span, int seats) {
+        boolean taken;
+        try {
+            taken = counter.legs() == 1 ? repo.reserveSeats(rideId, seats) == 1
+                    : updateLegs(rideId, span, -seats);
+        } catch (RuntimeException e) {
+            giveBack(counter, span, seats);
+            throw e;
+        }
+        if (!taken) {
+            giveBack(counter, span, seats);
+            counters.remove(rideId, counter);
+            conflicts.incrementAndGet();
+            return false;
+        }
+        reserved.incrementAndGet();
+        afterCompletion(false, () -> giveBack(counter, span, seats));
+        return true;
+    }
+
+    /**
+     * Returns seats to a whole ride.
+     */
+    public void release(long rideId, int seats) {
+        release(rideId, null, null, seats);
+    }
+
+    /**
+     * Returns seats taken between two stops of a ride (null for the whole ride).
+     */
+    public void release(long rideId, Integer fromStop, Integer toStop, int seats) {
+        if (seats <= 0)
+            return;
+        LegSeats stored = LegSeats.parse(repo.findLegSeatsById(rideId));
+        if (stored == null) {
+            repo.releaseSeats(rideId, seats);
+        } else if (!updateLegs(rideId, span(stored.legs(), fromStop, toStop), seats)) {
+            throw new IllegalStateException("Could not return seats to ride " + rideId);
+        }
+        released.incrementAndGet();
+        afterCompletion(true, () -> {
+            LegSeats counter = counters.get(rideId);
+            if (counter != null)
+                giveBack(counter, span(counter.legs(), fromStop, toStop), seats);
+        });
+    }
+
+    /**
+     * Drops the counter of a ride whose seats were changed outside this class, so it is reloaded on next use.
+     */
+    public void forget(long rideId) {
+        counters.remove(rideId);
+        loadedAt.remove(rideId);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rides", counters.size());
+        stats.put("reserved", reserved.get());
+        stats.put("turnedAway", turnedAway.get());
+        stats.put("conflicts", conflicts.get());
+        stats.put("released", released.get());
+        stats.put("rechecks", rechecks.get());
+        return stats;
+    }
+
+    private LegSeats counter(long rideId) {
+        LegSeats counter = counters.get(rideId);
+        if (counter != null)
+            return counter;
+        return counters.computeIfAbsent(rideId, this::load);
+    }
+
+    private LegSeats load(long rideId) {
+        long now = System.nanoTime();
+        LegSeats legs = LegSeats.parse(repo.findLegSeatsById(rideId));
+        if (legs == null) {
+            Integer tickets = repo.findTicketsById(rideId);
+            if (tickets == null)
+                return null;
+            legs = new LegSeats(new int[] { tickets });
+        }
+        loadedAt.put(rideId, now);
+        return legs;
+    }
+
+    // A fresh counter read from the row in place of one that would turn a request away, or null if the counter
+    // was read too recently to be worth another look, or the ride is gone
+    private LegSeats reload(long rideId, LegSeats counter) {
+        Long loaded = loadedAt.get(rideId);
+        if (loaded != null && System.nanoTime() - loaded < recheckNanos)
+            return null;
+        rechecks.incrementAndGet();
+        LegSeats fresh = load(rideId);
+        if (fresh == null) {
+            counters.remove(rideId, counter);
+            return null;
+        }
+        return counters.replace(rideId, counter, fresh) ? fresh : counters.get(rideId);
+    }
+
+    private static boolean take(LegSeats counter, int[] span, int seats) {
+        synchronized (counter) {
+            if (counter.min(span[0], span[1]) < seats)
+                return false;
+            counter.add(span[0], span[1], -seats);
+            return true;
+        }
+    }
+
+    // Applies delta to the stored legs of a ride under its row lock, held until the surrounding transaction (or
+    // one of its own) ends; the changed ride is written once when it flushes. False if the legs are gone or, when
+    // taking seats, some leg in the span has too few.
+    private boolean updateLegs(long rideId, int[] span, int delta) {
+        return Boolean.TRUE.equals(transactions.execute(status -> {
+            Ride locked = repo.findByIdForUpdate(rideId).orElse(null);
+            // Read the column again now the lock is held: a ride already in the persistence context keeps the
+            // legs it was loaded with
+            LegSeats stored = locked == null ? null : LegSeats.parse(repo.findLegSeatsById(rideId));
+            if (stored == null || span[1] > stored.legs())
+                return false;
+            if (delta < 0 && stored.min(span[0], span[1]) < -delta)
+                return false;
+            stored.add(span[0], span[1], delta);
+            locked.setLegSeats(stored.format());
+            locked.setTickets(stored.max());
+            return true;
+        }));
+    }
+
+    private static void giveBack(LegSeats counter, int[] span, int seats) {
+        synchronized (counter) {
+            counter.add(span[0], span[1], seats);
+        }
+    }
+
+    // Legs a booking covers; stops that don't fit the ride (or none given) mean all of it
+    private static int[] span(int legs, Integer fromStop, Integer toStop) {
+        if (fromStop == null || toStop == null || fromStop < 0 || toStop > legs || fromStop >= toStop)
+            return new int[] { 0, legs };
+        return new int[] { fromStop, toStop };
+    }
+
+    // Runs the action once the surrounding transaction commits (onCommit) or rolls back (!onCommit). Without a
+    // transaction the database change is already final, so a commit action runs now and a rollback one never.
+    private static void afterCompletion(boolean onCommit, Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit)
+                action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if ((status == STATUS_COMMITTED) == onCommit)
+                    action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.backend.service;
+
+import com.example.backend.config.ConnectionPoolMetrics;
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.MaintenanceJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background job settling bookings stuck half-way through the old payment flow (marks them COMPLETED and PAID),
+ * started from POST /api/admin/users/fix-payment-data.
+ *
+ * Walks the stuck bookings in id order, a chunk at a time: each chunk is one set-based UPDATE committed together
+ * with the job's checkpoint, so nothing accumulates in the persistence context and a restart carries on after
+ * the last committed chunk. Between chunks the job pauses, and longer while requests are queued for a database
+ * connection, so it never competes with live traffic for the pool.
+ */
+@Component
+public class StuckBookingRepair {
+
+    static final String JOB = "stuck-bookings";
+
+    private static final Logger logger = Logger.getLogger(StuckBookingRepair.class.getName());
+
+    private final BookingRepository bookingRepository;
+    private final MaintenanceJobRepository jobs;
+    private final ConnectionPoolMetrics poolMetrics;
+    private final TransactionTemplate transactions;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final long busyPauseMillis;
+
+    private volatile Thread worker;
+    private volatile MaintenanceJob progress;
+
+    public StuckBookingRepair(BookingRepository bookingRepository, MaintenanceJobRepository jobs,
+            ConnectionPoolMetrics poolMetrics, PlatformTransactionManager transactionManager,
+            @Value("${maintenance.stuck-bookings.chunk-size:500}") int chunkSize,
+            @Value("${maintenance.stuck-bookings.pause-ms:100}") long pauseMillis,
+            @Value("${maintenance.stuck-bookings.busy-pause-ms:2000}") long busyPauseMillis) {
+        this.bookingRepository = bookingRepository;
+        this.jobs = jobs;
+        this.poolMetrics = poolMetrics;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMillis = pauseMillis;
+        this.busyPauseMillis = busyPauseMillis;
+    }
+
+    // Picks up a run that was interrupted by a shutdown
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        jobs.findById(JOB).filter(j -> "RUNNING".equals(j.getStatus())).ifPresent(j -> {
+            logger.info("Resuming stuck booking repair after booking " + j.getAfterId());
+            launch(j);
+        });
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null)
+            t.interrupt();
+    }
+
+    /**
+     * Starts a run from the beginning unless one is already going; returns the job's progress either way.
+     */
+    public synchronized Map<String, Object> start() {
+        if (worker == null) {
+            MaintenanceJob job = jobs.findById(JOB).orElseGet(() -> new MaintenanceJob(JOB));
+            job.setStatus("RUNNING");
+            job.setAfterId(0);
+            job.setProcessed(0);
+            job.setLastError(null);
+            job.setStartedAt(Instant.now());
+            job.setUpdatedAt(Instant.now());
+            launch(jobs.save(job));
+        }
+        return getStats();
+    }
+
+    public Map<String, Object> getStats() {
+        MaintenanceJob job = progress;
+        if (job == null)
+            job = jobs.findById(JOB).orElse(null);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", worker != null);
+        stats.put("chunkSize", chunkSize);
+        if (job != null) {
+            stats.put("status", job.getStatus());
+            stats.put("fixed", job.getProcessed());
+            stats.put("afterId", job.getAfterId());
+            stats.put("startedAt", job.getStartedAt());
+            stats.put("updatedAt", job.getUpdatedAt());
+            if (job.getLastError() != null)
+                stats.put("lastError", job.getLastError());
+        }
+        return stats;
+    }
+
+    private synchronized void launch(MaintenanceJob job) {
+        progress = job;
+        Thread t = new Thread(() -> run(job), "stuck-booking-repair");
+        t.setDaemon(true);
+        worker = t;
+        t.start();
+    }
+
+    private void run(MaintenanceJob job) {
+        try {
+            while (worker == Thread.currentThread()) {
+                if (!runChunk(job)) {
+                    finish(job, "DONE", null);
+                    logger.info("Stuck booking repair settled " + job.getProcessed() + " bookings");
+                    return;
+                }
+                Thread.sleep(poolMetrics.waitingThreads() > 0 ? busyPauseMillis : pauseMillis);
+            }
+            // Stopped by shutdown: the checkpoint stays RUNNING so the next start resumes
+        } catch (InterruptedException e) {
+            // Same as a shutdown
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Stuck booking repair failed after booking " + job.getAfterId(), e);
+            finish(job, "FAILED", e.getMessage());
+        } finally {
+            synchronized (this) {
+                if (worker == Thread.currentThread())
+                    worker = null;
+            }
+        }
+    }
+
+    /**
+     * Settles the next chunk and saves the checkpoint in the same transaction; false once nothing is left.
+     */
+    boolean runChunk(MaintenanceJob job) {
+        Boolean more = transactions.execute(status -> {
+            List<Long> ids = bookingRepository.findStuckIdsAfter(job.getAfterId(), PageRequest.of(0, chunkSize));
+            if (ids.isEmpty())
+                return false;
+            int fixed = bookingRepository.settleStuck(ids);
+            job.setAfterId(ids.get(ids.size() - 1));
+            job.setProcessed(job.getProcessed() + fixed);
+            job.setUpdatedAt(Instant.now());
+            jobs.save(job);
+            return true;
+        });
+        return Boolean.TRUE.equals(more);
+    }
+
+    private void finish(MaintenanceJob job, String status, String error) {
+        job.setStatus(status);
+        job.setLastError(error);
+        job.setUpdatedAt(Instant.now());
+        try {
+            jobs.save(job);
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not record stuck booking repair as " + status, e);
+        }
+    }
+}
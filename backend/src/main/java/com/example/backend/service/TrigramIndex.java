@@ -0,0 +1,130 @@
+package com.example.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index answering case-insensitive substring queries, the equivalent of
+ * {@code LOWER(text) LIKE LOWER('%query%')} without scanning every document.
+ *
+ * Each document's lower-cased text is split into overlapping 3-character grams with a posting set per gram.
+ * A query intersects the postings of its own grams, smallest first, and then confirms each candidate with a
+ * plain {@code contains} check, so results are exact. Queries shorter than three characters have no grams and
+ * fall back to checking every document. Safe for concurrent use.
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<Long, String> texts = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a document, replacing whatever was stored under the same id. A null text removes it.
+     */
+    public void put(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (text == null)
+                return;
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            for (String gram : grams(normalized))
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of all documents whose text contains the query, ignoring case. An empty query matches every document.
+     */
+    public Set<Long> search(String query) {
+        String q = normalize(query == null ? "" : query);
+        lock.readLock().lock();
+        try {
+            if (q.length() < GRAM) {
+                Set<Long> matches = new HashSet<>();
+                texts.forEach((id, text) -> {
+                    if (text.contains(q))
+                        matches.add(id);
+                });
+                return matches;
+            }
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(q)) {
+                Set<Long> posting = postings.get(gram);
+                if (posting == null)
+                    return new HashSet<>();
+                lists.add(posting);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> matches = new HashSet<>();
+            for (Long id : lists.get(0)) {
+                boolean inAll = true;
+                for (int i = 1; i < lists.size() && inAll; i++)
+                    inAll = lists.get(i).contains(id);
+                // Grams can all be present without being contiguous, so confirm the substring
+                if (inAll && texts.get(id).contains(q))
+                    matches.add(id);
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        String old = texts.remove(id);
+        if (old == null)
+            return;
+        for (String gram : grams(old)) {
+            Set<Long> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty())
+                    postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++)
+            grams.add(text.substring(i, i + GRAM));
+        return grams;
+    }
+
+    // Lower-case only: LIKE does not collapse whitespace, so neither does the index
+    private static String normalize(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Booking;
+import com.example.backend.model.Notification;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.RideRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-ride waitlists for full rides, promoted in order as seats come free.
+ *
+ * A waitlisted passenger is a booking in status WAITLISTED that holds no seats; the queue is the bookings table
+ * in id order, kept in memory per ride and reloaded on startup. Whenever a ride with a waitlist changes after a
+ * commit (a cancellation, rejection or hold expiry returning seats, or the driver adding some) a promotion is
+ * scheduled. Promotions run one at a time on a single thread and take the head of the queue while it fits: the
+ * booking moves to PENDING with a seat hold and its seats are taken with SeatInventory's conditional update, in
+ * one transaction, so each freed seat costs one step and two racing cancellations cannot promote anyone twice.
+ * A head that needs more seats than are free waits; nobody behind it jumps the queue. Bookings that left the
+ * waitlist (cancelled, or the ride was) are dropped when they reach the head.
+ */
+@Component
+public class Waitlist {
+
+    private static final Logger logger = Logger.getLogger(Waitlist.class.getName());
+
+    private final BookingRepository bookingRepository;
+    private final RideRepository rideRepository;
+    private final SeatInventory seatInventory;
+    private final SeatHolds seatHolds;
+    private final NotificationService notificationService;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate transactions;
+
+    private final ConcurrentHashMap<Long, ConcurrentLinkedDeque<Entry>> queues = new ConcurrentHashMap<>();
+    private final ExecutorService promoter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "waitlist-promotion");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong joined = new AtomicLong();
+    private final AtomicLong promoted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public Waitlist(BookingRepository bookingRepository, RideRepository rideRepository, SeatInventory seatInventory,
+            SeatHolds seatHolds, NotificationService notificationService, ApplicationEventPublisher events,
+            PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.rideRepository = rideRepository;
+        this.seatInventory = seatInventory;
+        this.seatHolds = seatHolds;
+        this.notificationService = notificationService;
+        this.events = events;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int n = 0;
+        for (Object[] row : bookingRepository.findWaitlisted()) {
+            enqueue((Long) row[1], (Long) row[0], (Integer) row[2], (Integer) row[3], (Integer) row[4]);
+            n++;
+        }
+        if (n > 0)
+            logger.info("Loaded " + n + " waitlisted bookings on " + queues.size() + " rides");
+        // Seats may have come free while the application was down
+        for (Long rideId : queues.keySet())
+            promoter.execute(() -> promote(rideId));
+    }
+
+    @PreDestroy
+    public void stop() {
+        promoter.shutdownNow();
+    }
+
+    /**
+     * Queues a saved WAITLISTED booking and returns its position on the ride's waitlist (1 is next).
+     */
+    public int add(Booking b) {
+        Long rideId = b.getRide().getId();
+        int position = enqueue(rideId, b.getId(), b.getSeats(), b.getFromStop(), b.getToStop());
+        joined.incrementAndGet();
+        // Seats may have come free between the availability check and the commit
+        promoter.execute(() -> promote(rideId));
+        return position;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRideChanged(RideChangedEvent event) {
+        if (event.isDeleted()) {
+            queues.remove(event.rideId());
+            return;
+        }
+        ConcurrentLinkedDeque<Entry> q = queues.get(event.rideId());
+        if (q == null || q.isEmpty() || event.ride().getTickets() <= 0 || !"OPEN".equals(event.ride().getStatus()))
+            return;
+        promoter.execute(() -> promote(event.rideId()));
+    }
+
+    public Map<String, Object> getStats() {
+        int waiting = 0;
+        for (ConcurrentLinkedDeque<Entry> q : queues.values())
+            waiting += q.size();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rides", queues.size());
+        stats.put("waiting", waiting);
+        stats.put("joined", joined.get());
+        stats.put("promoted", promoted.get());
+        stats.put("dropped", dropped.get());
+        return stats;
+    }
+
+    /**
+     * Promotes from the head of the ride's waitlist while seats allow; returns how many bookings were promoted.
+     * Only ever runs on the promotion thread (tests call it directly).
+     */
+    int promote(Long rideId) {
+        List<Booking> done = new ArrayList<>();
+        try {
+            Ride ride = rideRepository.findById(rideId).orElse(null);
+            if (ride == null || !"OPEN".equals(ride.getStatus()))
+                return 0;
+            while (true) {
+                ConcurrentLinkedDeque<Entry> q = queues.get(rideId);
+                Entry head = q == null ? null : q.peekFirst();
+                if (head == null)
+                    break;
+                Promotion result = transactions.execute(status -> {
+                    if (bookingRepository.promoteWaitlisted(head.bookingId, seatHolds.expiryFromNow()) == 0)
+                        return new Promotion(null, false);
+                    if (!seatInventory.reserve(rideId, head.fromStop, head.toStop, head.seats)) {
+                        status.setRollbackOnly(); // stays WAITLISTED
+                        return new Promotion(null, true);
+                    }
+                    return new Promotion(bookingRepository.findById(head.bookingId).orElse(null), false);
+                });
+                if (result.full)
+                    break;
+                pop(rideId, head);
+                if (result.booking == null) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                seatHolds.track(result.booking);
+                done.add(result.booking);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Waitlist promotion failed for ride " + rideId, e);
+        }
+        if (done.isEmpty())
+            return 0;
+        promoted.addAndGet(done.size());
+        rideRepository.findById(rideId).ifPresent(r -> events.publishEvent(RideChangedEvent.saved(r)));
+        notificationService.enqueueAll(notifications(done));
+        return done.size();
+    }
+
+    private List<Notification> notifications(List<Booking> promotedBookings) {
+        List<Notification> batch = new ArrayList<>(promotedBookings.size() * 2);
+        for (Booking b : promotedBookings) {
+            Ride r = b.getRide();
+            batch.add(new Notification(b.getUserEmail(), "A seat opened up! Your waitlisted booking to "
+                    + b.getDropoffLocation() + " is now sent to the driver.", "WAITLIST_PROMOTED"));
+            if (r != null && r.getDriverEmail() != null)
+                batch.add(new Notification(r.getDriverEmail(), String.format("New Booking from the waitlist! %d seats from %s to %s.",
+                        b.getSeats(), b.getPickupLocation(), b.getDropoffLocation()), "BOOKING_CREATED"));
+        }
+        return batch;
+    }
+
+    // Appends to the ride's queue without scheduling a promotion; returns the new entry's position
+    int enqueue(Long rideId, long bookingId, int seats, Integer fromStop, Integer toStop) {
+        Entry e = new Entry(bookingId, seats, fromStop, toStop);
+        return queues.compute(rideId, (id, q) -> {
+            if (q == null)
+                q = new ConcurrentLinkedDeque<>();
+            q.addLast(e);
+            return q;
+        }).size();
+    }
+
+    private void pop(Long rideId, Entry head) {
+        queues.computeIfPresent(rideId, (id, q) -> {
+            q.remove(head);
+            return q.isEmpty() ? null : q;
+        });
+    }
+
+    static final class Entry {
+        final long bookingId;
+        final int seats;
+        final Integer fromStop; // stops of the stretch wanted, null for the whole ride
+        final Integer toStop;
+
+        Entry(long bookingId, int seats, Integer fromStop, Integer toStop) {
+            this.bookingId = bookingId;
+            this.seats = seats;
+            this.fromStop = fromStop;
+            this.toStop = toStop;
+        }
+    }
+
+    private record Promotion(Booking booking, boolean full) {
+    }
+}
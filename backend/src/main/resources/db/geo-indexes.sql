@@ -0,0 +1,10 @@
+-- Spatial indexes behind RideRepository.findNearby.
+-- GiST indexes over the geography of each ride's start and end point let ST_DWithin
+-- answer radius queries without a scan; the expressions must match the query exactly.
+-- Applied on startup by SearchIndexMigration (PostgreSQL only); every statement is idempotent.
+CREATE EXTENSION IF NOT EXISTS postgis;
+
+CREATE INDEX IF NOT EXISTS idx_ride_from_geo ON rides
+    USING gist (geography(ST_SetSRID(ST_MakePoint(from_lon, from_lat), 4326)));
+CREATE INDEX IF NOT EXISTS idx_ride_to_geo ON rides
+    USING gist (geography(ST_SetSRID(ST_MakePoint(to_lon, to_lat), 4326)));
@@ -0,0 +1,6 @@
+-- Partial index behind the open-ride listings in RideRepository (findOpenPage, findOpenPageAfter, ...).
+-- Only rows a passenger can still book are indexed, so the index stays small as completed and
+-- cancelled rides pile up, and a keyset page is a short forward scan from the cursor.
+-- Applied on startup by SearchIndexMigration (PostgreSQL only); every statement is idempotent.
+CREATE INDEX IF NOT EXISTS idx_ride_open_listing ON rides (created_at DESC, id DESC)
+    WHERE status = 'OPEN' AND tickets > 0;
@@ -0,0 +1,13 @@
+-- Trigram indexes behind RideRepository.searchRides and VehicleRepository.searchVehicles.
+-- Those queries filter on LOWER(col) LIKE '%term%'; a B-tree cannot serve a leading wildcard,
+-- but a GIN gin_trgm_ops index on the same LOWER(col) expression can.
+-- Applied on startup by SearchIndexMigration (PostgreSQL only); every statement is idempotent.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_ride_from_trgm ON rides USING gin (LOWER(from_location) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_ride_to_trgm ON rides USING gin (LOWER(to_location) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_ride_route_trgm ON rides USING gin (LOWER(route) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_vehicle_from_trgm ON vehicles USING gin (LOWER(from_location) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_vehicle_to_trgm ON vehicles USING gin (LOWER(to_location) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_vehicle_route_trgm ON vehicles USING gin (LOWER(route) gin_trgm_ops);
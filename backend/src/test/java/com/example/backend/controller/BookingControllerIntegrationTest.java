@@ -0,0 +1,78 @@
+package com.example.backend.controller;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.RideRepository;
+import com.example.backend.service.GoogleMapsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @MockBean
+    private GoogleMapsService googleMapsService;
+
+    @Test
+    void createBooking_HoldsNoConnectionDuringTheDistanceLookup() throws Exception {
+        Ride ride = new Ride();
+        ride.setFromLocation("Hyderabad");
+        ride.setToLocation("Vizag");
+        ride.setTickets(3);
+        ride.setStatus("OPEN");
+        ride.setDriverEmail("booking-it-driver@example.com");
+        Long rideId = rideRepository.save(ride).getId();
+
+        // Anything bound to the request thread here (a transaction's connection, or an open-in-view
+        // EntityManager that keeps one) would be held for the whole remote lookup
+        List<Object> boundDuringLookup = new ArrayList<>();
+        when(googleMapsService.getDistanceInMeters("Hyderabad", "Vizag")).thenAnswer(inv -> {
+            if (TransactionSynchronizationManager.isActualTransactionActive())
+                boundDuringLookup.add("transaction");
+            boundDuringLookup.addAll(TransactionSynchronizationManager.getResourceMap().keySet());
+            return 620000L;
+        });
+
+        try {
+            mockMvc.perform(post("/api/bookings")
+                    .with(user("booking-it-passenger@example.com").roles("USER"))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"rideId\": " + rideId + ", \"seats\": 1, "
+                            + "\"passengers\": [{\"name\": \"Asha\", \"age\": 30, \"gender\": \"F\"}]}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.passengers[0].name").value("Asha"));
+
+            verify(googleMapsService).getDistanceInMeters("Hyderabad", "Vizag");
+            assertEquals(List.of(), boundDuringLookup);
+        } finally {
+            bookingRepository.deleteAll(bookingRepository.findByRideId(rideId));
+            rideRepository.deleteById(rideId);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Optional;
 import java.util.List;
@@ -16,6 +18,8 @@ import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class BookingServiceTest {
@@ -35,6 +39,21 @@ class BookingServiceTest {
     @Mock
     private GoogleMapsService googleMapsService;
 
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private SeatHolds seatHolds;
+
+    @Mock
+    private Waitlist waitlist;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -52,14 +71,68 @@ class BookingServiceTest {
         ride.setTickets(5); // Available seats
         booking.setRide(ride);
 
+        when(seatInventory.reserve(1L, null, null, 2)).thenReturn(true);
         when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
         when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
 
         Booking created = bookingService.createBooking(booking);
 
         assertNotNull(created);
-        verify(rideRepository, times(1)).save(ride); // Seats should be updated
+        verify(seatInventory).reserve(1L, null, null, 2); // Seats are taken by the conditional update
+        verify(rideRepository, never()).save(any(Ride.class));
         verify(bookingRepository, times(1)).save(booking);
+        verify(events).publishEvent(any(RideChangedEvent.class)); // Search caches see the seat change
+    }
+
+    @Test
+    void createBooking_QuotesBeforeTheTransaction() {
+        Booking booking = new Booking();
+        booking.setSeats(1);
+        booking.setPickupLocation("Hyderabad");
+        booking.setDropoffLocation("Vizag");
+        Ride ride = new Ride();
+        ride.setId(1L);
+        booking.setRide(ride);
+
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(googleMapsService.getDistanceInMeters("Hyderabad", "Vizag")).thenReturn(620000L);
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.createBooking(booking);
+
+        // The remote lookup runs before a connection is taken for the transaction
+        org.mockito.InOrder order = inOrder(googleMapsService, transactionManager, seatInventory);
+        order.verify(googleMapsService).getDistanceInMeters("Hyderabad", "Vizag");
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(seatInventory).reserve(1L, null, null, 1);
+        order.verify(transactionManager).commit(any());
+        assertEquals(1290.0, booking.getTotalPrice(), 0.001);
+    }
+
+    @Test
+    void createBooking_PricesSegmentFromStoredRoute() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        ride.setTickets(5);
+        ride.setFromLocation("Hyderabad");
+        ride.setToLocation("Vizag");
+        new RouteGeometry(List.of("Hyderabad", "Vijayawada", "Rajahmundry", "Vizag"),
+                new long[] { 0, 275000, 430000, 623000 }, null).applyTo(ride);
+        Booking booking = new Booking();
+        booking.setSeats(1);
+        booking.setRide(ride);
+        booking.setPickupLocation("Vijayawada");
+        booking.setDropoffLocation("Vizag");
+
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.createBooking(booking);
+
+        assertEquals(348.0, booking.getDistanceKm(), 0.001);
+        verifyNoInteractions(googleMapsService);
     }
 
     @Test
@@ -71,9 +144,196 @@ class BookingServiceTest {
         ride.setTickets(2); // Only 2 available
         booking.setRide(ride);
 
+        when(seatInventory.reserve(1L, null, null, 5)).thenReturn(false);
         when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
 
         assertThrows(RuntimeException.class, () -> bookingService.createBooking(booking));
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    @Test
+    void cancelBooking_ReleasesSeats() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        ride.setTickets(1);
+        ride.setDriverEmail("driver@example.com");
+        Booking booking = new Booking();
+        booking.setSeats(2);
+        booking.setRide(ride);
+        booking.setUserEmail("rider@example.com");
+        booking.setStatus("PENDING");
+
+        when(bookingRepository.findByIdForUpdate(9L)).thenReturn(Optional.of(booking));
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.cancelBooking(9L, "plans changed", "rider@example.com");
+
+        assertEquals("CANCELLED", booking.getStatus());
+        verify(seatInventory).release(1L, null, null, 2);
+        verify(rideRepository, never()).save(any(Ride.class));
+    }
+
+    @Test
+    void createBooking_HoldsPassengerSeats() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        ride.setDriverEmail("driver@example.com");
+        Booking booking = new Booking();
+        booking.setSeats(1);
+        booking.setRide(ride);
+        booking.setUserEmail("rider@example.com");
+        java.time.Instant expiry = java.time.Instant.now().plusSeconds(1800);
+
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(seatHolds.expiryFromNow()).thenReturn(expiry);
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.createBooking(booking);
+
+        assertEquals(expiry, booking.getHoldExpiresAt());
+        verify(seatHolds).track(booking);
+    }
+
+    @Test
+    void createBooking_DriverReservationIsNotHeld() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        ride.setDriverEmail("driver@example.com");
+        Booking booking = new Booking();
+        booking.setSeats(1);
+        booking.setRide(ride);
+        booking.setUserEmail("driver@example.com");
+
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.createBooking(booking);
+
+        assertNull(booking.getHoldExpiresAt());
+        verify(seatHolds, never()).expiryFromNow();
+    }
+
+    @Test
+    void updateBooking_ConvertsHoldWhenAccepted() {
+        Booking booking = new Booking();
+        booking.setId(4L);
+        booking.setRide(new Ride());
+        booking.setHoldExpiresAt(java.time.Instant.now());
+        booking.setStatus("ACCEPTED");
+
+        when(bookingRepository.convertHold(4L)).thenReturn(1);
+        when(bookingRepository.save(booking)).thenReturn(booking);
+
+        bookingService.updateBooking(booking);
+
+        assertNull(booking.getHoldExpiresAt());
+        verify(bookingRepository).save(booking);
+    }
+
+    @Test
+    void updateBooking_RejectsExpiredHold() {
+        Booking booking = new Booking();
+        booking.setId(4L);
+        booking.setHoldExpiresAt(java.time.Instant.now());
+        booking.setStatus("ACCEPTED");
+
+        when(bookingRepository.convertHold(4L)).thenReturn(0);
+
+        assertThrows(RuntimeException.class, () -> bookingService.updateBooking(booking));
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
+    private static Booking riding(long id, String status, String method, String paymentStatus) {
+        Booking b = new Booking();
+        b.setId(id);
+        b.setStatus(status);
+        b.setPaymentMethod(method);
+        b.setPaymentStatus(paymentStatus);
+        b.setUserEmail("rider" + id + "@example.com");
+        return b;
+    }
+
+    @Test
+    void cancelAllForRide_UpdatesInOneStatementAndNotifiesInOneBatch() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        when(bookingRepository.lockActiveForRide(1L)).thenReturn(List.of(
+                riding(10L, "PENDING", "STRIPE", "UNPAID"), riding(11L, "ACCEPTED", "CASH", "PENDING_COLLECTION")));
+
+        assertEquals(2, bookingService.cancelAllForRide(ride, "Car broke down"));
+
+        verify(bookingRepository).cancelAll(List.of(10L, 11L), "Driver Cancelled: Car broke down");
+        verify(bookingRepository, never()).save(any(Booking.class));
+        verify(notificationService).enqueueAll(argThat(batch -> batch.size() == 2));
+        verify(notificationService, never()).createNotification(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void completeAllForRide_NothingRiding() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        when(bookingRepository.lockInProgressForRide(1L)).thenReturn(List.of());
+
+        assertEquals(0, bookingService.completeAllForRide(ride));
+
+        verify(bookingRepository, never()).completeAll(anyCollection());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void completedStatus_FollowsPaymentState() {
+        assertEquals("CASH_PAYMENT_PENDING", BookingService.completedStatus(riding(1L, "ACCEPTED", "cash", null)));
+        assertEquals("COMPLETED", BookingService.completedStatus(riding(2L, "PAID", "STRIPE", "PAID")));
+        assertEquals("PAYMENT_PENDING", BookingService.completedStatus(riding(3L, "ACCEPTED", "STRIPE", "UNPAID")));
+    }
+
+    @Test
+    void updateBooking_RejectReleasesSeatsOnce() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        Booking booking = new Booking();
+        booking.setId(4L);
+        booking.setRide(ride);
+        booking.setSeats(2);
+        booking.setHoldExpiresAt(java.time.Instant.now());
+        booking.setStatus("REJECTED");
+        when(bookingRepository.rejectLive(4L)).thenReturn(1, 0);
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(bookingRepository.save(booking)).thenReturn(booking);
+
+        bookingService.updateBooking(booking);
+        assertThrows(RuntimeException.class, () -> bookingService.updateBooking(booking));
+
+        verify(seatInventory, times(1)).release(1L, null, null, 2);
+        verify(events).publishEvent(any(RideChangedEvent.class)); // lets the waitlist move up
+        verify(bookingRepository, never()).convertHold(anyLong());
+    }
+
+    @Test
+    void joinWaitlist_OnlyForAFullRide() {
+        Ride ride = new Ride();
+        ride.setId(1L);
+        ride.setStatus("OPEN");
+        ride.setTickets(1);
+        Booking booking = new Booking();
+        booking.setRide(ride);
+        booking.setSeats(2);
+        booking.setUserEmail("rider@example.com");
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(bookingRepository.save(booking)).thenReturn(booking);
+        when(waitlist.add(booking)).thenReturn(3);
+
+        java.util.Map<String, Object> joined = bookingService.joinWaitlist(booking);
+
+        assertEquals(3, joined.get("position"));
+        assertEquals("WAITLISTED", booking.getStatus());
+        verify(seatInventory, never()).reserve(anyLong(), any(), any(), anyInt());
+
+        booking.setSeats(1);
+        assertThrows(RuntimeException.class, () -> bookingService.joinWaitlist(booking));
     }
 
     @Test
@@ -0,0 +1,87 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class CoordinateBackfillTest {
+
+    @Mock
+    private RideRepository repo;
+
+    @Mock
+    private GoogleMapsService googleMapsService;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    private CoordinateBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        backfill = new CoordinateBackfill(repo, googleMapsService, events, true, 2);
+    }
+
+    private static Ride ride(long id, String from, String to) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setFromLocation(from);
+        r.setToLocation(to);
+        return r;
+    }
+
+    @Test
+    void run_WritesCoordinatesChunkByChunkAndSkipsUnlocatedRides() {
+        Ride first = ride(1L, "Hyderabad", "Vijayawada");
+        Ride second = ride(2L, "Nowhere", "Vijayawada");
+        Ride third = ride(5L, "Hyderabad", "Vijayawada");
+        third.setRouteStops("Hyderabad -> Suryapet -> Vijayawada");
+        when(repo.findMissingCoordinatesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(first, second));
+        when(repo.findMissingCoordinatesAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(third));
+        when(repo.findMissingCoordinatesAfter(eq(5L), any(Pageable.class))).thenReturn(List.of());
+        when(googleMapsService.locate("Hyderabad")).thenReturn(new double[] { 17.385, 78.4867 });
+        when(googleMapsService.locate("Suryapet")).thenReturn(new double[] { 17.1405, 79.6236 });
+        when(googleMapsService.locate("Vijayawada")).thenReturn(new double[] { 16.5062, 80.648 });
+        when(repo.setCoordinates(anyLong(), anyString(), anyString(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), any())).thenReturn(1);
+
+        assertEquals(2, backfill.run());
+
+        verify(repo).setCoordinates(1L, "Hyderabad", "Vijayawada", 17.385, 78.4867, 16.5062, 80.648, null);
+        verify(repo).setCoordinates(5L, "Hyderabad", "Vijayawada", 17.385, 78.4867, 16.5062, 80.648,
+                "17.38500,78.48670;17.14050,79.62360;16.50620,80.64800");
+        verify(repo, never()).setCoordinates(eq(2L), anyString(), anyString(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), any());
+        assertEquals(80.648, third.getToLon());
+        verify(events, times(2)).publishEvent(any(RideChangedEvent.class));
+    }
+
+    @Test
+    void run_LeavesRidesEditedSinceTheyWereRead() {
+        when(repo.findMissingCoordinatesAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(ride(1L, "Hyderabad", "Vijayawada")));
+        when(repo.findMissingCoordinatesAfter(eq(1L), any(Pageable.class))).thenReturn(List.of());
+        when(googleMapsService.locate(anyString())).thenReturn(new double[] { 17.385, 78.4867 });
+        when(repo.setCoordinates(anyLong(), anyString(), anyString(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), isNull())).thenReturn(0);
+
+        assertEquals(0, backfill.run());
+        verifyNoInteractions(events);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorridorIndexTest {
+
+    private CorridorIndex bundled() {
+        CorridorIndex index = new CorridorIndex(new DefaultResourceLoader(), "classpath:corridors/corridors.txt");
+        index.load();
+        return index;
+    }
+
+    @Test
+    void findStops_ReversesStopsForReturnTrip() {
+        CorridorIndex index = bundled();
+
+        assertEquals(List.of("Nellore", "Ongole", "Vijayawada", "Suryapet"),
+                index.findStops("Chennai", "Hyderabad"));
+        assertEquals(List.of("Suryapet", "Vijayawada", "Ongole", "Nellore"),
+                index.findStops("Hyderabad", "Chennai"));
+    }
+
+    @Test
+    void findStops_ResolvesAliasesAndAddressParts() {
+        CorridorIndex index = bundled();
+
+        assertEquals(index.findStops("vizag", "hyderabad"),
+                index.findStops("Visakhapatnam, Andhra Pradesh", "Secunderabad Railway Station"));
+        assertEquals("Maddilapalem", index.findStops("Vizag", "Vizianagram").get(0));
+        assertEquals("Kanchipuram", index.findStops("Bengaluru", "chennai").get(3));
+    }
+
+    @Test
+    void findStops_ReturnsNullWithoutCorridor() throws Exception {
+        CorridorIndex index = new CorridorIndex(new DefaultResourceLoader(), "unused");
+        index.load(new StringReader("a > b : x, y\n"));
+
+        assertEquals(1, index.size());
+        assertNull(index.findStops("a", "c"));
+        assertNull(index.findStops("a", "a"));
+        assertNull(index.findStops("Nowhere", "b"));
+    }
+}
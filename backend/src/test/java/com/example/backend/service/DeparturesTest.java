@@ -0,0 +1,91 @@
+package com.example.backend.service;
+
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.MaintenanceJobRepository;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DeparturesTest {
+
+    private static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    @Test
+    void parse_ReadsLegacyDateAndTimeFormats() {
+        assertEquals(Instant.parse("2026-10-17T05:52:00Z"), Departures.parse("2026-10-17", "11:22 AM", IST));
+        assertEquals(Instant.parse("2026-10-17T13:30:00Z"), Departures.parse("17/10/2026", "19:00", IST));
+        assertEquals(LocalDate.of(2026, 3, 4), Departures.parseDate("4/3/2026"));
+        assertEquals(LocalDate.of(2026, 10, 17), Departures.parseDate("17-10-2026"));
+        assertEquals(LocalDate.of(2026, 10, 17), Departures.parseDate("2026-10-17T00:00:00.000Z"));
+        assertEquals(LocalTime.of(23, 5), Departures.parseTime("11:05pm"));
+        assertEquals(LocalTime.of(19, 0, 30), Departures.parseTime("19:00:30"));
+    }
+
+    @Test
+    void parse_FallsBackToStartOfDayAndRejectsUnreadableDates() {
+        assertEquals(Instant.parse("2026-10-16T18:30:00Z"), Departures.parse("2026-10-17", "soon", IST));
+        assertNull(Departures.parse("next tuesday", "11:22 AM", IST));
+        assertNull(Departures.parse(null, null, IST));
+    }
+
+    @Test
+    void backfill_WalksChunksAndSkipsUnreadableRows() {
+        RideRepository repo = mock(RideRepository.class);
+        Ride readable = ride(1L, "2026-10-17", "07:00");
+        Ride unreadable = ride(2L, "someday", null);
+        Ride later = ride(3L, "18/10/2026", "6:15 PM");
+        when(repo.findMissingDepartureAfter(eq(0L), any())).thenReturn(List.of(readable, unreadable));
+        when(repo.findMissingDepartureAfter(eq(2L), any())).thenReturn(List.of(later));
+        when(repo.findMissingDepartureAfter(eq(3L), any())).thenReturn(List.of());
+        when(repo.setDepartureAt(anyLong(), any())).thenReturn(1);
+        MaintenanceJobRepository jobs = mock(MaintenanceJobRepository.class);
+        when(jobs.findById(DepartureBackfill.JOB)).thenReturn(Optional.empty());
+        when(jobs.save(any(MaintenanceJob.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        int filled = new DepartureBackfill(repo, jobs, true, "Asia/Kolkata", 2).run();
+
+        assertEquals(2, filled);
+        verify(repo).setDepartureAt(1L, Instant.parse("2026-10-17T01:30:00Z"));
+        verify(repo).setDepartureAt(3L, Instant.parse("2026-10-18T12:45:00Z"));
+        verify(repo, never()).setDepartureAt(eq(2L), any());
+        verify(repo).findMissingDepartureAfter(0L, PageRequest.of(0, 2));
+        // Only the departure column is written; whole rows would overwrite seats booked meanwhile
+        verify(repo, never()).saveAll(anyList());
+    }
+
+    @Test
+    void backfill_ContinuesAfterTheCheckpointSoUnreadableRowsAreReadOnce() {
+        RideRepository repo = mock(RideRepository.class);
+        MaintenanceJobRepository jobs = mock(MaintenanceJobRepository.class);
+        MaintenanceJob done = new MaintenanceJob(DepartureBackfill.JOB);
+        done.setStatus("DONE");
+        done.setAfterId(3L); // ride 2 is still null: its date could not be read
+        when(jobs.findById(DepartureBackfill.JOB)).thenReturn(Optional.of(done));
+        when(repo.findMissingDepartureAfter(eq(3L), any())).thenReturn(List.of());
+
+        assertEquals(0, new DepartureBackfill(repo, jobs, true, "Asia/Kolkata", 2).run());
+
+        verify(repo, never()).findMissingDepartureAfter(eq(0L), any());
+        verify(jobs, never()).save(any(MaintenanceJob.class));
+    }
+
+    private static Ride ride(Long id, String date, String time) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setDate(date);
+        r.setTime(time);
+        return r;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceCacheTest {
+
+    @Test
+    void key_NormalizesCaseAndWhitespace() {
+        assertEquals(DistanceCache.key("Hyderabad", "Vizag", null),
+                DistanceCache.key("  hyderabad ", "VIZAG", ""));
+        assertEquals(DistanceCache.key("A", "B", "Tuni, Eluru"),
+                DistanceCache.key("a", "b", "tuni ,eluru"));
+        assertNotEquals(DistanceCache.key("A", "B", null), DistanceCache.key("B", "A", null));
+    }
+
+    @Test
+    void get_CountsHitsAndMisses() {
+        DistanceCache cache = new DistanceCache(10, 60);
+        String key = DistanceCache.key("Bangalore", "Chennai", null);
+
+        assertNull(cache.get(key));
+        cache.put(key, 346000L);
+        assertEquals(346000L, cache.get(key));
+
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+    }
+
+    @Test
+    void put_EvictsLeastRecentlyUsedWhenFull() {
+        DistanceCache cache = new DistanceCache(2, 60);
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        cache.get("a"); // "b" is now the least recently used entry
+        cache.put("c", 3L);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(1L, cache.get("a"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void get_ExpiresEntriesAfterTtl() {
+        DistanceCache cache = new DistanceCache(10, 0);
+        cache.put("a", 1L);
+
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GeoGridTest {
+
+    // Gachibowli, Secunderabad and Vijayawada
+    private static final double[] GACHIBOWLI = { 17.4401, 78.3489 };
+    private static final double[] SECUNDERABAD = { 17.4399, 78.4983 };
+    private static final double[] VIJAYAWADA = { 16.5062, 80.6480 };
+
+    @Test
+    void within_FiltersByExactDistanceAcrossCells() {
+        GeoGrid grid = new GeoGrid(2);
+        grid.put(1, SECUNDERABAD[0], SECUNDERABAD[1]);
+        grid.put(2, VIJAYAWADA[0], VIJAYAWADA[1]);
+
+        Map<Long, Double> near = grid.within(GACHIBOWLI[0], GACHIBOWLI[1], 20_000);
+
+        assertEquals(Set.of(1L), near.keySet());
+        assertEquals(15_900, near.get(1L), 200);
+        assertTrue(grid.within(GACHIBOWLI[0], GACHIBOWLI[1], 10_000).isEmpty());
+    }
+
+    @Test
+    void put_MovesAndRemoveForgets() {
+        GeoGrid grid = new GeoGrid(5);
+        grid.put(1, SECUNDERABAD[0], SECUNDERABAD[1]);
+        grid.put(1, VIJAYAWADA[0], VIJAYAWADA[1]);
+
+        assertEquals(1, grid.size());
+        assertTrue(grid.within(SECUNDERABAD[0], SECUNDERABAD[1], 1_000).isEmpty());
+        assertEquals(Set.of(1L), grid.within(VIJAYAWADA[0], VIJAYAWADA[1], 1_000).keySet());
+
+        grid.remove(1);
+        assertEquals(0, grid.size());
+        assertTrue(grid.within(VIJAYAWADA[0], VIJAYAWADA[1], 1_000).isEmpty());
+    }
+
+    @Test
+    void rideGeoIndex_RequiresBothEndsNearbyAndFollowsEvents() {
+        RideRepository repo = mock(RideRepository.class);
+        Ride toVijayawada = ride(1L, SECUNDERABAD, VIJAYAWADA);
+        Ride reverse = ride(2L, VIJAYAWADA, SECUNDERABAD);
+        when(repo.findOpenEndPoints()).thenReturn(List.of(endPoints(toVijayawada), endPoints(reverse)));
+
+        RideGeoIndex index = new RideGeoIndex(repo, "memory", 5);
+        index.load();
+
+        Map<Long, double[]> matches = index.search(GACHIBOWLI[0], GACHIBOWLI[1], 20_000,
+                VIJAYAWADA[0], VIJAYAWADA[1], 5_000);
+        assertEquals(Set.of(1L), matches.keySet());
+        assertEquals(0, matches.get(1L)[1], 1);
+
+        index.onRideChanged(RideChangedEvent.deleted(1L));
+        assertTrue(index.search(GACHIBOWLI[0], GACHIBOWLI[1], 20_000, VIJAYAWADA[0], VIJAYAWADA[1], 5_000)
+                .isEmpty());
+    }
+
+    @Test
+    void rideGeoIndex_DropsRidesThatAreNoLongerOpen() {
+        RideRepository repo = mock(RideRepository.class);
+        RideGeoIndex index = new RideGeoIndex(repo, "memory", 5);
+        Ride ride = ride(1L, SECUNDERABAD, VIJAYAWADA);
+        index.onRideChanged(RideChangedEvent.saved(ride));
+        assertEquals(Set.of(1L), index.search(GACHIBOWLI[0], GACHIBOWLI[1], 20_000, VIJAYAWADA[0], VIJAYAWADA[1],
+                5_000).keySet());
+
+        ride.setStatus("COMPLETED");
+        index.onRideChanged(RideChangedEvent.saved(ride));
+
+        assertTrue(index.search(GACHIBOWLI[0], GACHIBOWLI[1], 20_000, VIJAYAWADA[0], VIJAYAWADA[1], 5_000)
+                .isEmpty());
+    }
+
+    private static Object[] endPoints(Ride r) {
+        return new Object[] { r.getId(), r.getFromLat(), r.getFromLon(), r.getToLat(), r.getToLon() };
+    }
+
+    private static Ride ride(Long id, double[] from, double[] to) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setFromLat(from[0]);
+        r.setFromLon(from[1]);
+        r.setToLat(to[0]);
+        r.setToLon(to[1]);
+        return r;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeocodeStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void put_SurvivesRestart() {
+        Path file = dir.resolve("geocode.tsv");
+        GeocodeStore store = new GeocodeStore(file.toString());
+        store.load();
+        store.put("Hyderabad", 17.385, 78.4867);
+        store.close();
+
+        GeocodeStore reloaded = new GeocodeStore(file.toString());
+        reloaded.load();
+
+        assertArrayEquals(new double[] { 17.385, 78.4867 }, reloaded.get("  HYDERABAD "));
+        assertNull(reloaded.get("Vizag"));
+    }
+
+    @Test
+    void load_SkipsTruncatedLines() throws Exception {
+        Path file = dir.resolve("geocode.tsv");
+        Files.writeString(file, "chennai\t13.0827\t80.2707\nvizag\t17.68");
+
+        GeocodeStore store = new GeocodeStore(file.toString());
+        store.load();
+
+        assertEquals(1, store.size());
+        assertNotNull(store.get("Chennai"));
+    }
+}
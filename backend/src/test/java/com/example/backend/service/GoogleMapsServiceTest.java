@@ -0,0 +1,159 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GoogleMapsServiceTest {
+
+    private ExecutorService executor;
+    private RestTemplate restTemplate;
+    private DistanceCache distanceCache;
+    private GoogleMapsService service;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        restTemplate = mock(RestTemplate.class);
+        distanceCache = new DistanceCache(100, 60);
+        LocalRoutingService routing = new LocalRoutingService(new DefaultResourceLoader(),
+                "classpath:routing/test.graph", 2, 30);
+        routing.load();
+        service = new GoogleMapsService(distanceCache, new GeocodeStore(""), routing,
+                new CorridorIndex(new DefaultResourceLoader(), "classpath:corridors/missing.txt"), places(),
+                restTemplate, executor);
+    }
+
+    private static PlaceDirectory places() {
+        PlaceDirectory places = new PlaceDirectory(new DefaultResourceLoader(), "classpath:places/india.places");
+        places.load();
+        return places;
+    }
+
+    // A and D are graph nodes with no road between them, so only the great-circle estimate can answer
+    private static long estimateAToD() {
+        return Math.round(RoadGraph.haversineMeters(17.00, 80.00, 18.50, 82.00) * 1.3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void getDistanceInMeters_RoutesLocallyAndCaches() {
+        assertEquals(20000L, service.getDistanceInMeters("A", "C"));
+        assertEquals(20000L, service.getDistanceInMetersAsync("a ", "c").join());
+
+        assertEquals(1L, distanceCache.getStats().get("hits"));
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void getDistanceInMeters_WaypointsAreRoutedLegByLeg() {
+        // A -> C direct is 20 km via B; forcing a detour back through A costs 10 + 10 + 20
+        assertEquals(40000L, service.getDistanceInMeters("A", "C", "B, A"));
+    }
+
+    @Test
+    void getDistanceInMeters_UnresolvableRouteFallsBackToEstimateWithoutCaching() {
+        long distance = service.getDistanceInMeters("A", "D");
+
+        assertEquals(estimateAToD(), distance);
+        assertEquals(0, distanceCache.size());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> lookups = (Map<String, Object>) service.getCacheStats().get("routeLookups");
+        assertEquals(1L, lookups.get("executions"));
+    }
+
+    @Test
+    void estimateDistanceInMeters_UsesPlaceTableWithoutRemoteCalls() {
+        long meters = service.estimateDistanceInMeters("Mumbai", "Pune, Maharashtra", null);
+
+        // ~120 km great-circle, ~150 km by road
+        assertTrue(meters > 140000L && meters < 170000L, "estimate " + meters);
+        assertEquals(0, distanceCache.size());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void estimateDistanceInMeters_PrefersCachedRoadDistanceAndMocksUnknownPlaces() {
+        service.getDistanceInMeters("A", "C");
+
+        assertEquals(20000L, service.estimateDistanceInMeters("A", "C", null));
+        assertEquals(10000L + 15 * 1000, service.estimateDistanceInMeters("Atlantis", "Lemuria", null));
+    }
+
+    @Test
+    void getDistancesInMeters_ResolvesBatchLocallyAndFromCache() {
+        service.getDistanceInMeters("A", "B");
+
+        Map<RoutePair, Long> result = service.getDistancesInMeters(List.of(
+                new RoutePair("A", "B"), new RoutePair("B", "C"), new RoutePair("A", "D")));
+
+        assertEquals(10000L, result.get(new RoutePair("A", "B")));
+        assertEquals(10000L, result.get(new RoutePair("B", "C")));
+        assertEquals(estimateAToD(), result.get(new RoutePair("A", "D")));
+        assertEquals(2, distanceCache.size());
+    }
+
+    @Test
+    void resolveRouteGeometry_AccumulatesLegDistances() {
+        RouteGeometry geometry = service.resolveRouteGeometry(List.of("A", "B", "C"));
+
+        assertEquals(20000L, geometry.totalMeters());
+        assertEquals(10000L, geometry.segmentMeters("B", "C"));
+        assertNotNull(geometry.getPolyline());
+    }
+
+    @Test
+    void getDistancesInMeters_GroupsPairsIntoMatrixTiles() {
+        ReflectionTestUtils.setField(service, "apiKey", "test-key");
+        // Every tile answers 5 km for each of its elements
+        when(restTemplate.getForObject(anyString(), eq(Map.class))).thenAnswer(inv -> {
+            String url = inv.getArgument(0);
+            int origins = param(url, "origins").split("%7C|\\|").length;
+            int destinations = param(url, "destinations").split("%7C|\\|").length;
+            List<Object> rows = new ArrayList<>();
+            for (int i = 0; i < origins; i++) {
+                List<Object> elements = new ArrayList<>();
+                for (int j = 0; j < destinations; j++)
+                    elements.add(Map.of("distance", Map.of("value", 5000)));
+                rows.add(Map.of("elements", elements));
+            }
+            return Map.of("rows", rows);
+        });
+
+        List<RoutePair> pairs = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            pairs.add(new RoutePair("Origin " + i, "Chennai"));
+        Map<RoutePair, Long> result = service.getDistancesInMeters(pairs);
+
+        assertEquals(30, result.size());
+        assertTrue(result.values().stream().allMatch(d -> d == 5000L));
+        // 30 origins x 1 destination fits in two 25-origin requests
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(Map.class));
+    }
+
+    private static String param(String url, String name) {
+        for (String part : url.substring(url.indexOf('?') + 1).split("&")) {
+            if (part.startsWith(name + "="))
+                return part.substring(name.length() + 1);
+        }
+        return "";
+    }
+}
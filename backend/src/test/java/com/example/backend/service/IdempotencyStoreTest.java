@@ -0,0 +1,197 @@
+package com.example.backend.service;
+
+import com.example.backend.model.IdempotencyRecord;
+import com.example.backend.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyStoreTest {
+
+    @Mock
+    private IdempotencyRecordRepository repo;
+
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(repo.findById(anyString())).thenReturn(Optional.empty());
+        when(repo.claim(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(1);
+        store = new IdempotencyStore(repo, new ObjectMapper(), 2, 24, 5, 300);
+    }
+
+    @Test
+    void execute_ReplaysTheFirstResponse() {
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> body = Map.of("rideId", 1, "seats", 2);
+
+        ResponseEntity<?> first = store.execute("book", "a@example.com", "k1", body,
+                () -> ResponseEntity.ok(Map.of("id", runs.incrementAndGet())));
+        ResponseEntity<?> second = store.execute("book", "a@example.com", "k1", body,
+                () -> ResponseEntity.ok(Map.of("id", runs.incrementAndGet())));
+
+        assertEquals(1, runs.get());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals("true", second.getHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    @Test
+    void execute_RefusesAKeyReusedForAnotherRequest() {
+        store.execute("book", "a@example.com", "k1", Map.of("seats", 1), () -> ResponseEntity.ok("one"));
+
+        ResponseEntity<?> r = store.execute("book", "a@example.com", "k1", Map.of("seats", 2),
+                () -> ResponseEntity.ok("two"));
+
+        assertEquals(422, r.getStatusCode().value());
+    }
+
+    @Test
+    void execute_RunsAgainAfterAServerError() {
+        AtomicInteger runs = new AtomicInteger();
+
+        store.execute("pay", "a@example.com", "k1", null, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(500).body("down");
+        });
+        ResponseEntity<?> r = store.execute("pay", "a@example.com", "k1", null, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok("paid");
+        });
+
+        assertEquals(2, runs.get());
+        assertEquals("paid", r.getBody());
+    }
+
+    @Test
+    void execute_ConcurrentDuplicatesRunOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+
+        Future<ResponseEntity<?>> first = pool.submit(() -> store.execute("book", "a", "k", null, () -> {
+            runs.incrementAndGet();
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.ok("booked");
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        List<Future<ResponseEntity<?>>> duplicates = List.of(
+                pool.submit(() -> store.execute("book", "a", "k", null, () -> ResponseEntity.ok("again"))),
+                pool.submit(() -> store.execute("book", "a", "k", null, () -> ResponseEntity.ok("again"))));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("booked", first.get(5, TimeUnit.SECONDS).getBody());
+        for (Future<ResponseEntity<?>> d : duplicates)
+            assertEquals("booked", d.get(5, TimeUnit.SECONDS).getBody());
+        assertEquals(1, runs.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void execute_MatchesTheSameRequestWithFieldsInAnotherOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("rideId", 1);
+        first.put("seats", 2);
+        first.put("passengers", List.of(Map.of("name", "Asha", "age", 30)));
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("passengers", List.of(new TreeMap<>(Map.of("age", 30, "name", "Asha"))));
+        reordered.put("seats", 2);
+        reordered.put("rideId", 1);
+        AtomicInteger runs = new AtomicInteger();
+
+        store.execute("book", "a", "k1", first, () -> ResponseEntity.ok(runs.incrementAndGet()));
+        ResponseEntity<?> r = store.execute("book", "a", "k1", reordered,
+                () -> ResponseEntity.ok(runs.incrementAndGet()));
+
+        assertEquals(1, runs.get());
+        assertEquals(200, r.getStatusCode().value());
+    }
+
+    @Test
+    void execute_ClaimsTheKeyFirstAndStoresTheResponseOnCompletion() {
+        store.execute("book", "a", "k1", null, () -> {
+            verify(repo).claim(eq("book|a|k1"), anyString(), any(Instant.class), any(Instant.class));
+            return ResponseEntity.ok(Map.of("id", 1));
+        });
+
+        verify(repo).complete(eq("book|a|k1"), eq(200), eq("{\"id\":1}"), any(Instant.class));
+        verify(repo, never()).release(anyString());
+    }
+
+    @Test
+    void execute_GivesTheKeyUpAfterAServerError() {
+        store.execute("pay", "a", "k1", null, () -> ResponseEntity.status(500).body("down"));
+
+        verify(repo).release("pay|a|k1");
+        verify(repo, never()).complete(anyString(), anyInt(), anyString(), any(Instant.class));
+    }
+
+    @Test
+    void execute_WaitsForTheKeyHeldByAnotherInstance() {
+        ArgumentCaptor<String> fingerprint = ArgumentCaptor.forClass(String.class);
+        store.execute("book", "a", "k1", null, () -> ResponseEntity.ok(Map.of("id", 1)));
+        verify(repo).claim(eq("book|a|k1"), fingerprint.capture(), any(Instant.class), any(Instant.class));
+
+        // A retry on another instance finds the key claimed; the response lands in the table while it polls
+        when(repo.claim(anyString(), anyString(), any(Instant.class), any(Instant.class))).thenReturn(0);
+        IdempotencyRecord running = new IdempotencyRecord("book|a|k1", fingerprint.getValue(), 0, null,
+                Instant.now().plusSeconds(300));
+        running.setState("IN_PROGRESS");
+        IdempotencyRecord done = new IdempotencyRecord("book|a|k1", fingerprint.getValue(), 200, "{\"id\":1}",
+                Instant.now().plusSeconds(3600));
+        done.setState("DONE");
+        when(repo.findById("book|a|k1")).thenReturn(Optional.of(running), Optional.of(running), Optional.of(done));
+        IdempotencyStore other = new IdempotencyStore(repo, new ObjectMapper(), 2, 24, 5, 300);
+        AtomicInteger runs = new AtomicInteger();
+
+        ResponseEntity<?> r = other.execute("book", "a", "k1", null, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok(Map.of("id", 9));
+        });
+
+        assertEquals(0, runs.get());
+        assertEquals("{\"id\":1}", r.getBody().toString());
+    }
+
+    @Test
+    void execute_WithoutAKeyJustRuns() {
+        AtomicInteger runs = new AtomicInteger();
+
+        store.execute("book", "a", null, null, () -> ResponseEntity.ok(runs.incrementAndGet()));
+        store.execute("book", "a", " ", null, () -> ResponseEntity.ok(runs.incrementAndGet()));
+
+        assertEquals(2, runs.get());
+        verifyNoInteractions(repo);
+    }
+}
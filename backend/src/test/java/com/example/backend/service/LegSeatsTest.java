@@ -0,0 +1,76 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegSeatsTest {
+
+    @Test
+    void add_TakesSeatsOverARangeOfLegs() {
+        LegSeats seats = new LegSeats(new int[] { 4, 4, 4, 4, 4 });
+
+        seats.add(1, 3, -3);
+        assertEquals(1, seats.min(0, 5));
+        assertEquals(4, seats.min(3, 5));
+        assertEquals(4, seats.max());
+        seats.add(0, 5, -4);
+        assertEquals(0, seats.max());
+        assertArrayEquals(new int[] { 0, -3, -3, 0, 0 }, seats.toArray());
+        assertThrows(IllegalArgumentException.class, () -> seats.min(2, 2));
+        assertThrows(IllegalArgumentException.class, () -> seats.add(0, 6, 1));
+    }
+
+    @Test
+    void minAndMax_MatchAPlainArray() {
+        Random random = new Random(7);
+        int[] plain = new int[37];
+        java.util.Arrays.fill(plain, 50);
+        LegSeats seats = new LegSeats(plain.clone());
+        for (int round = 0; round < 2000; round++) {
+            int from = random.nextInt(plain.length);
+            int to = from + 1 + random.nextInt(plain.length - from);
+            int delta = random.nextInt(7) - 3;
+            seats.add(from, to, delta);
+            for (int i = from; i < to; i++)
+                plain[i] += delta;
+
+            int a = random.nextInt(plain.length);
+            int b = a + 1 + random.nextInt(plain.length - a);
+            int expected = Integer.MAX_VALUE;
+            for (int i = a; i < b; i++)
+                expected = Math.min(expected, plain[i]);
+            assertEquals(expected, seats.min(a, b));
+        }
+        assertEquals(java.util.Arrays.stream(plain).max().getAsInt(), seats.max());
+        assertArrayEquals(plain, seats.toArray());
+    }
+
+    @Test
+    void parse_RoundTripsThroughFormat() {
+        assertEquals("3,0,12", LegSeats.parse("3, 0,12").format());
+        assertNull(LegSeats.parse(null));
+        assertNull(LegSeats.parse(""));
+        assertNull(LegSeats.parse("3,x"));
+    }
+
+    @Test
+    void forSegment_UsesTheLegsBetweenStops() {
+        Ride ride = new Ride();
+        new RouteGeometry(java.util.List.of("Hyderabad", "Suryapet", "Vijayawada", "Vizag"),
+                new long[] { 0, 136000, 275000, 623000 }, null).applyTo(ride);
+        ride.setTickets(3);
+        ride.setLegSeats("3,0,2");
+
+        assertEquals(3, LegSeats.forSegment(ride, "Hyderabad", "Suryapet"));
+        assertEquals(2, LegSeats.forSegment(ride, "Vijayawada", "Vizag"));
+        assertEquals(0, LegSeats.forSegment(ride, "Hyderabad", "Vizag"));
+        assertEquals(0, LegSeats.forSegment(ride, "Chennai", "Vizag")); // not a stop: the whole ride
+
+        ride.setLegSeats(null);
+        assertEquals(3, LegSeats.forSegment(ride, "Vijayawada", "Vizag"));
+    }
+}
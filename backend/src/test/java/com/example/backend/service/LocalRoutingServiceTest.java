@@ -0,0 +1,118 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRoutingServiceTest {
+
+    private LocalRoutingService load(String location) {
+        LocalRoutingService service = new LocalRoutingService(new DefaultResourceLoader(), location, 4, 30);
+        service.load();
+        return service;
+    }
+
+    @Test
+    void distanceInMeters_UsesShortestPathByName() {
+        LocalRoutingService routing = load("classpath:routing/test.graph");
+
+        assertTrue(routing.isEnabled());
+        assertEquals(20000L, routing.distanceInMeters("Alpha", "c", p -> null));
+        assertEquals(10000L, routing.distanceInMeters("B, Some District", "A", p -> null));
+    }
+
+    @Test
+    void distanceInMeters_ReturnsNullWhenUnreachableOrUnknown() {
+        LocalRoutingService routing = load("classpath:routing/test.graph");
+
+        assertNull(routing.distanceInMeters("A", "D", p -> null));
+        assertNull(routing.distanceInMeters("A", "Nowhere", p -> null));
+    }
+
+    @Test
+    void distanceInMeters_SnapsGeocodedPointsToNearestNode() {
+        LocalRoutingService routing = load("classpath:routing/test.graph");
+
+        // ~1.1 km north of C
+        Long meters = routing.distanceInMeters("A", "Near C", p -> new double[] { 17.01, 80.18 });
+
+        assertNotNull(meters);
+        assertTrue(meters > 20000L && meters < 23000L);
+    }
+
+    @Test
+    void load_MissingGraphDisablesRouting() {
+        LocalRoutingService routing = load("classpath:routing/missing.graph");
+
+        assertFalse(routing.isEnabled());
+        assertNull(routing.distanceInMeters("A", "B", p -> null));
+    }
+
+    @Test
+    void bundledGraph_AnswersMainCorridors() {
+        LocalRoutingService routing = load("classpath:routing/south-india.graph");
+
+        assertEquals(623000L, routing.distanceInMeters("Hyderabad", "Visakhapatnam", p -> null));
+        assertEquals(routing.distanceInMeters("Chennai", "Bangalore", p -> null),
+                routing.distanceInMeters("Bengaluru", "Chennai", p -> null));
+    }
+
+    @Test
+    void shortestPath_MatchesPlainDijkstraOnRandomGraph() throws Exception {
+        Random random = new Random(42);
+        int n = 300;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            sb.append("N ").append(i).append(' ').append(random.nextDouble()).append(' ')
+                    .append(random.nextDouble()).append('\n');
+        int[][] w = new int[n][n];
+        for (int i = 1; i < n; i++) {
+            // spanning chain keeps it connected, plus random shortcuts
+            addEdge(sb, w, i - 1, i, 1 + random.nextInt(1000));
+            addEdge(sb, w, random.nextInt(n), random.nextInt(n), 1 + random.nextInt(3000));
+        }
+        RoadGraph graph = RoadGraph.parse(new BufferedReader(new StringReader(sb.toString())), 6);
+
+        for (int q = 0; q < 50; q++) {
+            int s = random.nextInt(n);
+            int t = random.nextInt(n);
+            assertEquals(dijkstra(w, s, t), graph.shortestPath(s, t), "query " + s + " -> " + t);
+        }
+    }
+
+    private static void addEdge(StringBuilder sb, int[][] w, int a, int b, int meters) {
+        if (a == b)
+            return;
+        sb.append("E ").append(a).append(' ').append(b).append(' ').append(meters).append('\n');
+        if (w[a][b] == 0 || meters < w[a][b]) {
+            w[a][b] = meters;
+            w[b][a] = meters;
+        }
+    }
+
+    private static long dijkstra(int[][] w, int s, int t) {
+        int n = w.length;
+        long[] dist = new long[n];
+        boolean[] done = new boolean[n];
+        java.util.Arrays.fill(dist, Long.MAX_VALUE);
+        dist[s] = 0;
+        for (int round = 0; round < n; round++) {
+            int v = -1;
+            for (int i = 0; i < n; i++)
+                if (!done[i] && dist[i] != Long.MAX_VALUE && (v < 0 || dist[i] < dist[v]))
+                    v = i;
+            if (v < 0)
+                break;
+            done[v] = true;
+            for (int u = 0; u < n; u++)
+                if (w[v][u] > 0 && dist[v] + w[v][u] < dist[u])
+                    dist[u] = dist[v] + w[v][u];
+        }
+        return dist[t] == Long.MAX_VALUE ? -1 : dist[t];
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Notification;
+import com.example.backend.repository.NotificationRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rows per second for a 10k-notification fan-out against the configured database: the old path, one INSERT
+ * and id read-back per row into a temporary copy of the notifications table keyed by IDENTITY, against the
+ * batched saveAll path on the pooled sequence. Needs PostgreSQL, so it only runs when asked:
+ * BENCHMARK=true ./gradlew test --tests '*NotificationBatchBenchmark'
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class NotificationBatchBenchmark {
+
+    private static final Logger logger = Logger.getLogger(NotificationBatchBenchmark.class.getName());
+
+    private static final int ROWS = 10_000;
+    private static final String RECIPIENTS = "bench-%@example.com";
+    private static final String IDENTITY_TABLE = "bench_identity_notifications";
+
+    @Autowired
+    private NotificationRepository repo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void fanOut_BatchedInsertsBeatRowByRow() throws SQLException {
+        double rowByRow = rowByRowWithIdentity(fanOut("row"));
+
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        try {
+            double batched = rowsPerSecond(() -> transactions.executeWithoutResult(status -> repo.saveAll(fanOut("batch"))));
+
+            logger.info(String.format("Notification fan-out of %d: row by row on IDENTITY %.0f rows/s, "
+                    + "batched on the sequence %.0f rows/s (%.1fx)", ROWS, rowByRow, batched, batched / rowByRow));
+            assertTrue(batched > rowByRow, "batched " + batched + " rows/s, row by row " + rowByRow + " rows/s");
+        } finally {
+            transactions.executeWithoutResult(status -> entityManager
+                    .createQuery("DELETE FROM Notification n WHERE n.recipientEmail LIKE :recipients")
+                    .setParameter("recipients", RECIPIENTS)
+                    .executeUpdate());
+        }
+    }
+
+    // One transaction, one INSERT per row reading its IDENTITY id back, as Hibernate inserted before the sequence
+    private double rowByRowWithIdentity(List<Notification> rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement ddl = connection.createStatement()) {
+            ddl.execute("CREATE TEMPORARY TABLE " + IDENTITY_TABLE + " (LIKE notifications INCLUDING DEFAULTS)");
+            ddl.execute("ALTER TABLE " + IDENTITY_TABLE + " ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY");
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + IDENTITY_TABLE
+                    + " (recipient_email, message, type, is_read, created_at) VALUES (?, ?, ?, false, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                long began = System.nanoTime();
+                for (Notification n : rows) {
+                    insert.setString(1, n.getRecipientEmail());
+                    insert.setString(2, n.getMessage());
+                    insert.setString(3, n.getType());
+                    insert.setTimestamp(4, Timestamp.from(n.getCreatedAt()));
+                    insert.executeUpdate();
+                    try (ResultSet id = insert.getGeneratedKeys()) {
+                        id.next();
+                    }
+                }
+                connection.commit();
+                return ROWS / ((System.nanoTime() - began) / 1e9);
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                ddl.execute("DROP TABLE IF EXISTS " + IDENTITY_TABLE);
+            }
+        }
+    }
+
+    private static List<Notification> fanOut(String run) {
+        List<Notification> batch = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            batch.add(new Notification("bench-" + run + "-" + i + "@example.com", "Ride Cancelled by Driver: benchmark",
+                    "RIDE_CANCELLED"));
+        return batch;
+    }
+
+    private static double rowsPerSecond(Runnable insert) {
+        long began = System.nanoTime();
+        insert.run();
+        return ROWS / ((System.nanoTime() - began) / 1e9);
+    }
+}
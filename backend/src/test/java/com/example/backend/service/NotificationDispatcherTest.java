@@ -0,0 +1,142 @@
+package com.example.backend.service;
+
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.model.Notification;
+import com.example.backend.repository.MaintenanceJobRepository;
+import com.example.backend.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationDispatcherTest {
+
+    @Mock
+    private NotificationRepository repo;
+
+    @Mock
+    private MaintenanceJobRepository jobs;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        dispatcher = new NotificationDispatcher(repo, jobs, messagingTemplate, 1, 2, 10, 30, 24);
+    }
+
+    private static Notification notification(long id, String email) {
+        Notification n = new Notification(email, "Ride Cancelled by Driver", "RIDE_CANCELLED");
+        n.setId(id);
+        return n;
+    }
+
+    @Test
+    void dispatch_PushesAndMarksTheBatch() {
+        Notification first = notification(1L, "a@example.com");
+        Notification second = notification(2L, "b@example.com");
+
+        assertEquals(2, dispatcher.dispatch(List.of(first, second)));
+
+        verify(messagingTemplate).convertAndSend("/topic/user/a@example.com", first);
+        verify(messagingTemplate).convertAndSend("/topic/user/b@example.com", second);
+        verify(repo).markDispatched(eq(List.of(1L, 2L)), any(Instant.class));
+    }
+
+    @Test
+    void dispatch_LeavesFailedPushesForTheSweep() {
+        Notification first = notification(1L, "a@example.com");
+        Notification second = notification(2L, "b@example.com");
+        doThrow(new IllegalStateException("broker down")).when(messagingTemplate)
+                .convertAndSend("/topic/user/a@example.com", first);
+
+        assertEquals(1, dispatcher.dispatch(List.of(first, second)));
+
+        verify(repo).markDispatched(eq(List.of(2L)), any(Instant.class));
+        assertEquals(1L, dispatcher.getStats().get("failures"));
+    }
+
+    @Test
+    void sweep_PushesMissedRowsUntilNoneAreLeft() {
+        when(repo.findUndispatched(any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(notification(1L, "a@example.com"), notification(2L, "a@example.com")))
+                .thenReturn(List.of());
+
+        assertEquals(2, dispatcher.sweep());
+
+        verify(repo, times(2)).findUndispatched(any(Instant.class), any(Pageable.class));
+        assertEquals(2L, dispatcher.getStats().get("swept"));
+    }
+
+    @Test
+    void retireStale_MarksTheBacklogOneChunkAtATime() {
+        Instant cutoff = Instant.now();
+        when(repo.findStaleIdsAfter(eq(0L), eq(Long.MAX_VALUE), eq(cutoff), any(Pageable.class)))
+                .thenReturn(List.of(1L, 2L));
+        when(repo.findStaleIdsAfter(eq(2L), eq(Long.MAX_VALUE), eq(cutoff), any(Pageable.class)))
+                .thenReturn(List.of(5L));
+        when(repo.findStaleIdsAfter(eq(5L), eq(Long.MAX_VALUE), eq(cutoff), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(repo.markStaleDispatched(List.of(1L, 2L))).thenReturn(2);
+        when(repo.markStaleDispatched(List.of(5L))).thenReturn(0); // pushed since the chunk was read
+
+        assertEquals(2, dispatcher.retireStale(Long.MAX_VALUE, cutoff));
+
+        verify(repo, times(2)).markStaleDispatched(any());
+    }
+
+    @Test
+    void retireBeforeOutbox_RetiresEveryRowAlreadyThereOnce() {
+        when(jobs.findById(NotificationDispatcher.OUTBOX_JOB)).thenReturn(Optional.empty());
+        when(jobs.save(any(MaintenanceJob.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repo.findMaxId()).thenReturn(40L);
+        when(repo.findStaleIdsAfter(eq(0L), eq(40L), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(39L, 40L));
+        when(repo.findStaleIdsAfter(eq(40L), eq(40L), any(Instant.class), any(Pageable.class))).thenReturn(List.of());
+        when(repo.markStaleDispatched(List.of(39L, 40L))).thenReturn(2);
+
+        // Recent rows count too: the synchronous path already pushed them
+        assertEquals(2, dispatcher.retireBeforeOutbox());
+
+        MaintenanceJob done = new MaintenanceJob(NotificationDispatcher.OUTBOX_JOB);
+        done.setStatus("DONE");
+        when(jobs.findById(NotificationDispatcher.OUTBOX_JOB)).thenReturn(Optional.of(done));
+        assertEquals(0, dispatcher.retireBeforeOutbox());
+        verify(repo).findMaxId();
+    }
+
+    @Test
+    void dispatchAfterCommit_WaitsForTheCommitAndNeverBlocks() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            dispatcher.dispatchAfterCommit(List.of(notification(1L, "a@example.com"),
+                    notification(2L, "b@example.com"), notification(3L, "c@example.com")));
+            assertEquals(0L, dispatcher.getStats().get("queued"));
+
+            for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations())
+                s.afterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // The queue holds two; the third is left in the outbox for the sweep
+        assertEquals(2L, dispatcher.getStats().get("queued"));
+        assertEquals(1L, dispatcher.getStats().get("overflowed"));
+        verifyNoInteractions(messagingTemplate);
+    }
+}
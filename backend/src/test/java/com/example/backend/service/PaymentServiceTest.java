@@ -0,0 +1,92 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Booking;
+import com.example.backend.model.Payment;
+import com.example.backend.repository.PaymentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentServiceTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private BookingService bookingService;
+
+    @Mock
+    private NotificationService notificationService;
+
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        paymentService = new PaymentService(paymentRepository, bookingService, notificationService);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private Payment pendingPayment() {
+        Payment p = new Payment();
+        p.setBookingId(7L);
+        p.setStripePaymentIntentId("pi_1");
+        p.setStatus("PENDING");
+        when(paymentRepository.findByStripePaymentIntentId("pi_1")).thenReturn(p);
+        return p;
+    }
+
+    private Booking booking(String status) {
+        Booking b = new Booking();
+        b.setId(7L);
+        b.setStatus(status);
+        when(bookingService.findById(7L)).thenReturn(Optional.of(b));
+        return b;
+    }
+
+    @Test
+    void confirmPayment_FlagsAPaymentForAnExpiredHoldForRefund() {
+        Payment p = pendingPayment();
+        Booking b = booking("EXPIRED");
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> paymentService.confirmPayment("pi_1", "pm_1"));
+
+        assertTrue(e.getMessage().contains("refunded"), e.getMessage());
+        assertEquals("REFUND_PENDING", p.getStatus());
+        assertEquals("EXPIRED", b.getStatus());
+        verify(bookingService, never()).updateBooking(any());
+    }
+
+    @Test
+    void confirmPayment_FlagsTheRefundWhenTheHoldExpiresMeanwhile() {
+        Payment p = pendingPayment();
+        booking("PENDING");
+        when(bookingService.updateBooking(any(Booking.class)))
+                .thenThrow(new RuntimeException("Booking is no longer pending; its seat hold has expired or been cancelled"));
+
+        assertThrows(RuntimeException.class, () -> paymentService.confirmPayment("pi_1", "pm_1"));
+
+        assertEquals("REFUND_PENDING", p.getStatus());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void confirmPayment_ConfirmsOnceTheBookingIsPaid() {
+        Payment p = pendingPayment();
+        Booking b = booking("PENDING");
+
+        assertSame(p, paymentService.confirmPayment("pi_1", "pm_1"));
+
+        assertEquals("CONFIRMED", p.getStatus());
+        assertEquals("COMPLETED", b.getStatus());
+        assertEquals("pi_1", b.getTransactionId());
+        verify(bookingService).updateBooking(b);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RideRouteIndexTest {
+
+    private static final double[] HYDERABAD = { 17.3850, 78.4867 };
+    private static final double[] SURYAPET = { 17.1405, 79.6236 };
+    private static final double[] VIJAYAWADA = { 16.5062, 80.6480 };
+    private static final double[] VIZAG = { 17.6868, 83.2185 };
+
+    private static Ride ride(Long id, String status, double[]... stops) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setStatus(status);
+        String[] names = new String[stops.length];
+        long[] offsets = new long[stops.length];
+        for (int i = 0; i < stops.length; i++)
+            names[i] = "Stop" + i;
+        new RouteGeometry(List.of(names), offsets, Arrays.asList(stops), null).applyTo(r);
+        return r;
+    }
+
+    private static RideRouteIndex index(Ride... rides) {
+        RideRepository repo = mock(RideRepository.class);
+        when(repo.findOpenWithGeometry()).thenReturn(List.of(rides));
+        RideRouteIndex index = new RideRouteIndex(repo, "memory", 5);
+        index.load();
+        return index;
+    }
+
+    @Test
+    void match_FindsRidesPassingNearBothPointsInOrder() {
+        RideRouteIndex index = index(
+                ride(1L, "OPEN", HYDERABAD, SURYAPET, VIJAYAWADA, VIZAG),
+                ride(2L, "OPEN", VIZAG, VIJAYAWADA, HYDERABAD),
+                ride(3L, "CANCELLED", HYDERABAD, VIJAYAWADA));
+
+        // A pickup a little off the Hyderabad-Suryapet leg and a drop at Vijayawada
+        Map<Long, double[]> matches = index.match(17.30, 79.00, VIJAYAWADA[0], VIJAYAWADA[1], 10_000);
+
+        assertEquals(Set.of(1L), matches.keySet());
+        assertTrue(matches.get(1L)[0] > 0 && matches.get(1L)[0] < 10_000);
+        assertEquals(0, matches.get(1L)[1], 1);
+        assertEquals(Set.of(2L), index.match(VIJAYAWADA[0], VIJAYAWADA[1], HYDERABAD[0], HYDERABAD[1], 10_000).keySet());
+        assertTrue(index.match(17.30, 79.00, VIJAYAWADA[0], VIJAYAWADA[1], 1_000).isEmpty());
+    }
+
+    @Test
+    void onRideChanged_DropsRidesThatCloseOrAreDeleted() {
+        Ride open = ride(1L, "OPEN", HYDERABAD, VIJAYAWADA);
+        RideRouteIndex index = index(open, ride(2L, "OPEN", HYDERABAD, VIJAYAWADA));
+        assertEquals(2, index.size());
+
+        open.setStatus("COMPLETED");
+        index.onRideChanged(RideChangedEvent.saved(open));
+        index.onRideChanged(RideChangedEvent.deleted(2L));
+
+        assertEquals(0, index.size());
+        assertTrue(index.match(HYDERABAD[0], HYDERABAD[1], VIJAYAWADA[0], VIJAYAWADA[1], 5_000).isEmpty());
+    }
+
+    @Test
+    void load_SkipsTheDatabaseWhenCorridorSearchIsOff() {
+        RideRepository repo = mock(RideRepository.class);
+        RideRouteIndex index = new RideRouteIndex(repo, "off", 5);
+        index.load();
+        index.onRideChanged(RideChangedEvent.saved(ride(1L, "OPEN", HYDERABAD, VIJAYAWADA)));
+
+        assertFalse(index.isEnabled());
+        assertEquals(0, index.size());
+        verifyNoInteractions(repo);
+    }
+}
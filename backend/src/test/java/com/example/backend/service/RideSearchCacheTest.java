@@ -0,0 +1,153 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RideSearchCacheTest {
+
+    private static Ride ride(long id, String from, String to, String route) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setFromLocation(from);
+        r.setToLocation(to);
+        r.setRoute(route);
+        r.setDate("2024-05-01");
+        r.setStatus("OPEN");
+        r.setTickets(3);
+        return r;
+    }
+
+    @Test
+    void key_NormalizesTerms() {
+        assertEquals(RideSearchCache.key("Hyderabad", "Vizag", null, null),
+                RideSearchCache.key("  hyderabad ", "VIZAG", null, ""));
+        assertNotEquals(RideSearchCache.key("a", "b", null, null),
+                RideSearchCache.key("a", "b", LocalDate.of(2024, 5, 1), null));
+    }
+
+    @Test
+    void get_CountsHitsAndMisses() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        RideSearchCache.Key key = RideSearchCache.key("hyderabad", "vizag", null, null);
+
+        assertNull(cache.get(key));
+        assertTrue(cache.put(key, cache.ticket(), List.of(ride(1, "Hyderabad", "Vizag", null)), "body"));
+        assertEquals("body", cache.get(key));
+
+        assertEquals(1L, cache.getStats().get("hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+        assertEquals(0.5, cache.getStats().get("hitRatio"));
+    }
+
+    @Test
+    void onRideChanged_DropsOnlyAffectedCorridors() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        Ride hydVizag = ride(1, "Hyderabad", "Vizag", null);
+        RideSearchCache.Key hyd = RideSearchCache.key("hyderabad", "vizag", null, null);
+        RideSearchCache.Key hydPage2 = RideSearchCache.key("hyderabad", "vizag", null, "cursor/20");
+        RideSearchCache.Key blr = RideSearchCache.key("bangalore", "chennai", null, null);
+        cache.put(hyd, cache.ticket(), List.of(hydVizag), "hyd");
+        cache.put(hydPage2, cache.ticket(), List.of(), "hyd-2");
+        cache.put(blr, cache.ticket(), List.of(ride(2, "Bangalore", "Chennai", null)), "blr");
+
+        // Seat change on a ride in the Hyderabad results drops every page of that corridor
+        hydVizag.setTickets(1);
+        cache.onRideChanged(RideChangedEvent.saved(hydVizag));
+
+        assertNull(cache.get(hyd));
+        assertNull(cache.get(hydPage2));
+        assertEquals("blr", cache.get(blr));
+        assertEquals(1L, cache.getStats().get("invalidations"));
+        assertEquals(2L, cache.getStats().get("invalidatedEntries"));
+    }
+
+    @Test
+    void onRideChanged_DropsCorridorsANewRideNowMatches() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        RideSearchCache.Key viaRoute = RideSearchCache.key("eluru", "vizag", null, null);
+        RideSearchCache.Key onDate = RideSearchCache.key("hyderabad", "vizag", LocalDate.of(2024, 6, 1), null);
+        RideSearchCache.Key other = RideSearchCache.key("bangalore", "chennai", null, null);
+        cache.put(viaRoute, cache.ticket(), List.of(), "eluru");
+        cache.put(onDate, cache.ticket(), List.of(), "june");
+        cache.put(other, cache.ticket(), List.of(), "blr");
+
+        cache.onRideChanged(RideChangedEvent.saved(ride(7, "Hyderabad", "Vizag", "Hyderabad, Eluru, Vizag")));
+
+        assertNull(cache.get(viaRoute));
+        assertEquals("june", cache.get(onDate)); // the ride departs on another day
+        assertEquals("blr", cache.get(other));
+    }
+
+    @Test
+    void onRideChanged_IgnoresMatchingRidesThatAreNotListed() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        RideSearchCache.Key key = RideSearchCache.key("hyderabad", "vizag", null, null);
+        cache.put(key, cache.ticket(), List.of(), "empty");
+
+        Ride full = ride(3, "Hyderabad", "Vizag", null);
+        full.setTickets(0);
+        cache.onRideChanged(RideChangedEvent.saved(full));
+
+        assertEquals("empty", cache.get(key));
+    }
+
+    @Test
+    void put_RefusesResultsComputedBeforeAnAffectingChange() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        RideSearchCache.Key key = RideSearchCache.key("hyderabad", "vizag", null, null);
+        RideSearchCache.Key other = RideSearchCache.key("bangalore", "chennai", null, null);
+        long ticket = cache.ticket();
+
+        // A matching ride commits while the query runs
+        cache.onRideChanged(RideChangedEvent.saved(ride(4, "Hyderabad", "Vizag", null)));
+
+        assertFalse(cache.put(key, ticket, List.of(), "stale"));
+        assertNull(cache.get(key));
+        assertTrue(cache.put(other, ticket, List.of(), "fresh"));
+        assertEquals(1L, cache.getStats().get("refusedPuts"));
+    }
+
+    @Test
+    void onRideChanged_DeletionDropsCorridorsContainingTheRide() {
+        RideSearchCache cache = new RideSearchCache(10, 60);
+        RideSearchCache.Key key = RideSearchCache.key("hyderabad", "vizag", null, null);
+        cache.put(key, cache.ticket(), List.of(ride(5, "Hyderabad", "Vizag", null)), "body");
+
+        cache.onRideChanged(RideChangedEvent.deleted(5L));
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void put_EvictsLeastRecentlyUsedCorridorWhenFull() {
+        RideSearchCache cache = new RideSearchCache(2, 60);
+        RideSearchCache.Key a = RideSearchCache.key("a", "b", null, null);
+        RideSearchCache.Key b = RideSearchCache.key("c", "d", null, null);
+        RideSearchCache.Key c = RideSearchCache.key("e", "f", null, null);
+        cache.put(a, cache.ticket(), List.of(), "a");
+        cache.put(b, cache.ticket(), List.of(), "b");
+        cache.get(a);
+        cache.put(c, cache.ticket(), List.of(), "c");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(b));
+        assertEquals("a", cache.get(a));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void get_ExpiresEntriesAfterTtl() {
+        RideSearchCache cache = new RideSearchCache(10, 0);
+        RideSearchCache.Key key = RideSearchCache.key("a", "b", null, null);
+        cache.put(key, cache.ticket(), List.of(), "a");
+
+        assertNull(cache.get(key));
+        assertEquals(1L, cache.getStats().get("expirations"));
+    }
+}
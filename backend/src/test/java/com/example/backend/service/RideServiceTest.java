@@ -9,10 +9,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +38,24 @@ class RideServiceTest {
     @Mock
     private GoogleMapsService googleMapsService;
 
+    @Mock
+    private RideSearchIndex searchIndex;
+
+    @Mock
+    private RideGeoIndex geoIndex;
+
+    @Mock
+    private RideRouteIndex routeIndex;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private RideService rideService;
 
@@ -64,6 +88,9 @@ class RideServiceTest {
         assertEquals("test@example.com", ride.getDriverEmail());
         assertEquals("Test Driver", ride.getDriverName());
         verify(rideRepository, times(1)).save(ride);
+        verify(events).publishEvent(any(RideChangedEvent.class));
+        // The route is resolved in the background, never on the posting request
+        verify(googleMapsService, never()).resolveRouteGeometry(any());
     }
 
     @Test
@@ -76,4 +103,140 @@ class RideServiceTest {
         assertEquals(1, results.size());
         assertEquals("New York", results.get(0).getFromLocation());
     }
+
+    @Test
+    void testSearchRides_UsesInMemoryIndexWhenEnabled() {
+        when(searchIndex.isEnabled()).thenReturn(true);
+        when(searchIndex.search("new", "bos")).thenReturn(Set.of(7L));
+        when(rideRepository.findAllById(Set.of(7L))).thenReturn(List.of(ride));
+
+        List<Ride> results = rideService.searchRides("new", "bos");
+
+        assertEquals(List.of(ride), results);
+        verify(rideRepository, never()).searchRides(anyString(), anyString());
+    }
+
+    @Test
+    void testSearchOpenRides_FiltersListedRidesByDate() {
+        ride.setStatus("OPEN");
+        Ride otherDay = new Ride();
+        otherDay.setStatus("OPEN");
+        otherDay.setTickets(2);
+        otherDay.setDate("11/10/2023");
+        Ride full = new Ride();
+        full.setStatus("OPEN");
+        full.setDate("2023-10-10");
+        when(rideRepository.searchRides("new york", "boston")).thenReturn(List.of(ride, otherDay, full));
+
+        assertEquals(List.of(ride), rideService.searchOpenRides("new york", "boston", java.time.LocalDate.of(2023, 10, 10)));
+        assertEquals(List.of(ride, otherDay), rideService.searchOpenRides("new york", "boston", null));
+    }
+
+    @Test
+    void testDelete_PublishesDeletion() {
+        rideService.delete(5L);
+
+        verify(rideRepository).deleteById(5L);
+        verify(events).publishEvent(RideChangedEvent.deleted(5L));
+    }
+
+    @Test
+    void testSearchNearby_CapsRadiiAndSortsByCombinedDistance() {
+        Ride far = new Ride();
+        far.setId(1L);
+        far.setStatus("OPEN");
+        Ride close = new Ride();
+        close.setId(2L);
+        close.setStatus("OPEN");
+        Ride cancelled = new Ride();
+        cancelled.setId(3L);
+        cancelled.setStatus("CANCELLED");
+        when(geoIndex.isEnabled()).thenReturn(true);
+        when(geoIndex.search(17.4, 78.3, 100_000, 16.5, 80.6, 5_000)).thenReturn(Map.of(
+                1L, new double[] { 4000, 3000 }, 2L, new double[] { 1000, 500 }, 3L, new double[] { 0, 0 }));
+        when(rideRepository.findAllById(any())).thenReturn(List.of(far, close, cancelled));
+
+        List<NearbyRide> results = rideService.searchNearby(17.4, 78.3, 500, 16.5, 80.6, 5);
+
+        assertEquals(List.of(close, far), results.stream().map(NearbyRide::ride).toList());
+        assertEquals(1000, results.get(0).startMeters());
+    }
+
+    @Test
+    void testSearchNearby_LoadsOnlyTheClosestMatches() {
+        org.springframework.test.util.ReflectionTestUtils.setField(rideService, "maxNearbyResults", 2);
+        when(geoIndex.isEnabled()).thenReturn(true);
+        when(geoIndex.search(17.4, 78.3, 10_000, 16.5, 80.6, 10_000)).thenReturn(Map.of(
+                1L, new double[] { 4000, 3000 }, 2L, new double[] { 1000, 500 }, 3L, new double[] { 2000, 0 }));
+
+        rideService.searchNearby(17.4, 78.3, 10, 16.5, 80.6, 10);
+
+        verify(rideRepository).findAllById(List.of(2L, 3L));
+    }
+
+    private static Ride openRide(long id, Instant createdAt) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setCreatedAt(createdAt);
+        r.setTickets(2);
+        return r;
+    }
+
+    @Test
+    void testListOpenPage_FetchesOneExtraRowAndEmitsCursor() {
+        Instant t = Instant.parse("2026-10-01T10:00:00Z");
+        List<Ride> rows = List.of(openRide(9, t), openRide(8, t), openRide(7, t.minusSeconds(60)));
+        when(rideRepository.findOpenPage(PageRequest.of(0, 3))).thenReturn(rows);
+
+        RidePage page = rideService.listOpenPage(null, 2);
+
+        assertEquals(rows.subList(0, 2), page.rides());
+        assertEquals(new RideCursor(t, 8), RideCursor.decode(page.nextCursor()));
+
+        when(rideRepository.findOpenPageAfter(t, 8L, PageRequest.of(0, 3))).thenReturn(List.of(rows.get(2)));
+        RidePage last = rideService.listOpenPage(RideCursor.decode(page.nextCursor()), 2);
+
+        assertEquals(List.of(rows.get(2)), last.rides());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void testListOpenPage_ClampsPageSize() {
+        when(rideRepository.findOpenPage(any())).thenReturn(List.of());
+
+        rideService.listOpenPage(null, 10_000);
+        rideService.listOpenPage(null, 0);
+
+        verify(rideRepository).findOpenPage(PageRequest.of(0, 101));
+        verify(rideRepository).findOpenPage(PageRequest.of(0, 2));
+    }
+
+    @Test
+    void testSave_KeepsSeatsBookedWhileTheDriverEdited() {
+        ride.setId(1L);
+        ride.setRouteStops("New York -> Hartford -> Boston");
+        ride.setLegSeats("3,3");
+        ride.rememberLoadedTickets(); // the edit form read 3 free seats on both legs
+
+        // A booking for the first leg took 2 seats between the driver's read and the save
+        Ride booked = new Ride();
+        booked.setId(1L);
+        booked.setTickets(3);
+        booked.setLegSeats("1,3");
+        when(rideRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(booked));
+        when(rideRepository.save(ride)).thenReturn(ride);
+
+        ride.setTickets(4); // the driver adds a seat
+        rideService.save(ride);
+
+        assertEquals(4, ride.getTickets());
+        assertEquals("2,4", ride.getLegSeats());
+        verify(seatInventory).forget(1L);
+    }
+
+    @Test
+    void testRideCursor_RejectsMalformedTokens() {
+        assertNull(RideCursor.decode("not a cursor!"));
+        assertNull(RideCursor.decode(java.util.Base64.getUrlEncoder().encodeToString("12|x".getBytes())));
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteGeometryTest {
+
+    private final RouteGeometry geometry = new RouteGeometry(
+            List.of("Hyderabad", "Suryapet", "Vijayawada", "Vizag"), new long[] { 0, 136000, 275000, 623000 }, null);
+
+    @Test
+    void segmentMeters_SubtractsStopOffsets() {
+        assertEquals(623000L, geometry.segmentMeters("Hyderabad", "Vizag"));
+        assertEquals(487000L, geometry.segmentMeters("suryapet", "Vizag Beach Road"));
+        assertNull(geometry.segmentMeters("Vizag", "Hyderabad"));
+        assertNull(geometry.segmentMeters("Chennai", "Vizag"));
+    }
+
+    @Test
+    void applyTo_RoundTripsThroughRide() {
+        Ride ride = new Ride();
+        geometry.applyTo(ride);
+
+        assertEquals("Hyderabad -> Suryapet -> Vijayawada -> Vizag", ride.getRouteStops());
+        assertEquals("0,136000,275000,623000", ride.getStopOffsets());
+        RouteGeometry restored = RouteGeometry.of(ride);
+        assertEquals(geometry.getStops(), restored.getStops());
+        assertEquals(139000L, restored.segmentMeters("Suryapet", "Vijayawada"));
+
+        ride.setStopOffsets("0,1");
+        assertNull(RouteGeometry.of(ride));
+    }
+
+    @Test
+    void stopsOf_ParsesRouteOrFallsBackToEndpoints() {
+        assertEquals(List.of("A", "B", "C"), RouteGeometry.stopsOf("A -> B -> C", "A", "C"));
+        assertEquals(List.of("A", "C"), RouteGeometry.stopsOf("Via Highway 44", "A", "C"));
+    }
+
+    @Test
+    void encodePolyline_MatchesReferenceEncoding() {
+        String encoded = RouteGeometry.encodePolyline(List.of(
+                new double[] { 38.5, -120.2 }, new double[] { 40.7, -120.95 }, new double[] { 43.252, -126.453 }));
+
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", encoded);
+    }
+
+    @Test
+    void applyTo_StoresStopCoordinatesAndEndpoints() {
+        RouteGeometry located = new RouteGeometry(List.of("Hyderabad", "Nowhere", "Vijayawada"),
+                new long[] { 0, 100000, 275000 },
+                java.util.Arrays.asList(new double[] { 17.385, 78.4867 }, null, new double[] { 16.5062, 80.648 }),
+                null);
+        Ride ride = new Ride();
+        located.applyTo(ride);
+
+        assertEquals("17.38500,78.48670;;16.50620,80.64800", ride.getStopCoordinates());
+        assertEquals(17.385, ride.getFromLat());
+        assertEquals(80.648, ride.getToLon());
+        RouteGeometry restored = RouteGeometry.of(ride);
+        assertNull(restored.coordinatesAt(1));
+        assertArrayEquals(new double[] { 16.5062, 80.648 }, restored.coordinatesAt(2));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Booking;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class SeatHoldsTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SeatHolds holds;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        holds = new SeatHolds(bookingRepository, rideRepository, seatInventory, notificationService, events,
+                transactionManager, 30, 200);
+    }
+
+    private static Booking booking(long id, Ride ride, int seats) {
+        Booking b = new Booking();
+        b.setId(id);
+        b.setRide(ride);
+        b.setSeats(seats);
+        b.setUserEmail("rider" + id + "@example.com");
+        return b;
+    }
+
+    @Test
+    void expire_ReleasesSeatsPerRideInOneBatch() {
+        Ride first = new Ride();
+        first.setId(1L);
+        Ride second = new Ride();
+        second.setId(2L);
+        List<SeatHolds.Hold> due = List.of(new SeatHolds.Hold(10L, Instant.now()),
+                new SeatHolds.Hold(11L, Instant.now()), new SeatHolds.Hold(12L, Instant.now()),
+                new SeatHolds.Hold(13L, Instant.now()));
+        // 13 was accepted meanwhile, so the expiry query leaves it out
+        when(bookingRepository.lockExpiredHolds(eq(List.of(10L, 11L, 12L, 13L)), any(Instant.class)))
+                .thenReturn(List.of(booking(10L, first, 2), booking(11L, first, 1), booking(12L, second, 3)));
+        when(rideRepository.findAllById(anyCollection())).thenReturn(List.of(first, second));
+
+        assertEquals(3, holds.expire(due));
+
+        verify(bookingRepository).markExpired(List.of(10L, 11L, 12L));
+        verify(seatInventory).release(1L, null, null, 3);
+        verify(seatInventory).release(2L, null, null, 3);
+        verify(seatInventory, times(2)).release(anyLong(), any(), any(), anyInt());
+        verify(events, times(2)).publishEvent(any(RideChangedEvent.class));
+        verify(notificationService).enqueueAll(argThat(batch -> batch.size() == 3
+                && batch.stream().allMatch(n -> "BOOKING_EXPIRED".equals(n.getType()))));
+        assertEquals(3L, holds.getStats().get("expired"));
+    }
+
+    @Test
+    void expire_NothingDueLeavesSeatsAlone() {
+        when(bookingRepository.lockExpiredHolds(anyCollection(), any(Instant.class))).thenReturn(List.of());
+
+        assertEquals(0, holds.expire(List.of(new SeatHolds.Hold(10L, Instant.now()))));
+
+        verify(bookingRepository, never()).markExpired(anyCollection());
+        verifyNoInteractions(seatInventory);
+    }
+
+    @Test
+    void expire_RequeuesHoldsWhenTheBatchFails() {
+        when(bookingRepository.lockExpiredHolds(anyCollection(), any(Instant.class)))
+                .thenThrow(new RuntimeException("database down"));
+
+        assertThrows(RuntimeException.class, () -> holds.expire(List.of(new SeatHolds.Hold(10L, Instant.now()))));
+
+        assertEquals(1, holds.getStats().get("queued"));
+    }
+
+    @Test
+    void hold_IsDueOnlyAfterItsExpiry() throws Exception {
+        DelayQueue<SeatHolds.Hold> queue = new DelayQueue<>();
+        queue.add(new SeatHolds.Hold(2L, Instant.now().plusSeconds(60)));
+        queue.add(new SeatHolds.Hold(1L, Instant.now().minusSeconds(1)));
+
+        SeatHolds.Hold due = queue.poll(1, TimeUnit.SECONDS);
+
+        assertEquals(1L, due.bookingId);
+        assertNull(queue.poll());
+    }
+}
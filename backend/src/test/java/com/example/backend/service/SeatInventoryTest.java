@@ -0,0 +1,177 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class SeatInventoryTest {
+
+    private static final Logger logger = Logger.getLogger(SeatInventoryTest.class.getName());
+
+    /**
+     * Stands in for the rides row: the conditional UPDATE, applied atomically as the database would per row.
+     */
+    private static RideRepository rowBackedRepository(AtomicInteger tickets, AtomicInteger updates) {
+        RideRepository repo = mock(RideRepository.class, withSettings().stubOnly());
+        when(repo.findTicketsById(1L)).thenAnswer(inv -> tickets.get());
+        when(repo.reserveSeats(anyLong(), anyInt())).thenAnswer(inv -> {
+            updates.incrementAndGet();
+            int seats = inv.getArgument(1);
+            synchronized (tickets) {
+                if (tickets.get() < seats)
+                    return 0;
+                tickets.addAndGet(-seats);
+                return 1;
+            }
+        });
+        when(repo.releaseSeats(anyLong(), anyInt())).thenAnswer(inv -> {
+            tickets.addAndGet(inv.getArgument(1));
+            return 1;
+        });
+        return repo;
+    }
+
+    private static SeatInventory inventory(RideRepository repo, long recheckMillis) {
+        return new SeatInventory(repo, mock(PlatformTransactionManager.class), recheckMillis);
+    }
+
+    @Test
+    void reserve_NeverOversellsUnderContention() throws Exception {
+        int seats = 1000;
+        int threads = 16;
+        int attemptsPerThread = 2000;
+        AtomicInteger tickets = new AtomicInteger(seats);
+        AtomicInteger updates = new AtomicInteger();
+        SeatInventory inventory = inventory(rowBackedRepository(tickets, updates), 1000);
+
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int wanted = 1 + t % 3;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (inventory.reserve(1L, wanted))
+                        sold.addAndGet(wanted);
+                }
+                return null;
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        double seconds = (System.nanoTime() - began) / 1e9;
+
+        assertEquals(seats - tickets.get(), sold.get());
+        assertTrue(tickets.get() >= 0 && tickets.get() < 3, "left " + tickets.get());
+        // Once the counter runs dry, attempts are turned away without reaching the row
+        assertTrue(updates.get() < seats + threads, "updates " + updates.get());
+        logger.info(String.format("%d reservation attempts in %.3f s (%.0f/s)", threads * attemptsPerThread, seconds,
+                threads * attemptsPerThread / seconds));
+    }
+
+    @Test
+    void reserve_ReloadsCounterWhenTheRowDisagrees() {
+        AtomicInteger tickets = new AtomicInteger(5);
+        AtomicInteger updates = new AtomicInteger();
+        SeatInventory inventory = inventory(rowBackedRepository(tickets, updates), 0);
+
+        assertTrue(inventory.reserve(1L, 2));
+        tickets.set(1); // seats taken elsewhere
+
+        assertFalse(inventory.reserve(1L, 2));
+        assertEquals(1L, inventory.getStats().get("conflicts"));
+        assertFalse(inventory.reserve(1L, 2)); // the reloaded counter turns it away
+        assertEquals(1L, inventory.getStats().get("turnedAway"));
+        assertTrue(inventory.reserve(1L, 1));
+        assertEquals(0, tickets.get());
+    }
+
+    @Test
+    void reserve_RereadsTheRowBeforeTurningARequestAway() {
+        AtomicInteger tickets = new AtomicInteger(2);
+        AtomicInteger updates = new AtomicInteger();
+        SeatInventory inventory = inventory(rowBackedRepository(tickets, updates), 0);
+
+        assertTrue(inventory.reserve(1L, 2));
+        tickets.addAndGet(3); // seats returned through another instance
+
+        assertTrue(inventory.reserve(1L, 3));
+        assertEquals(0, tickets.get());
+        assertEquals(1L, inventory.getStats().get("rechecks"));
+        assertEquals(0L, inventory.getStats().get("turnedAway"));
+    }
+
+    @Test
+    void reserve_RereadsTheRowAtMostOncePerInterval() {
+        AtomicInteger tickets = new AtomicInteger(1);
+        AtomicInteger updates = new AtomicInteger();
+        SeatInventory inventory = inventory(rowBackedRepository(tickets, updates), 60_000);
+
+        assertTrue(inventory.reserve(1L, 1));
+        tickets.addAndGet(1);
+
+        assertFalse(inventory.reserve(1L, 1)); // counted a moment ago; not worth another read yet
+        assertEquals(0L, inventory.getStats().get("rechecks"));
+        inventory.forget(1L);
+        assertTrue(inventory.reserve(1L, 1));
+    }
+
+    @Test
+    void release_ReturnsSeatsToTheCounter() {
+        AtomicInteger tickets = new AtomicInteger(2);
+        SeatInventory inventory = inventory(rowBackedRepository(tickets, new AtomicInteger()), 0);
+
+        assertTrue(inventory.reserve(1L, 2));
+        assertFalse(inventory.reserve(1L, 1));
+        inventory.release(1L, 2);
+
+        assertEquals(2, tickets.get());
+        assertTrue(inventory.reserve(1L, 2));
+    }
+
+    @Test
+    void reserve_TakesSeatsOnlyOnTheLegsRidden() {
+        Ride ride = new Ride();
+        ride.setLegSeats("2,2,2");
+        RideRepository repo = mock(RideRepository.class, withSettings().stubOnly());
+        when(repo.findLegSeatsById(1L)).thenAnswer(inv -> ride.getLegSeats());
+        when(repo.findByIdForUpdate(1L)).thenReturn(Optional.of(ride));
+        SeatInventory inventory = inventory(repo, 0);
+
+        assertTrue(inventory.reserve(1L, 0, 2, 2));
+        assertFalse(inventory.reserve(1L, 1, 3, 1)); // the middle leg is full
+        assertTrue(inventory.reserve(1L, 2, 3, 2)); // getting on after the others got off
+        assertEquals("0,0,0", ride.getLegSeats());
+
+        inventory.release(1L, 0, 2, 2);
+        assertEquals("2,2,0", ride.getLegSeats());
+        assertEquals(2, ride.getTickets());
+        assertTrue(inventory.reserve(1L, 0, 1, 1));
+        assertFalse(inventory.reserve(1L, 2));
+        assertEquals("1,2,0", ride.getLegSeats());
+    }
+
+    @Test
+    void reserve_UnknownRide() {
+        SeatInventory inventory = inventory(rowBackedRepository(new AtomicInteger(), new AtomicInteger()), 0);
+
+        assertFalse(inventory.reserve(2L, 1));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_ConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<Long> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> flight.execute("hyderabad|vizag|", () -> {
+                loads.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 620000L;
+            })));
+        }
+        // Give every caller time to join the in-flight lookup before it completes
+        while ((long) flight.getStats().get("coalesced") < callers - 1)
+            Thread.sleep(5);
+        release.countDown();
+
+        for (Future<Long> f : results)
+            assertEquals(620000L, f.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(1, loads.get());
+        assertEquals(1L, flight.getStats().get("executions"));
+        assertEquals(0, flight.getStats().get("inFlight"));
+    }
+
+    @Test
+    void execute_PropagatesFailureAndAllowsRetry() {
+        SingleFlight<Long> flight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> flight.execute("k", () -> {
+            throw new IllegalStateException("OSRM down");
+        }));
+        assertEquals(5L, flight.execute("k", () -> 5L));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.backend.service;
+
+import com.example.backend.config.ConnectionPoolMetrics;
+import com.example.backend.model.MaintenanceJob;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.MaintenanceJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class StuckBookingRepairTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private MaintenanceJobRepository jobs;
+
+    @Mock
+    private ConnectionPoolMetrics poolMetrics;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StuckBookingRepair repair;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        repair = new StuckBookingRepair(bookingRepository, jobs, poolMetrics, transactionManager, 2, 0, 0);
+    }
+
+    @Test
+    void runChunk_SettlesOneChunkAndMovesTheCheckpoint() {
+        MaintenanceJob job = new MaintenanceJob(StuckBookingRepair.JOB);
+        job.setAfterId(10L);
+        when(bookingRepository.findStuckIdsAfter(eq(10L), any(Pageable.class))).thenReturn(List.of(12L, 15L));
+        when(bookingRepository.settleStuck(List.of(12L, 15L))).thenReturn(2);
+
+        assertTrue(repair.runChunk(job));
+
+        assertEquals(15L, job.getAfterId());
+        assertEquals(2L, job.getProcessed());
+        verify(jobs).save(job);
+    }
+
+    @Test
+    void runChunk_StopsWhenNothingIsLeft() {
+        MaintenanceJob job = new MaintenanceJob(StuckBookingRepair.JOB);
+        job.setAfterId(15L);
+        when(bookingRepository.findStuckIdsAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+
+        assertFalse(repair.runChunk(job));
+
+        verify(bookingRepository, never()).settleStuck(anyCollection());
+        verify(jobs, never()).save(any(MaintenanceJob.class));
+    }
+
+    @Test
+    void runChunk_CountsOnlyRowsStillStuck() {
+        MaintenanceJob job = new MaintenanceJob(StuckBookingRepair.JOB);
+        when(bookingRepository.findStuckIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(bookingRepository.settleStuck(List.of(1L, 2L))).thenReturn(1); // 2 was paid meanwhile
+
+        assertTrue(repair.runChunk(job));
+
+        assertEquals(2L, job.getAfterId());
+        assertEquals(1L, job.getProcessed());
+    }
+
+    @Test
+    void stuckPredicate_LeavesExpiredHoldsAlone() {
+        // An expired hold already gave its seats back; settling it as COMPLETED and PAID would oversell the ride
+        for (String seatless : List.of("'EXPIRED'", "'CANCELLED'", "'REJECTED'", "'WAITLISTED'"))
+            assertTrue(BookingRepository.STUCK.matches("^b\\.status NOT IN \\([^)]*" + seatless + ".*"), seatless);
+
+        MaintenanceJob job = new MaintenanceJob(StuckBookingRepair.JOB);
+        when(bookingRepository.findStuckIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(7L));
+        when(bookingRepository.settleStuck(List.of(7L))).thenReturn(0); // 7's hold expired since the chunk was read
+
+        assertTrue(repair.runChunk(job));
+
+        assertEquals(0L, job.getProcessed());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Ride;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TrigramIndexTest {
+
+    @Test
+    void search_MatchesSubstringsIgnoringCase() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Hyderabad\nHyderabad -> Suryapet -> Vijayawada");
+        index.put(2, "Chennai");
+        index.put(3, "Bengaluru\nBengaluru -> Hosur -> Chennai");
+
+        assertEquals(Set.of(1L), index.search("SURYA"));
+        assertEquals(Set.of(2L, 3L), index.search("chennai"));
+        assertEquals(Set.of(), index.search("Pune"));
+
+        // Every gram of "abcab" occurs, but not contiguously
+        index.put(4, "abca cab");
+        assertEquals(Set.of(), index.search("abcab"));
+    }
+
+    @Test
+    void search_ShortAndEmptyQueriesScan() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Vizag");
+        index.put(2, "Goa");
+
+        assertEquals(Set.of(1L, 2L), index.search(""));
+        assertEquals(Set.of(2L), index.search("oa"));
+    }
+
+    @Test
+    void put_ReplacesAndRemoveForgets() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1, "Mysuru");
+        index.put(1, "Mangaluru");
+
+        assertEquals(Set.of(), index.search("mysuru"));
+        assertEquals(Set.of(1L), index.search("galu"));
+
+        index.remove(1);
+        assertEquals(0, index.size());
+        assertEquals(Set.of(), index.search("galu"));
+    }
+
+    @Test
+    void rideSearchIndex_MatchesEndpointsOrRouteAndFollowsEvents() {
+        RideRepository repo = mock(RideRepository.class);
+        Ride direct = ride(1L, "Chennai", "Bengaluru", null);
+        Ride via = ride(2L, "Hyderabad", "Bengaluru", "Hyderabad -> Kurnool -> Anantapur -> Bengaluru");
+        when(repo.findAll()).thenReturn(List.of(direct, via));
+
+        RideSearchIndex index = new RideSearchIndex(repo, "memory");
+        index.load();
+
+        assertEquals(Set.of(1L, 2L), index.search("", "bengaluru"));
+        assertEquals(Set.of(2L), index.search("kurnool", "bengal"));
+        assertEquals(Set.of(), index.search("chennai", "kurnool"));
+
+        index.onRideChanged(RideChangedEvent.deleted(2L));
+        assertEquals(Set.of(), index.search("kurnool", "bengal"));
+
+        direct.setRoute("Chennai -> Vellore -> Bengaluru");
+        index.onRideChanged(RideChangedEvent.saved(direct));
+        assertEquals(Set.of(1L), index.search("vellore", "bengaluru"));
+    }
+
+    @Test
+    void rideSearchIndex_StaysEmptyInDatabaseMode() {
+        RideRepository repo = mock(RideRepository.class);
+        RideSearchIndex index = new RideSearchIndex(repo, "database");
+        index.load();
+        index.onRideChanged(RideChangedEvent.saved(ride(1L, "A", "B", null)));
+
+        assertFalse(index.isEnabled());
+        assertEquals(Set.of(), index.search("", ""));
+        verifyNoInteractions(repo);
+    }
+
+    private static Ride ride(Long id, String from, String to, String route) {
+        Ride r = new Ride();
+        r.setId(id);
+        r.setFromLocation(from);
+        r.setToLocation(to);
+        r.setRoute(route);
+        return r;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.backend.service;
+
+import com.example.backend.model.Booking;
+import com.example.backend.model.Ride;
+import com.example.backend.repository.BookingRepository;
+import com.example.backend.repository.RideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class WaitlistTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private RideRepository rideRepository;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private SeatHolds seatHolds;
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Waitlist waitlist;
+    private Ride ride;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        waitlist = new Waitlist(bookingRepository, rideRepository, seatInventory, seatHolds, notificationService,
+                events, transactionManager);
+        ride = new Ride();
+        ride.setId(1L);
+        ride.setStatus("OPEN");
+        ride.setDriverEmail("driver@example.com");
+        when(rideRepository.findById(1L)).thenReturn(Optional.of(ride));
+        when(seatHolds.expiryFromNow()).thenReturn(Instant.now().plusSeconds(1800));
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+    }
+
+    private Booking promotedBooking(long id, int seats) {
+        Booking b = new Booking();
+        b.setId(id);
+        b.setRide(ride);
+        b.setSeats(seats);
+        b.setUserEmail("rider" + id + "@example.com");
+        when(bookingRepository.promoteWaitlisted(eq(id), any(Instant.class))).thenReturn(1);
+        when(bookingRepository.findById(id)).thenReturn(Optional.of(b));
+        return b;
+    }
+
+    @Test
+    void promote_TakesTheHeadWhileSeatsLast() {
+        promotedBooking(10L, 1);
+        promotedBooking(11L, 2);
+        promotedBooking(12L, 1);
+        waitlist.enqueue(1L, 10L, 1, null, null);
+        waitlist.enqueue(1L, 11L, 2, null, null);
+        waitlist.enqueue(1L, 12L, 1, null, null);
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+        when(seatInventory.reserve(1L, null, null, 2)).thenReturn(false); // one seat was freed
+
+        assertEquals(1, waitlist.promote(1L));
+
+        verify(bookingRepository, never()).promoteWaitlisted(eq(12L), any(Instant.class)); // no queue jumping
+        verify(seatHolds).track(any(Booking.class));
+        verify(notificationService).enqueueAll(argThat(batch -> batch.size() == 2));
+        verify(events).publishEvent(any(RideChangedEvent.class));
+        assertEquals(2, waitlist.getStats().get("waiting"));
+    }
+
+    @Test
+    void promote_DropsBookingsThatLeftTheWaitlist() {
+        waitlist.enqueue(1L, 10L, 1, null, null); // cancelled meanwhile
+        promotedBooking(11L, 1);
+        waitlist.enqueue(1L, 11L, 1, null, null);
+        when(bookingRepository.promoteWaitlisted(eq(10L), any(Instant.class))).thenReturn(0);
+        when(seatInventory.reserve(1L, null, null, 1)).thenReturn(true);
+
+        assertEquals(1, waitlist.promote(1L));
+
+        verify(seatInventory, times(1)).reserve(1L, null, null, 1);
+        assertEquals(1L, waitlist.getStats().get("dropped"));
+        assertEquals(0, waitlist.getStats().get("rides"));
+    }
+
+    @Test
+    void promote_NothingForAClosedRide() {
+        ride.setStatus("COMPLETED");
+        waitlist.enqueue(1L, 10L, 1, null, null);
+
+        assertEquals(0, waitlist.promote(1L));
+
+        verify(seatInventory, never()).reserve(anyLong(), any(), any(), anyInt());
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void enqueue_ReportsThePosition() {
+        assertEquals(1, waitlist.enqueue(1L, 10L, 2, null, null));
+        assertEquals(2, waitlist.enqueue(1L, 11L, 1, null, null));
+        assertEquals(1, waitlist.enqueue(2L, 12L, 1, null, null));
+    }
+}